@@ -0,0 +1,66 @@
+package com.github.jubalh.jessy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.models.GenericPosition;
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.pieces.Figure;
+
+/**
+ *
+ * Benchmarks of Board access and move application.
+ * @author Michael Vetter
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	private Board board;
+	private GenericMove forth;
+	private GenericMove back;
+	private int packedMove;
+
+	@Setup
+	public void setUp() throws IllegalNotationException {
+		board = new Board();
+		board.init();
+		forth = new GenericMove("g1f3");
+		back = new GenericMove("f3g1");
+		packedMove = Move.valueOf(forth);
+	}
+
+	@Benchmark
+	public boolean moveFigure() {
+		board.moveFigure(forth);
+		return board.moveFigure(back);
+	}
+
+	@Benchmark
+	public long makeUnmakeMove() {
+		board.makeMove(packedMove);
+		board.unmakeMove();
+		return board.getZobristKey();
+	}
+
+	@Benchmark
+	public Figure getFigure() throws NotAField {
+		return board.getFigure(GenericPosition.e2);
+	}
+}
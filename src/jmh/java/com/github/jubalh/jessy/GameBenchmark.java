@@ -0,0 +1,86 @@
+package com.github.jubalh.jessy;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Benchmarks of Game at different game lengths.
+ * Every benchmark leaves the game in the position it found it.
+ * @author Michael Vetter
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+	@Param({ "0", "40", "200" })
+	public int plies;
+
+	private Game game;
+	private GenericMove next;
+
+	@Setup
+	public void setUp() {
+		List<GenericMove> line = GameLines.randomLine(plies + 1);
+		next = line.remove(plies);
+		game = new Game(new Board());
+		GameLines.play(game, line);
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.setRunning(false);
+	}
+
+	/**
+	 * A human move: validation, board update and mate detection.
+	 */
+	@Benchmark
+	public boolean process() {
+		game.process(next);
+		boolean valid = game.wasValidMove();
+		game.undoMove();
+		game.nextPlayer();
+		return valid;
+	}
+
+	@Benchmark
+	public boolean isValidMove() {
+		return game.isValidMove(next);
+	}
+
+	@Benchmark
+	public boolean isMate() {
+		return game.isMate();
+	}
+
+	/**
+	 * Replaces the former Game.getHexBoard(): the cost of getting at
+	 * the legal moves of a position which was never seen before.
+	 */
+	@Benchmark
+	public PositionCache.Status status() {
+		game.getPositionCache().clear();
+		return game.getStatus();
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Reproducible game lines for the benchmarks.
+ * @author Michael Vetter
+ *
+ */
+final class GameLines {
+
+	private static final long SEED = 42L;
+
+	private GameLines() { }
+
+	/**
+	 * Plays random legal moves from the start position.
+	 * Moves which would end the game are avoided, so the line always has
+	 * the requested length and there is a legal move left at its end.
+	 * @param plies length of the line
+	 * @return moves of the line
+	 */
+	static List<GenericMove> randomLine(int plies) {
+		Random random = new Random(SEED);
+		Board board = new Board();
+		board.init();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int[] scratch = new int[MoveGenerator.MAX_MOVES];
+		List<GenericMove> line = new ArrayList<GenericMove>();
+
+		while (line.size() < plies) {
+			int size = MoveGenerator.generateLegalMoves(board, moves);
+			int offset = random.nextInt(size);
+			int move = Move.NONE;
+			for (int i = 0; i < size && move == Move.NONE; i++) {
+				int candidate = moves[(offset + i) % size];
+				board.makeMove(candidate);
+				if (MoveGenerator.hasLegalMove(board, scratch)) {
+					move = candidate;
+				}
+				board.unmakeMove();
+			}
+			if (move == Move.NONE) {
+				throw new IllegalStateException("Line ran into a dead end after " + line.size() + " plies");
+			}
+			board.makeMove(move);
+			line.add(Move.toGenericMove(move));
+		}
+		return line;
+	}
+
+	/**
+	 * Plays a line on a fresh game.
+	 * @param game game to set up
+	 * @param line moves to play
+	 */
+	static void play(Game game, List<GenericMove> line) {
+		game.init();
+		game.setRunning(true);
+		for (GenericMove move : line) {
+			game.makeMove(move);
+			game.nextPlayer();
+		}
+	}
+}
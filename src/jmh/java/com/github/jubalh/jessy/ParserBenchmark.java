@@ -0,0 +1,52 @@
+package com.github.jubalh.jessy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.parsers.JessyNotationParser;
+import com.github.jubalh.jessy.parsers.NotationParser;
+
+/**
+ *
+ * Benchmarks of turning user input into moves and coordinates.
+ * @author Michael Vetter
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	// not final, so the JIT can't fold it
+	private String input = "e2e4";
+	private String field = "e2";
+	private final NotationParser notationParser = new JessyNotationParser();
+
+	@Benchmark
+	public GenericMove parse() throws NotAField {
+		return notationParser.parse(input);
+	}
+
+	@Benchmark
+	public Coord coord() throws NotAField {
+		return new Coord(field);
+	}
+
+	@Benchmark
+	public Coord internedCoord() throws NotAField {
+		return Coord.valueOf(field);
+	}
+}
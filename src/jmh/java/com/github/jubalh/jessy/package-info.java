@@ -0,0 +1,5 @@
+/**
+ * JMH benchmarks of the move processing path
+ * @author Michael Vetter
+ */
+package com.github.jubalh.jessy;
@@ -0,0 +1,127 @@
+package com.github.jubalh.jessy;
+
+/**
+ *
+ * Precomputed attack tables for the bitboards.
+ * Sliding pieces use rays which get cut at the first blocker.
+ * @author Michael Vetter
+ *
+ */
+public final class Bitboards {
+
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_8 = 0xFFL << 56;
+
+	private static final long[] KNIGHT_ATTACKS = new long[Square.COUNT];
+	private static final long[] KING_ATTACKS = new long[Square.COUNT];
+	// indexed by color ordinal and square
+	private static final long[][] PAWN_ATTACKS = new long[2][Square.COUNT];
+
+	// ray directions, the first four go to higher square indices
+	private static final int NORTH = 0;
+	private static final int EAST = 1;
+	private static final int NORTH_EAST = 2;
+	private static final int NORTH_WEST = 3;
+	private static final int SOUTH = 4;
+	private static final int WEST = 5;
+	private static final int SOUTH_WEST = 6;
+	private static final int SOUTH_EAST = 7;
+	private static final int[] FILE_DELTA = { 0, 1, 1, -1, 0, -1, -1, 1 };
+	private static final int[] RANK_DELTA = { 1, 0, 1, 1, -1, 0, -1, -1 };
+	private static final long[][] RAYS = new long[8][Square.COUNT];
+
+	static {
+		for (int square = 0; square < Square.COUNT; square++) {
+			int file = Square.file(square);
+			int rank = Square.rank(square);
+
+			KNIGHT_ATTACKS[square] = offsets(file, rank,
+					new int[][] { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 } });
+			KING_ATTACKS[square] = offsets(file, rank,
+					new int[][] { { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }, { -1, 1 } });
+			PAWN_ATTACKS[Color.WHITE.ordinal()][square] = offsets(file, rank, new int[][] { { -1, 1 }, { 1, 1 } });
+			PAWN_ATTACKS[Color.BLACK.ordinal()][square] = offsets(file, rank, new int[][] { { -1, -1 }, { 1, -1 } });
+
+			for (int direction = 0; direction < 8; direction++) {
+				long ray = 0L;
+				int f = file + FILE_DELTA[direction];
+				int r = rank + RANK_DELTA[direction];
+				while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+					ray |= 1L << Square.valueOf(f, r);
+					f += FILE_DELTA[direction];
+					r += RANK_DELTA[direction];
+				}
+				RAYS[direction][square] = ray;
+			}
+		}
+	}
+
+	private Bitboards() { }
+
+	private static long offsets(int file, int rank, int[][] deltas) {
+		long result = 0L;
+		for (int[] delta : deltas) {
+			int f = file + delta[0];
+			int r = rank + delta[1];
+			if (f >= 0 && f < 8 && r >= 0 && r < 8) {
+				result |= 1L << Square.valueOf(f, r);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Attacks along a ray going to higher square indices.
+	 */
+	private static long positiveRay(int direction, int square, long occupied) {
+		long ray = RAYS[direction][square];
+		long blockers = ray & occupied;
+		if (blockers != 0) {
+			ray &= ~RAYS[direction][Long.numberOfTrailingZeros(blockers)];
+		}
+		return ray;
+	}
+
+	/**
+	 * Attacks along a ray going to lower square indices.
+	 */
+	private static long negativeRay(int direction, int square, long occupied) {
+		long ray = RAYS[direction][square];
+		long blockers = ray & occupied;
+		if (blockers != 0) {
+			ray &= ~RAYS[direction][63 - Long.numberOfLeadingZeros(blockers)];
+		}
+		return ray;
+	}
+
+	public static long knightAttacks(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+
+	public static long kingAttacks(int square) {
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * @param color color ordinal of the attacking pawn
+	 * @param square square of the pawn
+	 * @return squares attacked by the pawn
+	 */
+	public static long pawnAttacks(int color, int square) {
+		return PAWN_ATTACKS[color][square];
+	}
+
+	public static long rookAttacks(int square, long occupied) {
+		return positiveRay(NORTH, square, occupied) | positiveRay(EAST, square, occupied)
+				| negativeRay(SOUTH, square, occupied) | negativeRay(WEST, square, occupied);
+	}
+
+	public static long bishopAttacks(int square, long occupied) {
+		return positiveRay(NORTH_EAST, square, occupied) | positiveRay(NORTH_WEST, square, occupied)
+				| negativeRay(SOUTH_WEST, square, occupied) | negativeRay(SOUTH_EAST, square, occupied);
+	}
+
+	public static long queenAttacks(int square, long occupied) {
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+}
@@ -1,29 +1,80 @@
 package com.github.jubalh.jessy;
 
+import java.util.Arrays;
+
 import com.fluxchess.jcpi.models.GenericMove;
 import com.fluxchess.jcpi.models.GenericPosition;
 import com.fluxchess.jcpi.models.IllegalNotationException;
 import com.github.jubalh.jessy.pieces.Figure;
-import com.github.jubalh.jessy.pieces.King;
-import com.github.jubalh.jessy.pieces.Knight;
-import com.github.jubalh.jessy.pieces.Pawn;
-import com.github.jubalh.jessy.pieces.Queen;
-import com.github.jubalh.jessy.pieces.Rook;
-import com.github.jubalh.jessy.pieces.Bishop;
 
 /**
  *
  * Models a check board
+ *
+ * The position is kept in bitboards, one for each of the twelve pieces
+ * plus the occupancy of both colors. The Figure matrix is only a view
+ * for the command line and gets updated along with the bitboards.
+ * It holds the shared figures of Piece, so nothing gets allocated
+ * when moving.
  * @author Michael Vetter
  *
  */
 public final class Board {
 
-	private GenericMove lastMove;
+	// castling rights
+	public static final int CASTLING_WHITE_KINGSIDE = 1;
+	public static final int CASTLING_WHITE_QUEENSIDE = 2;
+	public static final int CASTLING_BLACK_KINGSIDE = 4;
+	public static final int CASTLING_BLACK_QUEENSIDE = 8;
+	public static final int CASTLING_ALL = 15;
+
 	private static final int BOARD_ROWS = 8;
 	private static final int BOARD_COLUMNS = 8;
+	private static final int MAX_PLY = 256;
+	// piece letters of the FEN notation, in the order of the piece types
+	private static final String FEN_PIECES = "PNBRQK";
+	// pieces of the first rank from file A to H
+	private static final int[] BACK_RANK = { Piece.ROOK, Piece.KNIGHT, Piece.BISHOP, Piece.QUEEN,
+			Piece.KING, Piece.BISHOP, Piece.KNIGHT, Piece.ROOK };
+	public static final String STANDARD_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	// castling rights that survive a move from or to a square
+	private static final int[] CASTLING_MASK = new int[Square.COUNT];
+
+	static {
+		Arrays.fill(CASTLING_MASK, CASTLING_ALL);
+		CASTLING_MASK[Square.valueOf(0, 0)] &= ~CASTLING_WHITE_QUEENSIDE;
+		CASTLING_MASK[Square.valueOf(7, 0)] &= ~CASTLING_WHITE_KINGSIDE;
+		CASTLING_MASK[Square.valueOf(4, 0)] &= ~(CASTLING_WHITE_KINGSIDE | CASTLING_WHITE_QUEENSIDE);
+		CASTLING_MASK[Square.valueOf(0, 7)] &= ~CASTLING_BLACK_QUEENSIDE;
+		CASTLING_MASK[Square.valueOf(7, 7)] &= ~CASTLING_BLACK_KINGSIDE;
+		CASTLING_MASK[Square.valueOf(4, 7)] &= ~(CASTLING_BLACK_KINGSIDE | CASTLING_BLACK_QUEENSIDE);
+	}
+
+	private int lastMove;
 	private Figure[][] matrix;
 
+	private final long[] pieces = new long[Piece.COUNT];
+	private final long[] occupancy = new long[2];
+	private long occupied;
+	private final int[] mailbox = new int[Square.COUNT];
+	private Color sideToMove;
+	private int castling;
+	private int enPassant;
+	private int halfMoveClock;
+	private int fullMoveNumber;
+	private long zobristKey;
+
+	// state needed to unmake moves
+	private int ply;
+	private int[] undoMove = new int[MAX_PLY];
+	private int[] undoCaptured = new int[MAX_PLY];
+	private int[] undoCastling = new int[MAX_PLY];
+	private int[] undoEnPassant = new int[MAX_PLY];
+	private int[] undoHalfMoveClock = new int[MAX_PLY];
+	private long[] undoZobristKey = new long[MAX_PLY];
+	private int[] undoLastMove = new int[MAX_PLY];
+
 	/**
 	 * Constructor
 	 */
@@ -31,78 +82,242 @@ public final class Board {
 		reset();
 	}
 
+	/**
+	 * Copy constructor.
+	 * Copies the position but not the moves which lead to it,
+	 * so the copy can't unmake them.
+	 * @param other board to copy
+	 */
+	public Board(Board other) {
+		reset();
+		for (int i = 0; i < BOARD_ROWS; i++) {
+			matrix[i] = other.matrix[i].clone();
+		}
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+		System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+		occupied = other.occupied;
+		sideToMove = other.sideToMove;
+		castling = other.castling;
+		enPassant = other.enPassant;
+		halfMoveClock = other.halfMoveClock;
+		fullMoveNumber = other.fullMoveNumber;
+		zobristKey = other.zobristKey;
+		lastMove = other.lastMove;
+	}
+
 	/**
 	 * Reset the matrix.
 	 */
 	public void reset() {
 		matrix = new Figure[BOARD_ROWS][BOARD_COLUMNS];
-		lastMove = null;
+		lastMove = Move.NONE;
+
+		Arrays.fill(pieces, 0L);
+		Arrays.fill(occupancy, 0L);
+		occupied = 0L;
+		Arrays.fill(mailbox, Piece.NONE);
+		sideToMove = Color.WHITE;
+		castling = 0;
+		enPassant = Square.NONE;
+		halfMoveClock = 0;
+		fullMoveNumber = 1;
+		zobristKey = 0L;
+		ply = 0;
 	}
 
 	/**
 	 * Places figures in the array (on the board).
 	 */
 	public void init() {
-		// white pawns
-		int y = 2;
-		for (int x = 1; x <= matrix.length; x++) {
-			setFigure(x, y, (Figure) (new Pawn()));
+		for (int file = 0; file < BOARD_COLUMNS; file++) {
+			// white figures
+			putPiece(Piece.valueOf(Color.WHITE.ordinal(), BACK_RANK[file]), Square.valueOf(file, 0));
+			putPiece(Piece.WHITE_PAWN, Square.valueOf(file, 1));
+
+			// black figures
+			putPiece(Piece.BLACK_PAWN, Square.valueOf(file, 6));
+			putPiece(Piece.valueOf(Color.BLACK.ordinal(), BACK_RANK[file]), Square.valueOf(file, 7));
 		}
 
-		// rest of white figures
-		setFigure(1, 1, new Rook());
+		sideToMove = Color.WHITE;
+		castling = CASTLING_ALL;
+		enPassant = Square.NONE;
+		halfMoveClock = 0;
+		zobristKey = computeZobristKey();
+	}
+
+	/**
+	 * Sets up the position described by a FEN string.
+	 * @param fen position in Forsyth-Edwards Notation
+	 * @throws IllegalNotationException if fen can't be parsed
+	 */
+	public void setFen(String fen) throws IllegalNotationException {
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 2) {
+			throw new IllegalNotationException(fen);
+		}
+		reset();
 
-		setFigure(8, 1, new Rook());
-		setFigure(2, 1, new Knight());
-		setFigure(7, 1, new Knight());
-		setFigure(3, 1, new Bishop());
-		setFigure(6, 1, new Bishop());
-		setFigure(4, 1, new Queen());
-		setFigure(5, 1, new King());
+		// piece placement, starting at a8, every rank has to fill all files
+		int file = 0;
+		int rank = 7;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				if (file != BOARD_COLUMNS || rank == 0) {
+					reset();
+					throw new IllegalNotationException(fen);
+				}
+				file = 0;
+				rank--;
+			} else if (c >= '1' && c <= '8') {
+				file += c - '0';
+				if (file > BOARD_COLUMNS) {
+					reset();
+					throw new IllegalNotationException(fen);
+				}
+			} else {
+				int type = FEN_PIECES.indexOf(Character.toUpperCase(c));
+				if (type < 0 || file >= BOARD_COLUMNS) {
+					reset();
+					throw new IllegalNotationException(fen);
+				}
+				int piece = Piece.valueOf(Character.isUpperCase(c) ? 0 : 1, type);
+				putPiece(piece, Square.valueOf(file, rank));
+				file++;
+			}
+		}
+		if (file != BOARD_COLUMNS || rank != 0) {
+			reset();
+			throw new IllegalNotationException(fen);
+		}
+		// the moves can't be generated without both kings
+		if (Long.bitCount(pieces[Piece.WHITE_KING]) != 1 || Long.bitCount(pieces[Piece.BLACK_KING]) != 1) {
+			reset();
+			throw new IllegalNotationException(fen);
+		}
 
-		// black pawns
-		y = 7;
-		for (int x = 1; x <= matrix.length; x++) {
-			setFigure(x, y, (Figure) (new Pawn(Color.BLACK)));
+		if ("w".equals(fields[1])) {
+			sideToMove = Color.WHITE;
+		} else if ("b".equals(fields[1])) {
+			sideToMove = Color.BLACK;
+		} else {
+			reset();
+			throw new IllegalNotationException(fen);
 		}
 
-		// rest of black figures
-		setFigure(1, 8, new Rook(Color.BLACK));
-		setFigure(8, 8, new Rook(Color.BLACK));
-		setFigure(2, 8, new Knight(Color.BLACK));
-		setFigure(7, 8, new Knight(Color.BLACK));
-		setFigure(3, 8, new Bishop(Color.BLACK));
-		setFigure(6, 8, new Bishop(Color.BLACK));
-		setFigure(4, 8, new Queen(Color.BLACK));
-		setFigure(5, 8, new King(Color.BLACK));
+		if (fields.length > 2) {
+			for (char c : fields[2].toCharArray()) {
+				switch (c) {
+				case 'K':
+					castling |= CASTLING_WHITE_KINGSIDE;
+					break;
+				case 'Q':
+					castling |= CASTLING_WHITE_QUEENSIDE;
+					break;
+				case 'k':
+					castling |= CASTLING_BLACK_KINGSIDE;
+					break;
+				case 'q':
+					castling |= CASTLING_BLACK_QUEENSIDE;
+					break;
+				default:
+					break;
+				}
+			}
+			// rights need king and rook at home, the moves of castling expect them there
+			for (int color = 0; color < 2; color++) {
+				int homeRank = color == 0 ? 0 : 7;
+				for (int homeFile : new int[] { 0, 4, 7 }) {
+					int square = Square.valueOf(homeFile, homeRank);
+					if (mailbox[square] != Piece.valueOf(color, BACK_RANK[homeFile])) {
+						castling &= CASTLING_MASK[square];
+					}
+				}
+			}
+		}
+		if (fields.length > 3 && fields[3].length() == 2) {
+			try {
+				Coord coord = Coord.valueOf(fields[3]);
+				enPassant = Square.valueOf(coord.getX() - 1, coord.getY() - 1);
+			} catch (NotAField e) {
+				reset();
+				throw new IllegalNotationException(fen);
+			}
+		}
+		try {
+			if (fields.length > 4) {
+				halfMoveClock = Integer.parseInt(fields[4]);
+			}
+			if (fields.length > 5) {
+				fullMoveNumber = Integer.parseInt(fields[5]);
+			}
+		} catch (NumberFormatException e) {
+			reset();
+			throw new IllegalNotationException(fen);
+		}
+		zobristKey = computeZobristKey();
 	}
 
 	/**
-	 * @return the Array on which the figure are positioned
+	 * Describes the position as FEN string.
+	 * @return position in Forsyth-Edwards Notation
 	 */
-	public Figure[][] getMatrix() {
-		return matrix;
+	public String toFen() {
+		StringBuilder fen = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for (int file = 0; file < 8; file++) {
+				int piece = mailbox[Square.valueOf(file, rank)];
+				if (piece == Piece.NONE) {
+					empty++;
+				} else {
+					if (empty > 0) {
+						fen.append(empty);
+						empty = 0;
+					}
+					char c = FEN_PIECES.charAt(Piece.type(piece));
+					fen.append(Piece.color(piece) == 0 ? c : Character.toLowerCase(c));
+				}
+			}
+			if (empty > 0) {
+				fen.append(empty);
+			}
+			if (rank > 0) {
+				fen.append('/');
+			}
+		}
+		fen.append(sideToMove == Color.WHITE ? " w " : " b ");
+		if (castling == 0) {
+			fen.append('-');
+		} else {
+			if ((castling & CASTLING_WHITE_KINGSIDE) != 0) fen.append('K');
+			if ((castling & CASTLING_WHITE_QUEENSIDE) != 0) fen.append('Q');
+			if ((castling & CASTLING_BLACK_KINGSIDE) != 0) fen.append('k');
+			if ((castling & CASTLING_BLACK_QUEENSIDE) != 0) fen.append('q');
+		}
+		fen.append(' ').append(enPassant == Square.NONE ? "-" : Square.toString(enPassant));
+		fen.append(' ').append(halfMoveClock).append(' ').append(fullMoveNumber);
+		return fen.toString();
 	}
 
 	/**
-	 * checkboard has 8 on top row
-	 * turn numbers, so they correspond checkboard<->array
-	 * and then both minus one to be arrays indizes
-	 * @param cor checkboard notation
-	 * @return coordinates in matrix notation
+	 * Returns a view of the board for drawing.
+	 * First row is rank 8, first column is file A.
+	 * @return the Array on which the figure are positioned
 	 */
-	private static Coord transformToMatrixNotation(final Coord cor) {
-		return new Coord(cor.getX() -1, Math.abs(cor.getY() - BOARD_COLUMNS));
+	public Figure[][] getMatrix() {
+		return matrix;
 	}
 
 	/**
 	 * Checks if coordinates are in range of the board.
-	 * @param cor coordinates
+	 * @param x x-coordinate
+	 * @param y y-coordinate
 	 * @return true when they fit
 	 */
-	private static boolean checkBoundaries(final Coord cor) {
-		if (cor.getX() >= 1 && cor.getX() <= BOARD_COLUMNS && cor.getY() >= 1
-				&& cor.getY() <= BOARD_ROWS) {
+	private static boolean checkBoundaries(final int x, final int y) {
+		if (x >= 1 && x <= BOARD_COLUMNS && y >= 1 && y <= BOARD_ROWS) {
 			return true;
 		}
 		return false;
@@ -110,14 +325,24 @@ public final class Board {
 
 	/**
 	 * Sets Figure on the board.
+	 * The board keeps the shared figure of the same kind, not figure itself.
 	 * @param x x-coordinate
 	 * @param y y-coordinate
 	 * @param figure Figure
 	 * @return true when not out of bound.
 	 */
 	public boolean setFigure(final int x, final int y, final Figure figure) {
-		Coord cor = new Coord(x, y);
-		return setFigure(cor, figure);
+		if (checkBoundaries(x, y)) {
+			int square = Square.valueOf(x - 1, y - 1);
+			if (mailbox[square] != Piece.NONE) {
+				removePiece(square);
+			}
+			if (figure != null) {
+				putPiece(Piece.valueOf(figure), square);
+			}
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -127,17 +352,11 @@ public final class Board {
 	 * @return true when not out of bound.
 	 */
 	public boolean setFigure(Coord coord, final Figure figure) {
-		if (checkBoundaries(coord)) {
-			coord = transformToMatrixNotation(coord);
-			matrix[coord.getY()][coord.getX()] = figure;
-			return true;
-		}
-		return false;
+		return setFigure(coord.getX(), coord.getY(), figure);
 	}
 
 	public boolean setFigure(GenericPosition position, final Figure figure) {
-		Coord cor = transformGenPosToCoord(position);
-		return setFigure(cor, figure);
+		return setFigure(position.file.ordinal() + 1, position.rank.ordinal() + 1, figure);
 	}
 
 	/**
@@ -148,8 +367,11 @@ public final class Board {
 	 * @throws NotAField if out of bound
 	 */
 	public Figure getFigure(final int x, final int y) throws NotAField {
-		Coord cor = new Coord(x, y);
-		return getFigure(cor);
+		if (checkBoundaries(x, y)) {
+			return matrix[BOARD_ROWS - y][x - 1];
+		} else {
+			throw new NotAField(x, y);
+		}
 	}
 
 	/**
@@ -159,21 +381,11 @@ public final class Board {
 	 * @throws NotAField if out of bound
 	 */
 	public Figure getFigure(Coord cor) throws NotAField {
-		if (checkBoundaries(cor)) {
-			cor = transformToMatrixNotation(cor);
-			return matrix[cor.getY()][cor.getX()];
-		} else {
-			throw new NotAField(cor.getX(), cor.getY());
-		}
-	}
-
-	private Coord transformGenPosToCoord(GenericPosition position) {
-		return new Coord(position.file.ordinal()+1, position.rank.ordinal()+1);
+		return getFigure(cor.getX(), cor.getY());
 	}
 
 	public Figure getFigure(GenericPosition position) throws NotAField {
-		Coord cor = this.transformGenPosToCoord(position);
-		return getFigure(cor);
+		return getFigure(position.file.ordinal() + 1, position.rank.ordinal() + 1);
 	}
 
 	/**
@@ -182,41 +394,48 @@ public final class Board {
 	 * @return true if successfully set. false if out of bound.
 	 */
 	public boolean moveFigure(final GenericMove move) {
-		Coord origin = new Coord(move.from.file.ordinal()+1, move.from.rank.ordinal()+1);
-		Coord destination = new Coord(move.to.file.ordinal()+1, move.to.rank.ordinal()+1);
-		return moveFigure(origin, destination);
+		return moveFigure(Square.valueOf(move.from), Square.valueOf(move.to));
 	}
 
 	/**
 	 * Moves Figure from old position to new position.
+	 * No rules are applied, use makeMove() for that.
 	 * @param coordOld current coordinates
 	 * @param coordNew destination
 	 * @return true if successfully set. false if out of bound.
 	 */
 	public boolean moveFigure(final Coord coordOld, final Coord coordNew) {
-		Figure figure;
-		boolean ret = false;
-
-		try {
-			figure = getFigure(coordOld);
-			ret = setFigure(coordOld, null);
-			if (ret) {
-				ret = setFigure(coordNew, figure);
-			}
-		} catch(NotAField e) {
+		if (!checkBoundaries(coordOld.getX(), coordOld.getY())) {
 			System.err.println("Can't move Figure from"+coordOld.toString()+" to "+coordNew.toString());
-			ret = false;
+			return false;
 		}
-		if(ret) {
-			try {
-				String s = coordOld.toString() + coordNew.toString();
-				lastMove = new GenericMove(s);
-			} catch (IllegalNotationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+		if (!checkBoundaries(coordNew.getX(), coordNew.getY())) {
+			return false;
 		}
-		return ret;
+		return moveFigure(Square.valueOf(coordOld.getX() - 1, coordOld.getY() - 1),
+				Square.valueOf(coordNew.getX() - 1, coordNew.getY() - 1));
+	}
+
+	/**
+	 * Moves Figure from old square to new square.
+	 * No rules are applied, use makeMove() for that.
+	 * @param from square index of current position
+	 * @param to square index of destination
+	 * @return always true, square indices are on the board
+	 */
+	private boolean moveFigure(final int from, final int to) {
+		int piece = mailbox[from];
+		if (piece != Piece.NONE) {
+			removePiece(from);
+		}
+		if (mailbox[to] != Piece.NONE) {
+			removePiece(to);
+		}
+		if (piece != Piece.NONE) {
+			putPiece(piece, to);
+		}
+		lastMove = Move.valueOf(from, to);
+		return true;
 	}
 
 	/**
@@ -225,22 +444,332 @@ public final class Board {
 	 * @return true if successfully set. false if out of bound.
 	 */
 	public boolean moveCastlingRook(){
-		int oldX = lastMove.from.file.ordinal()+1;
-		int newX = lastMove.to.file.ordinal()+1;
-		int yInt = lastMove.to.rank.ordinal()+1;
+		int oldX = Square.file(Move.from(lastMove))+1;
+		int newX = Square.file(Move.to(lastMove))+1;
+		int yInt = Square.rank(Move.to(lastMove))+1;
+		Figure rook = Piece.figure(yInt == 1 ? Piece.WHITE_ROOK : Piece.BLACK_ROOK);
 		boolean returnValue = true;
 
 		if ( oldX > newX ) {
 			returnValue &= this.setFigure(1, yInt, null);
-			returnValue &= this.setFigure(newX + 1, yInt, new Rook());
+			returnValue &= this.setFigure(newX + 1, yInt, rook);
 		} else {
 			returnValue &= this.setFigure(8, yInt, null);
-			returnValue &= this.setFigure(newX - 1, yInt, new Rook());
+			returnValue &= this.setFigure(newX - 1, yInt, rook);
 		}
 
 		return returnValue;
 	}
 
+	/**
+	 * Makes a move according to the rules.
+	 * Handles captures, castling, en passant and promotion.
+	 * The move is not checked for legality.
+	 * @param move packed move, see Move
+	 */
+	public void makeMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int piece = mailbox[from];
+		int type = Piece.type(piece);
+		int color = sideToMove.ordinal();
+
+		ensureUndoCapacity();
+		undoMove[ply] = move;
+		undoCastling[ply] = castling;
+		undoEnPassant[ply] = enPassant;
+		undoHalfMoveClock[ply] = halfMoveClock;
+		undoZobristKey[ply] = zobristKey;
+		undoLastMove[ply] = lastMove;
+
+		// capture
+		int captureSquare = to;
+		if (type == Piece.PAWN && to == enPassant) {
+			captureSquare = color == 0 ? to - 8 : to + 8;
+		}
+		undoCaptured[ply] = mailbox[captureSquare];
+		if (mailbox[captureSquare] != Piece.NONE) {
+			removePiece(captureSquare);
+		}
+
+		// move the piece itself
+		removePiece(from);
+		int promotion = Move.promotion(move);
+		if (promotion != 0) {
+			putPiece(Piece.valueOf(color, promotion), to);
+		} else {
+			putPiece(piece, to);
+		}
+
+		// castling moves the rook as well
+		if (type == Piece.KING && Math.abs(to - from) == 2) {
+			int rookFrom = to > from ? to + 1 : to - 2;
+			int rookTo = to > from ? to - 1 : to + 1;
+			relocatePiece(rookFrom, rookTo);
+		}
+
+		if (type == Piece.PAWN || undoCaptured[ply] != Piece.NONE) {
+			halfMoveClock = 0;
+		} else {
+			halfMoveClock++;
+		}
+		zobristKey ^= Zobrist.enPassant(enPassant) ^ Zobrist.castling(castling);
+		if (type == Piece.PAWN && Math.abs(to - from) == 16) {
+			enPassant = (from + to) >>> 1;
+		} else {
+			enPassant = Square.NONE;
+		}
+		castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		if (sideToMove == Color.BLACK) {
+			fullMoveNumber++;
+		}
+		sideToMove = sideToMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+		zobristKey ^= Zobrist.enPassant(enPassant) ^ Zobrist.castling(castling) ^ Zobrist.blackToMove();
+		lastMove = move;
+		ply++;
+	}
+
+	/**
+	 * Takes back the last move made with makeMove().
+	 */
+	public void unmakeMove() {
+		ply--;
+		int move = undoMove[ply];
+		int from = Move.from(move);
+		int to = Move.to(move);
+		sideToMove = sideToMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+		if (sideToMove == Color.BLACK) {
+			fullMoveNumber--;
+		}
+		castling = undoCastling[ply];
+		enPassant = undoEnPassant[ply];
+		halfMoveClock = undoHalfMoveClock[ply];
+		lastMove = undoLastMove[ply];
+
+		int piece = mailbox[to];
+		if (Move.promotion(move) != 0) {
+			piece = Piece.valueOf(Piece.color(piece), Piece.PAWN);
+		}
+		removePiece(to);
+		putPiece(piece, from);
+
+		if (Piece.type(piece) == Piece.KING && Math.abs(to - from) == 2) {
+			int rookFrom = to > from ? to + 1 : to - 2;
+			int rookTo = to > from ? to - 1 : to + 1;
+			relocatePiece(rookTo, rookFrom);
+		}
+
+		int captured = undoCaptured[ply];
+		if (captured != Piece.NONE) {
+			int captureSquare = to;
+			if (Piece.type(piece) == Piece.PAWN && to == enPassant) {
+				captureSquare = sideToMove == Color.WHITE ? to - 8 : to + 8;
+			}
+			putPiece(captured, captureSquare);
+		}
+		// the pieces got moved back already, the rest is simpler to restore
+		zobristKey = undoZobristKey[ply];
+	}
+
+	/**
+	 * Makes a move according to the rules.
+	 * @param move move to be made
+	 */
+	public void makeMove(GenericMove move) {
+		makeMove(Move.valueOf(move));
+	}
+
+	private void ensureUndoCapacity() {
+		if (ply == undoMove.length) {
+			int size = undoMove.length * 2;
+			undoMove = Arrays.copyOf(undoMove, size);
+			undoCaptured = Arrays.copyOf(undoCaptured, size);
+			undoCastling = Arrays.copyOf(undoCastling, size);
+			undoEnPassant = Arrays.copyOf(undoEnPassant, size);
+			undoHalfMoveClock = Arrays.copyOf(undoHalfMoveClock, size);
+			undoZobristKey = Arrays.copyOf(undoZobristKey, size);
+			undoLastMove = Arrays.copyOf(undoLastMove, size);
+		}
+	}
+
+	/**
+	 * Computes the Zobrist key from scratch.
+	 * @return Zobrist key of the position
+	 */
+	private long computeZobristKey() {
+		long key = 0L;
+		for (int square = 0; square < Square.COUNT; square++) {
+			if (mailbox[square] != Piece.NONE) {
+				key ^= Zobrist.piece(mailbox[square], square);
+			}
+		}
+		key ^= Zobrist.castling(castling) ^ Zobrist.enPassant(enPassant);
+		if (sideToMove == Color.BLACK) {
+			key ^= Zobrist.blackToMove();
+		}
+		return key;
+	}
+
+	private void putPiece(int piece, int square) {
+		long bit = 1L << square;
+		zobristKey ^= Zobrist.piece(piece, square);
+		pieces[piece] |= bit;
+		occupancy[Piece.color(piece)] |= bit;
+		occupied |= bit;
+		mailbox[square] = piece;
+		matrix[BOARD_ROWS - 1 - Square.rank(square)][Square.file(square)] = Piece.figure(piece);
+	}
+
+	private void removePiece(int square) {
+		int piece = mailbox[square];
+		long bit = 1L << square;
+		zobristKey ^= Zobrist.piece(piece, square);
+		pieces[piece] &= ~bit;
+		occupancy[Piece.color(piece)] &= ~bit;
+		occupied &= ~bit;
+		mailbox[square] = Piece.NONE;
+		matrix[BOARD_ROWS - 1 - Square.rank(square)][Square.file(square)] = null;
+	}
+
+	private void relocatePiece(int from, int to) {
+		int piece = mailbox[from];
+		removePiece(from);
+		putPiece(piece, to);
+	}
+
+	/**
+	 * Checks whether square is attacked by any piece of a color.
+	 * @param square square index
+	 * @param color color ordinal of the attacker
+	 * @return true if attacked
+	 */
+	public boolean isAttacked(int square, int color) {
+		if ((Bitboards.pawnAttacks(1 - color, square) & pieces[Piece.valueOf(color, Piece.PAWN)]) != 0) {
+			return true;
+		}
+		if ((Bitboards.knightAttacks(square) & pieces[Piece.valueOf(color, Piece.KNIGHT)]) != 0) {
+			return true;
+		}
+		if ((Bitboards.kingAttacks(square) & pieces[Piece.valueOf(color, Piece.KING)]) != 0) {
+			return true;
+		}
+		long queens = pieces[Piece.valueOf(color, Piece.QUEEN)];
+		if ((Bitboards.bishopAttacks(square, occupied) & (pieces[Piece.valueOf(color, Piece.BISHOP)] | queens)) != 0) {
+			return true;
+		}
+		return (Bitboards.rookAttacks(square, occupied) & (pieces[Piece.valueOf(color, Piece.ROOK)] | queens)) != 0;
+	}
+
+	/**
+	 * Checks whether the king of color is attacked.
+	 * @param color color of the king
+	 * @return true if attacked, false if there is no king
+	 */
+	public boolean isKingAttacked(Color color) {
+		long king = pieces[Piece.valueOf(color.ordinal(), Piece.KING)];
+		if (king == 0) {
+			return false;
+		}
+		return isAttacked(Long.numberOfTrailingZeros(king), 1 - color.ordinal());
+	}
+
+	/**
+	 * @return true if the side to move is in check
+	 */
+	public boolean isCheck() {
+		return isKingAttacked(sideToMove);
+	}
+
+	/**
+	 * @param piece piece, see Piece
+	 * @return bitboard of all squares the piece stands on
+	 */
+	public long getPieces(int piece) {
+		return pieces[piece];
+	}
+
+	/**
+	 * @param color color
+	 * @return bitboard of all squares occupied by color
+	 */
+	public long getOccupancy(Color color) {
+		return occupancy[color.ordinal()];
+	}
+
+	/**
+	 * @return bitboard of all occupied squares
+	 */
+	public long getOccupied() {
+		return occupied;
+	}
+
+	/**
+	 * @param square square index
+	 * @return piece on square or Piece.NONE
+	 */
+	public int getPiece(int square) {
+		return mailbox[square];
+	}
+
+	/**
+	 * @return color whose turn it is
+	 */
+	public Color getSideToMove() {
+		return sideToMove;
+	}
+
+	/**
+	 * @return castling rights as bit set of the CASTLING constants
+	 */
+	public int getCastling() {
+		return castling;
+	}
+
+	/**
+	 * @return en passant target square or Square.NONE
+	 */
+	public int getEnPassant() {
+		return enPassant;
+	}
+
+	/**
+	 * @return half moves since the last capture or pawn move
+	 */
+	public int getHalfMoveClock() {
+		return halfMoveClock;
+	}
+
+	/**
+	 * @return number of the current move, starting with 1
+	 */
+	public int getFullMoveNumber() {
+		return fullMoveNumber;
+	}
+
+	/**
+	 * Returns the Zobrist key of the position.
+	 * It is updated with every move, so equal positions have equal keys.
+	 * @return Zobrist key
+	 */
+	public long getZobristKey() {
+		return zobristKey;
+	}
+
+	/**
+	 * Checks whether the position occurred before, since the last
+	 * capture or pawn move and with the same side to move.
+	 * @return true if the position is a repetition
+	 */
+	public boolean isRepetition() {
+		int oldest = Math.max(0, ply - halfMoveClock);
+		for (int i = ply - 2; i >= oldest; i -= 2) {
+			if (undoZobristKey[i] == zobristKey) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Returns the number of columns the matrix has.
 	 * Should always be 8.
@@ -0,0 +1,218 @@
+package com.github.jubalh.jessy;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import com.github.jubalh.jessy.metrics.Counter;
+import com.github.jubalh.jessy.metrics.Histogram;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+
+/**
+ *
+ * Draws the board into one buffer which gets written in a single call.
+ * On an ANSI terminal the board stays at the top of the screen, with
+ * everything else scrolling below it, so later frames only repaint the
+ * squares that changed by addressing them with the cursor.
+ * Other terminals get the whole board every time.
+ * @author Michael Vetter
+ *
+ */
+public final class BoardRenderer {
+
+	private static final Histogram RENDER_TIME = MetricsRegistry.getDefault().timer("render.frame");
+	private static final Counter RENDERED_BYTES = MetricsRegistry.getDefault().counter("render.bytes");
+
+	private static final String ESC = "\u001B[";
+	private static final String COLOR_LAST_MOVE = ESC + "31m"; //red
+	private static final String COLOR_RESET = ESC + "0m";
+	// DEC save and restore cursor, understood by more terminals than ESC[s
+	private static final String SAVE_CURSOR = "\u001B7";
+	private static final String RESTORE_CURSOR = "\u001B8";
+	private static final String CLEAR_SCREEN = ESC + "2J" + ESC + "H";
+	private static final String RESET_SCROLL_REGION = ESC + "r";
+
+	// screen rows of the frame, counted from 1: columns, border, 8 ranks, border, columns, empty line
+	private static final int FIRST_RANK_ROW = 3;
+	private static final int FRAME_ROWS = 13;
+	// "8| " in front of the squares, and "[x ]" per square
+	private static final int FIRST_SQUARE_COLUMN = 4;
+	private static final int SQUARE_WIDTH = 4;
+	// a full frame with colors is below 2 KB even if every character takes 3 bytes
+	private static final int BUFFER_SIZE = 4096;
+
+	// figure characters by piece, white king is U+2654 and black ones follow 6 later
+	private static final char[] GLYPHS = {
+		'\u2659', '\u2658', '\u2657', '\u2656', '\u2655', '\u2654',
+		'\u265F', '\u265E', '\u265D', '\u265C', '\u265B', '\u265A'
+	};
+
+	private final PrintStream out;
+	private final boolean differential;
+	private final StringBuilder frame = new StringBuilder(BUFFER_SIZE);
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+	private final CharsetEncoder encoder;
+	// what is on the screen, only valid if shown is set
+	private final int[] shownPieces = new int[Square.COUNT];
+	private int shownLastMove = Square.NONE;
+	private boolean shown = false;
+	private long bytesWritten = 0;
+
+	/**
+	 * Constructor
+	 * @param out where frames get written to
+	 * @param differential whether the terminal understands ANSI cursor addressing
+	 */
+	public BoardRenderer(PrintStream out, boolean differential) {
+		this.out = out;
+		this.differential = differential;
+		this.encoder = Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Draws the board.
+	 * @param board position
+	 * @param lastMoveTo square to mark as the destination of the last move, or Square.NONE
+	 * @return number of bytes written
+	 */
+	public synchronized int render(Board board, int lastMoveTo) {
+		long start = System.nanoTime();
+		frame.setLength(0);
+		if (differential && shown) {
+			appendChanges(board, lastMoveTo);
+		} else {
+			appendFrame(board, lastMoveTo);
+		}
+		for (int square = 0; square < Square.COUNT; square++) {
+			shownPieces[square] = board.getPiece(square);
+		}
+		shownLastMove = lastMoveTo;
+		shown = true;
+		int written = write();
+		RENDER_TIME.recordSince(start);
+		return written;
+	}
+
+	/**
+	 * Makes the next frame a full one, like after the screen got cleared.
+	 */
+	public synchronized void invalidate() {
+		shown = false;
+	}
+
+	/**
+	 * Gives the terminal its whole screen back.
+	 */
+	public synchronized void close() {
+		if (differential && shown) {
+			frame.setLength(0);
+			frame.append(RESET_SCROLL_REGION);
+			write();
+		}
+		shown = false;
+	}
+
+	/**
+	 * @return number of bytes sent to the terminal so far
+	 */
+	public synchronized long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	private void appendFrame(Board board, int lastMoveTo) {
+		if (differential) {
+			frame.append(RESET_SCROLL_REGION).append(CLEAR_SCREEN);
+		}
+		appendColumns();
+		appendBorder();
+		for (int rank = 7; rank >= 0; rank--) {
+			frame.append(rank + 1).append("| ");
+			for (int file = 0; file < 8; file++) {
+				int square = Square.valueOf(file, rank);
+				appendSquare(board.getPiece(square), square == lastMoveTo);
+			}
+			frame.append('\n');
+		}
+		appendBorder();
+		appendColumns();
+		if (differential) {
+			frame.append('\n');
+			// the rest of the screen scrolls, the board stays
+			frame.append(ESC).append(FRAME_ROWS + 1).append('r');
+			frame.append(ESC).append(FRAME_ROWS + 1).append(";1H");
+		}
+	}
+
+	private void appendChanges(Board board, int lastMoveTo) {
+		int start = frame.length();
+		frame.append(SAVE_CURSOR);
+		int changes = 0;
+		for (int square = 0; square < Square.COUNT; square++) {
+			int piece = board.getPiece(square);
+			boolean marked = square == lastMoveTo;
+			boolean wasMarked = square == shownLastMove;
+			if (piece == shownPieces[square] && marked == wasMarked) {
+				continue;
+			}
+			int row = FIRST_RANK_ROW + 7 - Square.rank(square);
+			int column = FIRST_SQUARE_COLUMN + SQUARE_WIDTH * Square.file(square);
+			frame.append(ESC).append(row).append(';').append(column).append('H');
+			appendSquare(piece, marked);
+			changes++;
+		}
+		frame.append(RESTORE_CURSOR);
+		if (changes == 0) {
+			frame.setLength(start);
+		}
+	}
+
+	private void appendSquare(int piece, boolean marked) {
+		if (marked) {
+			frame.append(COLOR_LAST_MOVE);
+		}
+		frame.append('[').append(piece == Piece.NONE ? ' ' : GLYPHS[piece]).append(" ]");
+		if (marked) {
+			frame.append(COLOR_RESET);
+		}
+	}
+
+	private void appendColumns() {
+		frame.append("   ");
+		for (int i = 0; i < 8; i++) {
+			frame.append(' ').append((char) ('A' + i)).append("  ");
+		}
+		frame.append('\n');
+	}
+
+	private void appendBorder() {
+		frame.append("   ");
+		for (int i = 0; i < 8; i++) {
+			frame.append("____");
+		}
+		frame.append('\n');
+	}
+
+	/**
+	 * Encodes the frame and hands it to the stream at once.
+	 * @return number of bytes written
+	 */
+	private int write() {
+		if (frame.length() == 0) {
+			return 0;
+		}
+		bytes.clear();
+		encoder.reset();
+		encoder.encode(CharBuffer.wrap(frame), bytes, true);
+		encoder.flush(bytes);
+		out.write(bytes.array(), 0, bytes.position());
+		out.flush();
+		bytesWritten += bytes.position();
+		RENDERED_BYTES.add(bytes.position());
+		return bytes.position();
+	}
+}
@@ -0,0 +1,133 @@
+package com.github.jubalh.jessy;
+
+/**
+ *
+ * Chess clock for both players.
+ * Measures with System.nanoTime, so changes of the wall clock don't matter.
+ * Only counts down if the time control is of Type.CLOCK.
+ * @author Michael Vetter
+ *
+ */
+public final class Clock {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private TimeControl timeControl;
+	private final long[] remaining = new long[2];
+	private final int[] movesPlayed = new int[2];
+	private Color running = null;
+	private long startedAt = 0;
+
+	/**
+	 * Constructor
+	 * @param timeControl time control to use
+	 */
+	public Clock(TimeControl timeControl) {
+		reset(timeControl);
+	}
+
+	/**
+	 * Stops the clock and sets both players back to the base time.
+	 * @param timeControl time control to use from now on
+	 */
+	public synchronized void reset(TimeControl timeControl) {
+		this.timeControl = timeControl;
+		remaining[0] = timeControl.getBaseMillis() * NANOS_PER_MILLI;
+		remaining[1] = remaining[0];
+		movesPlayed[0] = 0;
+		movesPlayed[1] = 0;
+		running = null;
+	}
+
+	/**
+	 * Lets the time of a player run.
+	 * @param color player to move
+	 */
+	public synchronized void start(Color color) {
+		running = color;
+		startedAt = System.nanoTime();
+	}
+
+	/**
+	 * Stops the clock.
+	 */
+	public synchronized void stop() {
+		if (running != null) {
+			remaining[running.ordinal()] -= System.nanoTime() - startedAt;
+			running = null;
+		}
+	}
+
+	/**
+	 * The running player made his move.
+	 * Adds increment and, if due, the base time again, then runs the time of the opponent.
+	 */
+	public synchronized void press() {
+		if (running == null) {
+			return;
+		}
+		Color mover = running;
+		int index = mover.ordinal();
+		stop();
+		movesPlayed[index]++;
+		remaining[index] += timeControl.getIncrementMillis() * NANOS_PER_MILLI;
+		if (timeControl.getMovesToGo() > 0 && movesPlayed[index] % timeControl.getMovesToGo() == 0) {
+			remaining[index] += timeControl.getBaseMillis() * NANOS_PER_MILLI;
+		}
+		start(mover == Color.WHITE ? Color.BLACK : Color.WHITE);
+	}
+
+	/**
+	 * @param color player
+	 * @return milliseconds left, counting the running move
+	 */
+	public synchronized long getRemainingMillis(Color color) {
+		long nanos = remaining[color.ordinal()];
+		if (color == running) {
+			nanos -= System.nanoTime() - startedAt;
+		}
+		return nanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @param color player
+	 * @return moves until the next time control
+	 */
+	public synchronized int getMovesToGo(Color color) {
+		int movesToGo = timeControl.getMovesToGo();
+		if (movesToGo == 0) {
+			return 0;
+		}
+		return movesToGo - movesPlayed[color.ordinal()] % movesToGo;
+	}
+
+	/**
+	 * @param color player
+	 * @return true if the player ran out of time
+	 */
+	public synchronized boolean isExpired(Color color) {
+		return timeControl.getType() == TimeControl.Type.CLOCK && getRemainingMillis(color) <= 0;
+	}
+
+	/**
+	 * @return player whose time runs, null if stopped
+	 */
+	public synchronized Color getRunning() {
+		return running;
+	}
+
+	public synchronized TimeControl getTimeControl() {
+		return timeControl;
+	}
+
+	/**
+	 * Formats milliseconds like a clock does.
+	 * @param millis milliseconds
+	 * @return time as m:ss
+	 */
+	public static String format(long millis) {
+		long seconds = Math.max(0, millis) / 1000;
+		long rest = seconds % 60;
+		return (seconds / 60) + ":" + (rest < 10 ? "0" : "") + rest;
+	}
+}
@@ -1,18 +1,31 @@
 package com.github.jubalh.jessy;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.util.Map;
 import java.util.Observable;
+import java.util.List;
 import java.util.Observer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import jline.console.ConsoleReader;
 import jline.console.completer.StringsCompleter;
 
 import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.archive.ArchiveReader;
+import com.github.jubalh.jessy.archive.GameArchive;
+import com.github.jubalh.jessy.book.OpeningBook;
+import com.github.jubalh.jessy.jfr.ParseEvent;
+import com.github.jubalh.jessy.jfr.RedrawEvent;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+import com.github.jubalh.jessy.tablebase.Tablebases;
 import com.github.jubalh.jessy.parsers.JessyNotationParser;
 import com.github.jubalh.jessy.parsers.NotationParser;
-import com.github.jubalh.jessy.pieces.Figure;
+import com.github.jubalh.jessy.pgn.PgnGame;
+import com.github.jubalh.jessy.pgn.PgnReader;
+import com.github.jubalh.jessy.pgn.PgnValidator;
+import com.github.jubalh.jessy.pgn.PgnWriter;
 
 /**
  *
@@ -22,28 +35,80 @@ import com.github.jubalh.jessy.pieces.Figure;
  */
 public class CmdLine implements Observer {
 
-	// ANSI escape sequences for color
-	private static final String COLOR_LAST_MOVE= "\u001B[31m"; //red
-	private static final String COLOR_RESET = "\u001B[0m";
 	// escape sequence for bold
 	private static final String PROMPT_BOLD = "\033[1m";
 	private static final String PROMPT_BOLD_RESET = "\033[0m";
 	// prompt unicode characters
 	private static final char PROMPT_TICK = '\u2713';
 	private static final char PROMPT_CROSS = '\u2717';
+	private static final String SEPARATOR = " \u25AB ";
+	// the engine reports more often than anyone can read
+	private static final long SEARCH_REDRAW_MILLIS = 250;
+	// saveGame [file]
+	private static final Pattern SAVE_COMMAND = Pattern.compile("saveGame(?:\\s+(\\S+))?\\s*");
+	// loadGame <file> [number of the game in the file]
+	private static final Pattern LOAD_COMMAND = Pattern.compile("loadGame\\s+(\\S+)(?:\\s+(\\d{1,9}))?\\s*");
+	private static final String DEFAULT_RECORD = "jessy_record.pgn";
+	// perft <depth> [fen]
+	private static final Pattern PERFT_COMMAND = Pattern.compile("perft\\s+(\\d{1,2})(?:\\s+(.+?))?\\s*");
+	// perft runs on the input thread, deeper ones take minutes to hours, see Perft.main() for those
+	private static final int MAX_PERFT_DEPTH = 6;
+	// timecontrol [time control]
+	private static final Pattern TIMECONTROL_COMMAND = Pattern.compile("timecontrol(?:\\s+(\\S.*?))?\\s*");
+	// book [file|off]
+	private static final Pattern BOOK_COMMAND = Pattern.compile("book(?:\\s+(\\S.*?))?\\s*");
+	// tablebases [directory|off]
+	private static final Pattern TABLEBASES_COMMAND = Pattern.compile("tablebases(?:\\s+(\\S.*?))?\\s*");
+	// telemetry [file|off]
+	private static final Pattern TELEMETRY_COMMAND = Pattern.compile("telemetry(?:\\s+(\\S.*?))?\\s*");
+	// setoption [name[=value]]
+	private static final Pattern SETOPTION_COMMAND = Pattern.compile("setoption(?:\\s+(\\S.*?))?\\s*");
+	// threads [number of engines]
+	private static final Pattern THREADS_COMMAND = Pattern.compile("threads(?:\\s+(\\d{1,3}))?\\s*");
+	// speculate [number of replies|off]
+	private static final Pattern SPECULATE_COMMAND = Pattern.compile("speculate(?:\\s+(\\d{1,2}|off))?\\s*");
 
 	private NotationParser notationParser = new JessyNotationParser();
 	private StringBuilder messageToUser = new StringBuilder();
 	private boolean active = true;
 	private Game game;
+	private final EngineConfig engineConfig;
+	private Perft perft = null;
 	private static ConsoleReader reader;
+	private BoardRenderer renderer = null;
+	private SearchTelemetry telemetry = null;
+	// prompt without what the engine is thinking
+	private String prompt = "";
+	private long lastSearchRedraw = 0;
+	// shows what the engine is thinking, told on the engine thread
+	private final SearchListener searchListener = new SearchListener() {
+		public void searchUpdated(SearchInfo info) {
+			// pondering is about a position which may never come
+			if (!info.isPondering()) {
+				showSearch(info);
+			}
+		}
+
+		public void searchFinished(SearchInfo info) {
+		}
+	};
 
 	/**
 	 * Constructor
 	 * @param Game game
 	 */
 	public CmdLine(Game game) {
+		this(game, new EngineConfig(EngineConfig.DEFAULT_FILE));
+	}
+
+	/**
+	 * Constructor
+	 * @param game game
+	 * @param engineConfig where engine options set with setoption get saved
+	 */
+	public CmdLine(Game game, EngineConfig engineConfig) {
 		this.game = game;
+		this.engineConfig = engineConfig;
 	}
 
 	/**
@@ -55,10 +120,12 @@ public class CmdLine implements Observer {
 
 		try {
 			reader = new ConsoleReader();
-			reader.setPrompt(this.composePrompt());
+			reader.setPrompt(prompt = this.composePrompt());
+			renderer = new BoardRenderer(System.out, reader.getTerminal().isAnsiSupported());
+			game.addSearchListener(searchListener);
 
 			StringsCompleter commandsCompleter = new StringsCompleter("start", "start againstComputer",
-					"exit", "stop", "saveGame", "credits", "help");
+					"exit", "stop", "movenow", "saveGame", "loadGame", "perft", "timecontrol", "book", "book off", "tablebases", "tablebases off", "ponder on", "ponder off", "speculate", "speculate off", "threads", "setoption", "telemetry", "telemetry off", "stats", "stats reset", "credits", "help");
 			reader.addCompleter(commandsCompleter);
 
 			String input;
@@ -70,7 +137,14 @@ public class CmdLine implements Observer {
 					// parse as a move
 					if (!matchSuccess && game.isRunning()) {
 						try {
+							ParseEvent event = new ParseEvent();
+							event.begin();
 							userMove = notationParser.parse(input);
+							if (event.shouldCommit()) {
+								event.setMove(userMove, game.getMoves().size());
+								event.input = input;
+								event.commit();
+							}
 							game.process(userMove);
 						} catch (NotAField e) {
 							setUserMessage("No comprendo\n");
@@ -86,14 +160,17 @@ public class CmdLine implements Observer {
 					game.setRunning(false);
 				}
 
-				reader.setPrompt(this.composePrompt());
+				reader.setPrompt(prompt = this.composePrompt());
 
 				// if game should end
 				if (!this.isActive())
-					return;
+					break;
 
 				this.drawBoard();
 			}
+			game.removeSearchListener(searchListener);
+			renderer.close();
+			closeTelemetry();
 		} catch (IOException e) {
 			System.err.println("Jline: Error while creation/reading");
 			e.printStackTrace();
@@ -108,6 +185,9 @@ public class CmdLine implements Observer {
 		game.init();
 		game.setRunning(true);
 		game.isComputerGame(isComputerGame);
+		if (renderer != null) {
+			renderer.invalidate();
+		}
 	}
 
 	/**
@@ -127,84 +207,43 @@ public class CmdLine implements Observer {
 	 * Draws the chess board on stdout.
 	 */
 	public void drawBoard() {
-		if (!game.isRunning())
-			return;
-
-		// upper border
-		drawColumns();
-		System.out.println();
-		drawSpace();
-
-		int colCount = 8;
-		Board board = game.getBoard();
-		// go through columns
-		for (Figure[] col : board.getMatrix()) {
-			// left border
-			System.out.print(colCount-- + "| ");
-			// go through rows
-			for (Figure figure : col) {
-				boolean bWasLastMove=false;
-				try {
-					// mark last move
-					if (!game.getMoves().isEmpty()) {
-						GenericMove lastMove = game.getMoves().get(game.getMoves().size() - 1);
-						if(figure == board.getFigure(lastMove.to)) {
-							bWasLastMove = true;
-							System.out.print(COLOR_LAST_MOVE);
-						}
-					}
-				} catch (NotAField ex) {
-					// shouldn't occur since lastMove should be save already
-					System.err.println("Illegal field");
-					ex.printStackTrace();
-				}
-				// print field
-				System.out.print("[" + (figure == null ? " " : figure.toString())
-						+ " ]");
-				// close marking of move
-				if(bWasLastMove) {
-					System.out.print(COLOR_RESET);
-					bWasLastMove = false;
-				}
+		RedrawEvent event = new RedrawEvent();
+		event.begin();
+		// the engine may play its move meanwhile, so board and last move are taken together,
+		// before locking the command line, which the game notifies while holding its own lock
+		Board board;
+		GenericMove lastMove = null;
+		int ply;
+		synchronized (game) {
+			if (!game.isRunning())
+				return;
+			board = game.copyBoard();
+			List<GenericMove> moves = game.getMoves();
+			ply = moves.size();
+			if (ply > 0) {
+				lastMove = moves.get(ply - 1);
 			}
-			System.out.println();
 		}
-
-		// border below
-		drawSpace();
-		drawColumns();
-		System.out.println();
-	}
-
-	/**
-	 * Writes columns A -Z to stdout.
-	 */
-	private static void drawColumns() {
-		System.out.print("   ");
-		for (int i = 0; i < 8; i++) {
-			char c = (char) ('A' + i);
-			System.out.print(" " + c + "  ");
+		// figures are shared, so the last move gets marked by its field
+		int lastMoveTo = lastMove == null ? Square.NONE : Square.valueOf(lastMove.to);
+		int bytes;
+		synchronized (this) {
+			if (renderer == null)
+				return;
+			bytes = renderer.render(board, lastMoveTo);
 		}
-	}
-
-	/**
-	 * Writes separator line.
-	 * Separator between A-Z and actual board.
-	 */
-	private static void drawSpace() {
-		System.out.print("   ");
-		for (int i = 0; i < 8; i++) {
-			System.out.print("____");
+		if (event.shouldCommit()) {
+			event.setMove(lastMove, ply);
+			event.bytes = bytes;
+			event.commit();
 		}
-		System.out.println();
 	}
 
 	/**
 	 * Print prompt.
 	 */
-	private String composePrompt() {
+	private synchronized String composePrompt() {
 		char status = CmdLine.PROMPT_CROSS;
-		final String SEPARATOR = " \u25AB ";
 		String userMessage = this.getUserMessage();
 		StringBuilder result = new StringBuilder("");
 
@@ -225,6 +264,18 @@ public class CmdLine implements Observer {
 				result.append("black draws");
 			}
 			result.append(SEPARATOR);
+			if (game.getTimeControl().getType() == TimeControl.Type.CLOCK) {
+				Clock clock = game.getClock();
+				result.append(Clock.format(clock.getRemainingMillis(Color.WHITE)));
+				result.append(" - ");
+				result.append(Clock.format(clock.getRemainingMillis(Color.BLACK)));
+				result.append(SEPARATOR);
+			}
+			SearchInfo search = game.getLastSearch();
+			if (game.isComputerGame() && search != null && search.isFinished()) {
+				result.append(search.getSummary());
+				result.append(SEPARATOR);
+			}
 		}
 
 		if (game.wasValidMove()) {
@@ -253,7 +304,7 @@ public class CmdLine implements Observer {
 		// Commands
 		if(text.matches("exit\\s?")) {
 			//TODO: prompt if really wants to quit
-			game.setRunning(false);
+			game.shutdown();
 			this.active = false;
 			return true;
 		}
@@ -272,28 +323,106 @@ public class CmdLine implements Observer {
 			}
 			return true;
 		}
-		if(text.matches("saveGame\\s?")) {
-			Recorder recorder = null;
-
-			//JAVA 7: try(recorder = new Recorder()) {
-
-			try {
-				recorder = new Recorder();
-				recorder.record(game.getMoves());
-				recorder.close();
-			} catch (FileNotFoundException e) {
-				System.err.println("Error creating Recorder:");
-				e.printStackTrace();
-			} catch (UnsupportedEncodingException e) {
-				System.err.println("Error creating Recorder:");
-				e.printStackTrace();
-			} catch (IOException e) {
-				System.err.println("Recorder: Error when saving file:");
-				e.printStackTrace();
-			} finally {
-				this.setUserMessage("Saved game into file: " + recorder.getFilename());
-				return true;
+		if(text.matches("movenow\\s?")) {
+			if (!game.moveNow()) {
+				this.setUserMessage("Engine is not thinking");
+			}
+			return true;
+		}
+		Matcher saveMatcher = SAVE_COMMAND.matcher(text);
+		if(saveMatcher.matches()) {
+			this.saveGame(saveMatcher.group(1) == null ? DEFAULT_RECORD : saveMatcher.group(1));
+			return true;
+		}
+		Matcher loadMatcher = LOAD_COMMAND.matcher(text);
+		if(loadMatcher.matches()) {
+			this.loadGame(loadMatcher.group(1), loadMatcher.group(2) == null ? 1 : Integer.parseInt(loadMatcher.group(2)));
+			return true;
+		}
+		Matcher perftMatcher = PERFT_COMMAND.matcher(text);
+		if(perftMatcher.matches()) {
+			this.runPerft(Integer.parseInt(perftMatcher.group(1)), perftMatcher.group(2));
+			return true;
+		}
+		Matcher timeControlMatcher = TIMECONTROL_COMMAND.matcher(text);
+		if(timeControlMatcher.matches()) {
+			String spec = timeControlMatcher.group(1);
+			if (spec == null) {
+				TimeControl next = game.getNextTimeControl();
+				this.setUserMessage("Time control: " + game.getTimeControl()
+						+ (next == game.getTimeControl() ? "" : ", next game: " + next) + "\n");
+			} else {
+				try {
+					game.setTimeControl(TimeControl.parse(spec));
+					this.setUserMessage("Time control for the next game: " + game.getNextTimeControl() + "\n");
+				} catch (IllegalArgumentException e) {
+					this.setUserMessage(e.getMessage() + "\n");
+				}
 			}
+			return true;
+		}
+		Matcher bookMatcher = BOOK_COMMAND.matcher(text);
+		if(bookMatcher.matches()) {
+			this.setBook(bookMatcher.group(1) == null ? "" : bookMatcher.group(1));
+			return true;
+		}
+		Matcher tablebasesMatcher = TABLEBASES_COMMAND.matcher(text);
+		if(tablebasesMatcher.matches()) {
+			this.setTablebases(tablebasesMatcher.group(1) == null ? "" : tablebasesMatcher.group(1));
+			return true;
+		}
+		if(text.matches("ponder( on| off)?\\s?")) {
+			String mode = text.substring("ponder".length()).trim();
+			if (!mode.isEmpty()) {
+				game.setPondering(mode.equals("on"));
+			}
+			this.setUserMessage("Pondering is " + (game.isPondering() ? "on" : "off") + "\n");
+			return true;
+		}
+		Matcher optionMatcher = SETOPTION_COMMAND.matcher(text);
+		if(optionMatcher.matches()) {
+			this.setEngineOption(optionMatcher.group(1) == null ? "" : optionMatcher.group(1));
+			return true;
+		}
+		Matcher threadsMatcher = THREADS_COMMAND.matcher(text);
+		if(threadsMatcher.matches()) {
+			String clamped = "";
+			if (threadsMatcher.group(1) != null) {
+				int engines = Math.max(1, Integer.parseInt(threadsMatcher.group(1)));
+				game.setSearchEngines(engines);
+				if (engines > game.getSearchEngines()) {
+					clamped = " (one per core at most)";
+				}
+			}
+			this.setUserMessage("Engines searching the computer's moves: " + game.getSearchEngines() + clamped + "\n");
+			return true;
+		}
+		Matcher speculateMatcher = SPECULATE_COMMAND.matcher(text);
+		if(speculateMatcher.matches()) {
+			String clamped = "";
+			if (speculateMatcher.group(1) != null) {
+				int candidates = speculateMatcher.group(1).equals("off") ? 0 : Integer.parseInt(speculateMatcher.group(1));
+				game.setSpeculation(candidates);
+				if (candidates > game.getSpeculation()) {
+					clamped = " (one per core at most, but one for pondering)";
+				}
+			}
+			this.setUserMessage("Replies searched in advance: " + game.getSpeculation() + clamped + "\n");
+			return true;
+		}
+		if(text.matches("stats\\s?")) {
+			this.setUserMessage(MetricsRegistry.getDefault().format());
+			return true;
+		}
+		if(text.matches("stats reset\\s?")) {
+			MetricsRegistry.getDefault().reset();
+			this.setUserMessage("Statistics reset\n");
+			return true;
+		}
+		Matcher telemetryMatcher = TELEMETRY_COMMAND.matcher(text);
+		if(telemetryMatcher.matches()) {
+			this.setTelemetry(telemetryMatcher.group(1) == null ? "" : telemetryMatcher.group(1));
+			return true;
 		}
 		if(text.matches("credits\\s?")) {
 			this.printCredits();
@@ -306,6 +435,243 @@ public class CmdLine implements Observer {
 		return false;
 	}
 
+	/**
+	 * Writes the moves played so far as PGN.
+	 * @param filename file to write to
+	 */
+	private void saveGame(String filename) {
+		try (PgnWriter writer = PgnWriter.open(filename)) {
+			writer.write(PgnGame.of(game));
+			this.setUserMessage("Saved game into file: " + filename);
+		} catch (IOException e) {
+			System.err.println("Error when saving file:");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Replaces the current game by one from a PGN file or game archive
+	 * and continues it as a game between humans.
+	 * @param filename file to read from
+	 * @param number number of the game in the file, starting at 1
+	 */
+	private void loadGame(String filename, int number) {
+		if (number < 1) {
+			setUserMessage("Games are counted from 1\n");
+			return;
+		}
+		PgnGame pgnGame = null;
+		if (GameArchive.isArchive(filename)) {
+			try (ArchiveReader reader = new ArchiveReader(filename)) {
+				if (number > reader.size()) {
+					setUserMessage("There are only " + reader.size() + " games in " + filename + "\n");
+					return;
+				}
+				pgnGame = reader.read(number - 1);
+			} catch (IOException e) {
+				setUserMessage("Can't read " + filename + "\n");
+				return;
+			}
+		} else {
+			try (PgnReader reader = PgnReader.open(filename)) {
+				for (int i = 0; i < number; i++) {
+					pgnGame = reader.next();
+					if (pgnGame == null) {
+						setUserMessage("There are only " + i + " games in " + filename + "\n");
+						return;
+					}
+				}
+			} catch (IOException e) {
+				setUserMessage("Can't read " + filename + "\n");
+				return;
+			}
+		}
+
+		game.setRunning(false);
+		String error = PgnValidator.play(pgnGame, game, new int[MoveGenerator.MAX_MOVES]);
+		if (error != null) {
+			setUserMessage(error + "\n");
+			return;
+		}
+		game.setRunning(!game.isMate());
+		setUserMessage("Loaded " + pgnGame.getTag("White") + " - " + pgnGame.getTag("Black")
+				+ " " + pgnGame.getResult() + "\n");
+	}
+
+	/**
+	 * Shows, replaces or removes the opening book.
+	 * @param filename book to use, "off" for none, empty to show the current one
+	 */
+	private void setBook(String filename) {
+		OpeningBook old = game.getOpeningBook();
+		if (filename.isEmpty()) {
+			setUserMessage(old == null ? "No opening book\n" : "Opening book with " + old.size() + " entries\n");
+			return;
+		}
+		OpeningBook book = null;
+		if (!filename.equals("off")) {
+			try {
+				book = new OpeningBook(filename);
+			} catch (IOException e) {
+				setUserMessage("Can't read " + filename + "\n");
+				return;
+			}
+		}
+		game.setOpeningBook(book);
+		if (old != null) {
+			try {
+				old.close();
+			} catch (IOException e) {
+				// it's not used anymore anyway
+			}
+		}
+		setUserMessage(book == null ? "Opening book off\n" : "Opening book with " + book.size() + " entries\n");
+	}
+
+	/**
+	 * Lists the options of the engine, or sets one and saves it.
+	 * @param option "name=value", "name" for a button, empty to list them all
+	 */
+	private void setEngineOption(String option) {
+		List<EngineOption> engineOptions = game.getEngineOptions();
+		if (option.isEmpty()) {
+			Map<String, String> values = game.getEngineOptionValues();
+			StringBuilder s = new StringBuilder();
+			for (EngineOption engineOption : engineOptions) {
+				s.append(engineOption);
+				String value = values.get(engineOption.getName());
+				if (value != null) {
+					s.append(": ").append(value);
+				}
+				s.append('\n');
+			}
+			setUserMessage(engineOptions.isEmpty() ? "Engine told no options\n" : s.toString());
+			return;
+		}
+		int equals = option.indexOf('=');
+		String name = (equals < 0 ? option : option.substring(0, equals)).trim();
+		String value = equals < 0 ? null : option.substring(equals + 1).trim();
+		EngineOption engineOption = EngineOption.find(engineOptions, name);
+		if (engineOption == null) {
+			setUserMessage("Engine has no option " + name + "\n");
+			return;
+		}
+		try {
+			value = engineOption.check(value);
+		} catch (IllegalArgumentException e) {
+			setUserMessage(e.getMessage() + "\n");
+			return;
+		}
+		name = engineOption.getName();
+		game.setEngineOption(name, value);
+		if (value == null) {
+			setUserMessage(name + " pressed\n");
+			return;
+		}
+		try {
+			engineConfig.set(name, value);
+			setUserMessage(name + " set to " + value + "\n");
+		} catch (IOException e) {
+			setUserMessage(name + " set to " + value + ", but can't save it to " + engineConfig.getFilename() + "\n");
+		}
+	}
+
+	/**
+	 * Shows, starts or stops writing the searches of the engine to a file.
+	 * @param filename file to append to, "off" to stop, empty to show where it goes
+	 */
+	private void setTelemetry(String filename) {
+		if (filename.isEmpty()) {
+			setUserMessage(telemetry == null ? "No telemetry\n"
+					: telemetry.getSearches() + " searches written to " + telemetry.getFilename() + "\n");
+			return;
+		}
+		closeTelemetry();
+		if (filename.equals("off")) {
+			setUserMessage("Telemetry off\n");
+			return;
+		}
+		try {
+			telemetry = new SearchTelemetry(filename);
+		} catch (IOException e) {
+			setUserMessage("Can't write " + filename + "\n");
+			return;
+		}
+		game.addSearchListener(telemetry);
+		setUserMessage("Writing searches to " + filename + "\n");
+	}
+
+	private void closeTelemetry() {
+		if (telemetry == null) {
+			return;
+		}
+		game.removeSearchListener(telemetry);
+		try {
+			telemetry.close();
+		} catch (IOException e) {
+			System.err.println("Error when closing " + telemetry.getFilename());
+		}
+		telemetry = null;
+	}
+
+	/**
+	 * Shows, replaces or removes the tablebases.
+	 * @param directory directory with the tables, "off" for none, empty to show the current ones
+	 */
+	private void setTablebases(String directory) {
+		Tablebases tablebases = game.getTablebases();
+		if (directory.isEmpty()) {
+			setUserMessage(tablebases == null ? "No tablebases\n" : tablebases.size() + " tablebases\n");
+			return;
+		}
+		tablebases = null;
+		if (!directory.equals("off")) {
+			try {
+				tablebases = Tablebases.load(directory);
+			} catch (IOException e) {
+				setUserMessage("Can't read " + directory + "\n");
+				return;
+			}
+		}
+		game.setTablebases(tablebases);
+		setUserMessage(tablebases == null ? "Tablebases off\n" : tablebases.size() + " tablebases\n");
+	}
+
+	/**
+	 * Counts the leaf nodes up to depth and shows them per root move.
+	 * Starts from fen if given, otherwise from the current game
+	 * or the start position if no game is running.
+	 * @param depth depth in plies, up to MAX_PERFT_DEPTH
+	 * @param fen position or null
+	 */
+	private void runPerft(int depth, String fen) {
+		if (depth < 1 || depth > MAX_PERFT_DEPTH) {
+			setUserMessage("Depth has to be between 1 and " + MAX_PERFT_DEPTH + "\n");
+			return;
+		}
+		Board board;
+		if (fen != null) {
+			board = new Board();
+			try {
+				board.setFen(fen);
+			} catch (IllegalNotationException e) {
+				setUserMessage("Can't read that position\n");
+				return;
+			}
+		} else if (game.isRunning()) {
+			// the engine may play its move while perft runs
+			board = game.copyBoard();
+		} else {
+			board = new Board();
+			board.init();
+		}
+
+		if (perft == null) {
+			perft = new Perft();
+		}
+		setUserMessage(perft.divide(board, depth).toString());
+	}
+
 	/**
 	 * Checks if should continue running or a halt is intended
 	 * @return true if is running
@@ -319,7 +685,7 @@ public class CmdLine implements Observer {
 	 * Some kind of information for the user
 	 * @param text to add
 	 */
-	private void setUserMessage(String text) {
+	private synchronized void setUserMessage(String text) {
 		messageToUser.append(text);
 	}
 
@@ -344,6 +710,55 @@ public class CmdLine implements Observer {
 		if (arg instanceof GameNotification) {
 			setUserMessage( ((GameNotification)arg).getMessage() );
 		}
+		// the engine moved while the user is typing
+		if (arg instanceof MoveNotification) {
+			redraw();
+		}
+	}
+
+	/**
+	 * Shows what the engine is thinking in front of the prompt,
+	 * keeping what the user typed so far.
+	 * @param info running search
+	 */
+	private synchronized void showSearch(SearchInfo info) {
+		long now = System.currentTimeMillis();
+		if (reader == null || !game.isRunning() || now - lastSearchRedraw < SEARCH_REDRAW_MILLIS) {
+			return;
+		}
+		lastSearchRedraw = now;
+		// only the line with the cursor gets drawn again
+		String line = prompt.substring(prompt.lastIndexOf('\n') + 1);
+		reader.setPrompt(info.getSummary() + SEPARATOR + line);
+		try {
+			reader.redrawLine();
+			reader.flush();
+		} catch (IOException e) {
+			System.err.println("Jline: Error while redrawing");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Draws board and prompt again, keeping what the user typed so far.
+	 */
+	private void redraw() {
+		if (reader == null) {
+			return;
+		}
+		// not under the lock of the command line, drawBoard() takes the one of the game first
+		System.out.println();
+		this.drawBoard();
+		synchronized (this) {
+			reader.setPrompt(prompt = this.composePrompt());
+			try {
+				reader.drawLine();
+				reader.flush();
+			} catch (IOException e) {
+				System.err.println("Jline: Error while redrawing");
+				e.printStackTrace();
+			}
+		}
 	}
 	
 	public void printCredits() {
@@ -3,6 +3,17 @@ package com.github.jubalh.jessy;
 import java.util.Locale;
 
 public final class Coord {
+	// interned coordinates of all fields, indexed by x-1 and y-1
+	private static final Coord[][] FIELDS = new Coord[8][8];
+
+	static {
+		for (int x = 1; x <= 8; x++) {
+			for (int y = 1; y <= 8; y++) {
+				FIELDS[x - 1][y - 1] = new Coord(x, y);
+			}
+		}
+	}
+
 	private int x;
 	private int y;
 
@@ -44,6 +55,37 @@ public final class Coord {
 		throw new NotAField();
 	}
 
+	/**
+	 * Returns the coordinates of a field without allocating.
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return interned coordinates, a new object if not on the board
+	 */
+	public static Coord valueOf(final int x, final int y) {
+		if (x >= 1 && x <= 8 && y >= 1 && y <= 8) {
+			return FIELDS[x - 1][y - 1];
+		}
+		return new Coord(x, y);
+	}
+
+	/**
+	 * Parses a String from format "A1" - "H8" without allocating.
+	 * Doesn't matter if letters are lower or upper case.
+	 * @param s String to parse
+	 * @return interned coordinates
+	 * @throws NotAField if s is no field
+	 */
+	public static Coord valueOf(final String s) throws NotAField {
+		if (s.length() == 2) {
+			char file = Character.toUpperCase(s.charAt(0));
+			char rank = s.charAt(1);
+			if (file >= 'A' && file <= 'H' && rank >= '1' && rank <= '8') {
+				return FIELDS[file - 'A'][rank - '1'];
+			}
+		}
+		throw new NotAField();
+	}
+
 	/**
 	 * Sets X coordinate.
 	 * @param x coordinate
@@ -94,6 +136,11 @@ public final class Coord {
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return x * 31 + y;
+	}
+
 	private static char fieldnumberToChar(int number) {
 		return (char)(number-1+(int)'a');
 	}
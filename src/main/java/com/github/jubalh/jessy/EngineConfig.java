@@ -0,0 +1,88 @@
+package com.github.jubalh.jessy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ *
+ * Engine options which get set on every start, like "Hash=64".
+ * Kept in a properties file, which gets written again with every change,
+ * so the engine can be tuned once per machine.
+ * @author Michael Vetter
+ *
+ */
+public final class EngineConfig {
+
+	// used if it's in the working directory
+	public static final String DEFAULT_FILE = "engine.properties";
+
+	private final String filename;
+	private final Map<String, String> options = new TreeMap<String, String>();
+
+	/**
+	 * Constructor
+	 * @param filename file the options get saved to
+	 */
+	public EngineConfig(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Reads the options of a file, a missing file has none.
+	 * @param filename properties file
+	 * @return options
+	 * @throws IOException if the file can't be read
+	 */
+	public static EngineConfig load(String filename) throws IOException {
+		EngineConfig config = new EngineConfig(filename);
+		if (!new File(filename).isFile()) {
+			return config;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(filename)) {
+			properties.load(in);
+		}
+		for (String name : properties.stringPropertyNames()) {
+			config.options.put(name, properties.getProperty(name).trim());
+		}
+		return config;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return options by name
+	 */
+	public synchronized Map<String, String> getOptions() {
+		return Collections.unmodifiableMap(new TreeMap<String, String>(options));
+	}
+
+	/**
+	 * Sets an option and saves all of them.
+	 * @param name option name
+	 * @param value option value
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized void set(String name, String value) throws IOException {
+		options.put(name, value);
+		save();
+	}
+
+	private void save() throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(options);
+		try (OutputStream out = new FileOutputStream(filename)) {
+			properties.store(out, "engine options of jessy, see setoption");
+		}
+	}
+}
@@ -2,122 +2,505 @@ package com.github.jubalh.jessy;
 
 import com.fluxchess.flux.Flux;
 import com.fluxchess.jcpi.commands.*;
-import com.fluxchess.jcpi.models.GenericBoard;
 import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.options.AbstractOption;
 import com.fluxchess.jcpi.protocols.IProtocolHandler;
+import com.github.jubalh.jessy.metrics.Counter;
+import com.github.jubalh.jessy.metrics.Gauge;
+import com.github.jubalh.jessy.metrics.Histogram;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Exchanger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class EngineHandler implements IProtocolHandler {
+/**
+ *
+ * Session with the Flux engine.
+ * The engine thread is started once and kept for all games, so its
+ * transposition table stays warm. Each search sends only the position
+ * after the last capture or pawn move plus the moves since then.
+ * A watchdog stops searches which run past their time limit, and
+ * replaces the engine if it doesn't answer to that or its thread died.
+ * The searches it had fail then, so nobody waits forever.
+ * While the opponent thinks, the engine can ponder on the reply it
+ * expects; if that gets played the search just goes on.
+ * @author Michael Vetter
+ *
+ */
+public class EngineHandler {
 
-	// Launch Flux in a separate thread
-	private final Flux engine = new Flux(this);
-	private Thread thread = new Thread(engine);
-	private final BlockingQueue<IEngineCommand> commandQueue = new LinkedBlockingQueue<IEngineCommand>();
+	// commands waiting for the engine, of all engines together
+	private static final Gauge QUEUE_DEPTH = MetricsRegistry.getDefault().gauge("engine.queue");
+	// from sending a search until the best move arrives
+	private static final Histogram SEARCH_TIME = MetricsRegistry.getDefault().timer("engine.search");
+	private static final Counter CANCELLED_SEARCHES = MetricsRegistry.getDefault().counter("engine.search.cancelled");
+	private static final Counter LATE_SEARCHES = MetricsRegistry.getDefault().counter("engine.search.late");
+	private static final Counter MISSING_MOVES = MetricsRegistry.getDefault().counter("engine.search.nomove");
+	private static final Counter RESTARTS = MetricsRegistry.getDefault().counter("engine.restarts");
+	private static final Counter PONDER_HITS = MetricsRegistry.getDefault().counter("engine.ponder.hit");
+	private static final Counter PONDER_MISSES = MetricsRegistry.getDefault().counter("engine.ponder.miss");
 
-	// Save all player's moves in a list
-	private final Exchanger<GenericMove> bestMove = new Exchanger<GenericMove>();
+	// time a search may run past its budget before it gets stopped
+	public static final long DEADLINE_GRACE_MILLIS = 500;
+	// time the engine has to answer a stop before it gets replaced
+	public static final long STOP_GRACE_MILLIS = 1000;
+	private static final long WATCHDOG_INTERVAL_MILLIS = 100;
+	// time the engine has to tell its options after it got started
+	private static final long OPTIONS_TIMEOUT_MILLIS = 2000;
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
 
-	public void start() {
-		if (!thread.isAlive()) {
-			thread = new Thread(engine);
-			thread.start();
+	// one thread watches the engines of all handlers
+	private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "engine-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * One Flux engine with its thread and commands.
+	 * A session which got replaced ignores everything its engine still sends.
+	 */
+	private final class Session implements IProtocolHandler {
+		private final BlockingQueue<IEngineCommand> commandQueue = new LinkedBlockingQueue<IEngineCommand>();
+		// Launch Flux in a separate thread
+		private final Thread thread = new Thread(new Flux(this), "flux");
+		private volatile boolean replaced = false;
+
+		Session() {
+			thread.setDaemon(true);
 		}
 
-		commandQueue.clear();
-		commandQueue.add(new EngineInitializeRequestCommand());
+		void enqueue(IEngineCommand command) {
+			commandQueue.add(command);
+			QUEUE_DEPTH.increment();
+		}
 
-		newGame();
-	}
+		/**
+		 * Drops the commands still waiting and lets the engine quit
+		 * as soon as it asks for the next one.
+		 */
+		void replace() {
+			replaced = true;
+			while (commandQueue.poll() != null) {
+				QUEUE_DEPTH.decrement();
+			}
+			// counted like any other command, receive() takes it off the gauge again
+			enqueue(new EngineQuitCommand());
+			thread.interrupt();
+		}
 
-	public void stop() {
-		if (thread.isAlive()) {
-			commandQueue.add(new EngineQuitCommand());
+		public IEngineCommand receive() throws IOException {
+			IEngineCommand command = null;
 			try {
-				thread.join(3000);
+				command = this.commandQueue.take();
+				QUEUE_DEPTH.decrement();
 			} catch (InterruptedException e) {
+				// replaced or quitting, either way there is nothing more to do
+				command = new EngineQuitCommand();
+			}
+			return command;
+		}
+
+		public void send(ProtocolInitializeAnswerCommand command) {
+			List<EngineOption> advertised = new ArrayList<EngineOption>();
+			for (Iterator<AbstractOption> iterator = command.optionIterator(); iterator.hasNext();) {
+				advertised.add(EngineOption.of(iterator.next()));
+			}
+			// the same engine tells the same after a restart
+			engineOptions.complete(Collections.unmodifiableList(advertised));
+		}
+
+		public void send(ProtocolReadyAnswerCommand command) {
+		}
+
+		public void send(ProtocolBestMoveCommand command) {
+			if (!replaced) {
+				bestMove(this, command.bestMove);
+			}
+		}
+
+		public void send(ProtocolInformationCommand command) {
+			if (!replaced) {
+				information(command);
 			}
 		}
 	}
 
-	// If you create a new game, issue a new game command and reset your move list
-	public void newGame() {
-		commandQueue.add(new EngineNewGameCommand());
+	/**
+	 * A search sent to the engine, with what the engine told about it.
+	 */
+	private static final class Pending {
+		private final CompletableFuture<GenericMove> result = new CompletableFuture<GenericMove>();
+		private final SearchInfo info;
+		private final long limitMillis;
+		private volatile long startNanos;
+		private volatile long deadlineNanos = NO_DEADLINE;
+		// when the watchdog asked the engine to stop, 0 if it didn't
+		private volatile long stopNanos = 0;
+
+		/**
+		 * @param limitMillis time until the search gets stopped
+		 * @param ponder whether the time only starts with the ponder hit, there's no deadline before
+		 */
+		Pending(SearchInfo info, long limitMillis, boolean ponder) {
+			this.info = info;
+			this.limitMillis = limitMillis;
+			this.startNanos = System.nanoTime();
+			if (!ponder) {
+				startClock();
+			}
+		}
+
+		void startClock() {
+			startNanos = System.nanoTime();
+			deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(limitMillis);
+		}
 	}
 
-	// It's the engine's turn
-	public GenericMove compute(Game game, Board board) {
-		GenericMove move = null;
-		commandQueue.add(new EngineAnalyzeCommand(new GenericBoard(GenericBoard.STANDARDSETUP), game.getMoves()));
-		EngineStartCalculatingCommand startCommand = new EngineStartCalculatingCommand();
-		startCommand.setMoveTime(2000L);
-		commandQueue.add(startCommand);
+	private Session session = null;
+	private ScheduledFuture<?> watch = null;
+	// applied again to a new engine after a restart
+	private final Map<String, String> options = new LinkedHashMap<String, String>();
+	private final CompletableFuture<List<EngineOption>> engineOptions = new CompletableFuture<List<EngineOption>>();
+	// search on the opponent's time, with the reply it expects and the number of moves after it
+	private Pending pondering = null;
+	private GenericMove ponderReply = null;
+	private int ponderPly = 0;
 
-		try {
-			move = bestMove.exchange(null);
-			game.makeMove(move);
+	// one per search which got started, Flux answers them in order
+	private final Queue<Pending> pendingMoves = new ConcurrentLinkedQueue<Pending>();
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<SearchListener>();
 
-			//TODO: use only flux one day?
-			// flux engine move to jessy move
+	/**
+	 * Starts the engine thread unless it runs already.
+	 */
+	public synchronized void start() {
+		if (session == null || !session.thread.isAlive()) {
+			startSession("Engine restarted");
+		}
+		if (watch == null) {
+			watch = WATCHDOG.scheduleWithFixedDelay(this::watch, WATCHDOG_INTERVAL_MILLIS,
+					WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
 
-			game.setValidMove(board.moveFigure(move));
-			if (game.isMate()) {
-				//System.out.format("Checkmate!%n");//TODO: notify on checkmate
-			} else {
-				game.nextPlayer();
+	/**
+	 * Starts a new engine, replacing the one there is.
+	 * Searches still waiting for a move fail with reason.
+	 */
+	private void startSession(String reason) {
+		if (session != null) {
+			session.replace();
+		}
+		pondering = null;
+		Pending pending;
+		while ((pending = pendingMoves.poll()) != null) {
+			pending.info.finish(null, pending.result.isCancelled());
+			pending.result.completeExceptionally(new TimeoutException(reason));
+		}
+		session = new Session();
+		session.thread.start();
+		session.enqueue(new EngineInitializeRequestCommand());
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			session.enqueue(new EngineSetOptionCommand(option.getKey(), option.getValue()));
+		}
+		newGame();
+	}
+
+	/**
+	 * Quits the engine and waits for its thread to end.
+	 */
+	public void stop() {
+		Session quitting;
+		synchronized (this) {
+			if (watch != null) {
+				watch.cancel(false);
+				watch = null;
 			}
+			cancel();
+			quitting = session;
+			session = null;
+			if (quitting == null || !quitting.thread.isAlive()) {
+				return;
+			}
+			quitting.enqueue(new EngineQuitCommand());
+		}
+		// without the lock, the engine may still want to send its last move
+		try {
+			quitting.thread.join(3000);
 		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Thread.currentThread().interrupt();
 		}
-		return move;
 	}
 
+	/**
+	 * Gives up all searches which are still running.
+	 * Their replies get ignored when they arrive.
+	 */
+	public void cancel() {
+		// the running one tells the engine to stop, see search()
+		for (Pending pending : pendingMoves) {
+			pending.result.cancel(false);
+		}
+	}
 
+	/**
+	 * Makes the engine play the best move it found so far.
+	 * @return false if it isn't searching
+	 */
+	public synchronized boolean moveNow() {
+		Pending running = pendingMoves.peek();
+		if (running == null || running == pondering || running.result.isDone() || session == null) {
+			return false;
+		}
+		session.enqueue(new EngineStopCalculatingCommand());
+		return true;
+	}
 
-	public IEngineCommand receive() throws IOException {
-		IEngineCommand command = null;
+	// Only needed once per session, it would clear the transposition table
+	public synchronized void newGame() {
+		enqueue(new EngineNewGameCommand());
+	}
+
+	/**
+	 * Sets an engine option, it applies to all following searches.
+	 * Sent to the engine when it starts if it doesn't run yet.
+	 * @param name option name
+	 * @param value option value, null to press a button
+	 */
+	public synchronized void setOption(String name, String value) {
+		// a button only does something once, like clearing the hash table
+		if (value != null) {
+			options.put(name, value);
+		}
+		if (session != null) {
+			enqueue(new EngineSetOptionCommand(name, value));
+		}
+	}
+
+	/**
+	 * Options the engine told it has.
+	 * Starts the engine unless it runs already.
+	 * @return options, empty if the engine didn't tell
+	 */
+	public List<EngineOption> getEngineOptions() {
+		start();
 		try {
-			command = this.commandQueue.take();
+			return engineOptions.get(OPTIONS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
 		} catch (InterruptedException e) {
-			// We've got interrupted. Do something!
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// never completed exceptionally
+		} catch (TimeoutException e) {
+			// engine is busy or broken
 		}
+		return Collections.emptyList();
+	}
 
-		return command;
+	/**
+	 * Gets told about every search of this engine from now on.
+	 * @param listener listener
+	 */
+	public void addSearchListener(SearchListener listener) {
+		searchListeners.add(listener);
 	}
 
-	public void send(ProtocolInitializeAnswerCommand command) {
-		//System.out.format("Engine initialized: %s%n", command.name);//TODO
+	public void removeSearchListener(SearchListener listener) {
+		searchListeners.remove(listener);
 	}
 
-	public void send(ProtocolReadyAnswerCommand command) {
+	/**
+	 * It's the engine's turn.
+	 * Starts the search and returns immediately.
+	 * @param game game to search the current position of
+	 * @return future which completes with the best move
+	 */
+	public CompletableFuture<GenericMove> compute(Game game) {
+		CompletableFuture<GenericMove> pondered = takePonderHit(game);
+		if (pondered != null) {
+			return pondered;
+		}
+		return search(SearchRequest.of(game));
 	}
 
-	public void send(ProtocolBestMoveCommand command) {
-		if (command.bestMove != null) {
-			try {
-				bestMove.exchange(command.bestMove);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+	/**
+	 * Starts a search and returns immediately.
+	 * The future fails with a TimeoutException if the engine had to be
+	 * replaced, and with an IllegalStateException if it found no move.
+	 * Cancelling it stops the search.
+	 * @param request position and limits
+	 * @return future which completes with the best move
+	 */
+	public synchronized CompletableFuture<GenericMove> search(SearchRequest request) {
+		return start(request).result;
+	}
+
+	private Pending start(SearchRequest request) {
+		final Pending pending = new Pending(request.newSearchInfo(),
+				request.getBudgetMillis() + DEADLINE_GRACE_MILLIS, request.isPonder());
+		pendingMoves.add(pending);
+		enqueue(new EngineAnalyzeCommand(request.getRoot(), request.getMoves()));
+		enqueue(request.getStartCommand());
+		pending.result.whenComplete((move, failure) -> {
+			if (pending.result.isCancelled()) {
+				stopIfRunning(pending);
 			}
+		});
+		return pending;
+	}
+
+	/**
+	 * Starts to think on the opponent's time, about the position after
+	 * the reply the engine expects. Ends pondering there was before.
+	 * @param game game, with the opponent of the engine to move
+	 * @param expected reply the engine expects
+	 */
+	public synchronized void ponder(Game game, GenericMove expected) {
+		stopPondering();
+		pondering = start(SearchRequest.ponder(game, expected));
+		ponderReply = expected;
+		ponderPly = game.getMoves().size() + 1;
+	}
+
+	/**
+	 * Gives up pondering, the engine's reply to it gets ignored.
+	 */
+	public synchronized void stopPondering() {
+		if (pondering != null) {
+			pondering.result.cancel(false);
+			pondering = null;
+		}
+	}
+
+	/**
+	 * Turns pondering into the search for the engine's move,
+	 * if the opponent played the expected reply. Ends it otherwise.
+	 * @param game game, with the engine to move
+	 * @return future of the search, null if there was no ponder hit
+	 */
+	public synchronized CompletableFuture<GenericMove> takePonderHit(Game game) {
+		Pending pending = pondering;
+		if (pending == null) {
+			return null;
+		}
+		pondering = null;
+		List<GenericMove> moves = game.getMoves();
+		if (pending.result.isCancelled() || moves.size() != ponderPly || !moves.get(ponderPly - 1).equals(ponderReply)) {
+			PONDER_MISSES.increment();
+			pending.result.cancel(false);
+			return null;
+		}
+		PONDER_HITS.increment();
+		if (!pending.result.isDone()) {
+			// the time of the engine starts now
+			pending.startClock();
+			pending.info.ponderHit();
+			enqueue(new EnginePonderHitCommand());
+		}
+		return pending.result;
+	}
+
+	private synchronized void stopIfRunning(Pending pending) {
+		if (pendingMoves.peek() == pending && session != null) {
+			session.enqueue(new EngineStopCalculatingCommand());
+		}
+	}
+
+	private void enqueue(IEngineCommand command) {
+		if (session == null) {
+			throw new IllegalStateException("Engine is not started");
+		}
+		session.enqueue(command);
+	}
+
+	/**
+	 * Answers the oldest search, even if it got cancelled.
+	 */
+	private synchronized void bestMove(Session from, GenericMove bestMove) {
+		if (from != session) {
+			return;
+		}
+		Pending pending = pendingMoves.poll();
+		if (pending == null) {
+			return;
+		}
+		pending.info.finish(bestMove, pending.result.isCancelled());
+		SEARCH_TIME.recordSince(pending.startNanos);
+		if (pending.result.isCancelled()) {
+			CANCELLED_SEARCHES.increment();
+		}
+		for (SearchListener listener : searchListeners) {
+			listener.searchFinished(pending.info);
+		}
+		if (bestMove != null) {
+			pending.result.complete(bestMove);
 		} else {
-			// There is no best move. Do something!
+			MISSING_MOVES.increment();
+			pending.result.completeExceptionally(new IllegalStateException("Engine found no move"));
 		}
 	}
 
-	public void send(ProtocolInformationCommand command) {
-		// TODO: Maybe print the current pv here
+	private void information(ProtocolInformationCommand command) {
+		// the oldest search is the one running
+		Pending pending = pendingMoves.peek();
+		if (pending == null) {
+			return;
+		}
+		pending.info.update(command);
+		for (SearchListener listener : searchListeners) {
+			listener.searchUpdated(pending.info);
+		}
+	}
 
-		if (command.getMate() != null) {
-			// Flux has seen a mate
-			int mateDistance = command.getMate();
-			// TODO: Print mate distance
-		} else if (command.getCentipawns() != null) {
-			int value = command.getCentipawns();
-			// TODO: Print current evaluation. value == 0 means this situation is probably draw.
+	/**
+	 * Runs on the watchdog thread.
+	 * Stops searches past their deadline and replaces engines which
+	 * don't answer or died.
+	 */
+	private synchronized void watch() {
+		if (session == null) {
+			return;
+		}
+		if (!session.thread.isAlive()) {
+			restart("Engine thread died");
+			return;
+		}
+		Pending running = pendingMoves.peek();
+		if (running == null) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (running.stopNanos == 0 && now - running.deadlineNanos > 0 && running.deadlineNanos != NO_DEADLINE) {
+			LATE_SEARCHES.increment();
+			running.stopNanos = now;
+			session.enqueue(new EngineStopCalculatingCommand());
+		} else if (running.stopNanos != 0 && now - running.stopNanos > TimeUnit.MILLISECONDS.toNanos(STOP_GRACE_MILLIS)) {
+			restart("Engine didn't stop");
 		}
 	}
 
+	/**
+	 * Replaces the engine by a new one and fails all searches it had.
+	 */
+	private void restart(String reason) {
+		RESTARTS.increment();
+		startSession(reason);
+	}
 }
@@ -0,0 +1,174 @@
+package com.github.jubalh.jessy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.fluxchess.jcpi.options.AbstractOption;
+import com.fluxchess.jcpi.options.ButtonOption;
+import com.fluxchess.jcpi.options.CheckboxOption;
+import com.fluxchess.jcpi.options.ComboboxOption;
+import com.fluxchess.jcpi.options.SpinnerOption;
+import com.fluxchess.jcpi.options.StringOption;
+
+/**
+ *
+ * An option the engine told it has, like the size of its hash table.
+ * Knows which values the engine takes, so wrong ones get caught before
+ * they reach the engine, which would just ignore them.
+ * @author Michael Vetter
+ *
+ */
+public final class EngineOption {
+
+	/**
+	 * Kinds of options, named like in UCI.
+	 */
+	public enum Type {
+		BUTTON, CHECK, COMBO, SPIN, STRING
+	}
+
+	private final String name;
+	private final Type type;
+	private final String defaultValue;
+	private final int min;
+	private final int max;
+	private final List<String> choices;
+
+	private EngineOption(String name, Type type, String defaultValue, int min, int max, List<String> choices) {
+		this.name = name;
+		this.type = type;
+		this.defaultValue = defaultValue;
+		this.min = min;
+		this.max = max;
+		this.choices = choices;
+	}
+
+	/**
+	 * Takes over an option from the answer of the engine to the initialize request.
+	 * @param option option of the engine
+	 * @return option
+	 */
+	public static EngineOption of(AbstractOption option) {
+		List<String> none = Collections.emptyList();
+		if (option instanceof ButtonOption) {
+			return new EngineOption(option.name, Type.BUTTON, null, 0, 0, none);
+		}
+		if (option instanceof CheckboxOption) {
+			return new EngineOption(option.name, Type.CHECK,
+					Boolean.toString(((CheckboxOption) option).defaultValue), 0, 0, none);
+		}
+		if (option instanceof ComboboxOption) {
+			ComboboxOption combo = (ComboboxOption) option;
+			return new EngineOption(option.name, Type.COMBO, combo.defaultValue, 0, 0,
+					combo.varList == null ? none : Collections.unmodifiableList(Arrays.asList(combo.varList.clone())));
+		}
+		if (option instanceof SpinnerOption) {
+			SpinnerOption spinner = (SpinnerOption) option;
+			return new EngineOption(option.name, Type.SPIN, Integer.toString(spinner.defaultValue),
+					spinner.minValue, spinner.maxValue, none);
+		}
+		String defaultValue = option instanceof StringOption ? ((StringOption) option).defaultValue : null;
+		return new EngineOption(option.name, Type.STRING, defaultValue, 0, 0, none);
+	}
+
+	/**
+	 * Looks up an option by its name, ignoring case like UCI does.
+	 * @param options options the engine told
+	 * @param name name of the option
+	 * @return option, null if the engine has none of that name
+	 */
+	public static EngineOption find(List<EngineOption> options, String name) {
+		for (EngineOption option : options) {
+			if (option.getName().equalsIgnoreCase(name)) {
+				return option;
+			}
+		}
+		return null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return value the engine uses unless told otherwise, null for buttons
+	 */
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * Checks a value for the option.
+	 * @param value value, null for a button
+	 * @return value as the engine expects it
+	 * @throws IllegalArgumentException if the option doesn't take the value
+	 */
+	public String check(String value) {
+		if (type == Type.BUTTON) {
+			if (value != null) {
+				throw new IllegalArgumentException(name + " is a button and takes no value");
+			}
+			return null;
+		}
+		if (value == null) {
+			throw new IllegalArgumentException(name + " needs a value, " + describeValues());
+		}
+		switch (type) {
+		case CHECK:
+			if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+				throw new IllegalArgumentException(name + " is true or false");
+			}
+			return value.toLowerCase(Locale.ROOT);
+		case COMBO:
+			for (String choice : choices) {
+				if (choice.equalsIgnoreCase(value)) {
+					return choice;
+				}
+			}
+			throw new IllegalArgumentException(name + " is one of " + choices);
+		case SPIN:
+			int number;
+			try {
+				number = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(name + " is a number from " + min + " to " + max);
+			}
+			if (number < min || number > max) {
+				throw new IllegalArgumentException(name + " is a number from " + min + " to " + max);
+			}
+			return Integer.toString(number);
+		default:
+			return value;
+		}
+	}
+
+	private String describeValues() {
+		switch (type) {
+		case CHECK:
+			return "true or false";
+		case COMBO:
+			return "one of " + choices;
+		case SPIN:
+			return min + " to " + max;
+		default:
+			return "any text";
+		}
+	}
+
+	/**
+	 * @return description like "Hash (spin, 1 to 256, default 16)"
+	 */
+	@Override
+	public String toString() {
+		if (type == Type.BUTTON) {
+			return name + " (button)";
+		}
+		return name + " (" + type.name().toLowerCase(Locale.ROOT) + ", " + describeValues() + ", default " + defaultValue + ")";
+	}
+}
@@ -0,0 +1,243 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.metrics.Gauge;
+import com.github.jubalh.jessy.metrics.Histogram;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+
+/**
+ *
+ * A fixed number of Flux engines serving searches of any number of games.
+ * Requests wait in a queue until an engine is free. Each engine has a worker
+ * thread which hands it one request at a time.
+ * @author Michael Vetter
+ *
+ */
+public class EnginePool {
+
+	// searches waiting for an engine, of all pools together
+	private static final Gauge QUEUE_LENGTH = MetricsRegistry.getDefault().gauge("pool.queue");
+	private static final Histogram QUEUE_TIME = MetricsRegistry.getDefault().timer("pool.wait");
+
+	/**
+	 * A search waiting for or running on an engine.
+	 */
+	private static final class Task {
+		private final SearchRequest request;
+		private final CompletableFuture<GenericMove> result = new CompletableFuture<GenericMove>();
+		private final long queuedNanos = System.nanoTime();
+
+		Task(SearchRequest request) {
+			this.request = request;
+		}
+	}
+
+	/**
+	 * Feeds one engine with tasks.
+	 */
+	private final class Worker implements Runnable {
+		private final EngineHandler engineHandler = new EngineHandler();
+		// task the engine searches, null while waiting for one
+		private volatile Task current = null;
+
+		public void run() {
+			engineHandler.addSearchListener(forwarder);
+			engineHandler.start();
+			for (Map.Entry<String, String> option : options.entrySet()) {
+				engineHandler.setOption(option.getKey(), option.getValue());
+			}
+			while (running) {
+				final Task task;
+				try {
+					task = tasks.take();
+				} catch (InterruptedException e) {
+					break;
+				}
+				QUEUE_LENGTH.decrement();
+				QUEUE_TIME.recordSince(task.queuedNanos);
+				// cancelled while waiting in the queue
+				if (task.result.isDone()) {
+					continue;
+				}
+
+				current = task;
+				CompletableFuture<GenericMove> search = engineHandler.search(task.request);
+				task.result.whenComplete((move, failure) -> {
+					if (task.result.isCancelled()) {
+						engineHandler.cancel();
+					}
+				});
+				try {
+					task.result.complete(search.get());
+				} catch (CancellationException e) {
+					// task got cancelled, nothing to complete
+				} catch (ExecutionException e) {
+					task.result.completeExceptionally(e.getCause());
+				} catch (InterruptedException e) {
+					task.result.cancel(false);
+					break;
+				} finally {
+					current = null;
+				}
+			}
+			engineHandler.stop();
+		}
+	}
+
+	private final BlockingQueue<Task> tasks = new LinkedBlockingQueue<Task>();
+	private final List<Thread> threads = new ArrayList<Thread>();
+	private final List<Worker> workers = new ArrayList<Worker>();
+	private final Map<String, String> options;
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<SearchListener>();
+	// passes what the engines tell on to the listeners of the pool
+	private final SearchListener forwarder = new SearchListener() {
+		public void searchUpdated(SearchInfo info) {
+			for (SearchListener listener : searchListeners) {
+				listener.searchUpdated(info);
+			}
+		}
+
+		public void searchFinished(SearchInfo info) {
+			for (SearchListener listener : searchListeners) {
+				listener.searchFinished(info);
+			}
+		}
+	};
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor using one engine per core.
+	 */
+	public EnginePool() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor
+	 * @param size number of engines
+	 */
+	public EnginePool(int size) {
+		this(size, Collections.<String, String>emptyMap());
+	}
+
+	/**
+	 * Constructor
+	 * @param size number of engines
+	 * @param options engine options every engine gets set to
+	 */
+	public EnginePool(int size, Map<String, String> options) {
+		this.options = new LinkedHashMap<String, String>(options);
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool needs at least one engine");
+		}
+		for (int i = 0; i < size; i++) {
+			Worker worker = new Worker();
+			workers.add(worker);
+			Thread thread = new Thread(worker, "engine-pool-" + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Searches the current position of a game.
+	 * @param game game to search the current position of
+	 * @return future which completes with the best move
+	 */
+	public CompletableFuture<GenericMove> compute(Game game) {
+		return search(SearchRequest.of(game));
+	}
+
+	/**
+	 * Queues a search.
+	 * Cancelling the future stops the search or takes it out of the queue.
+	 * @param request position and limits
+	 * @return future which completes with the best move
+	 */
+	public CompletableFuture<GenericMove> search(SearchRequest request) {
+		if (!running) {
+			throw new IllegalStateException("Engine pool is shut down");
+		}
+		Task task = new Task(request);
+		tasks.add(task);
+		QUEUE_LENGTH.increment();
+		return task.result;
+	}
+
+	/**
+	 * Makes the engine searching for a future play the best move it found so far.
+	 * @param result future returned by search()
+	 * @return false if no engine searches for it, like while it waits in the queue
+	 */
+	public boolean moveNow(CompletableFuture<GenericMove> result) {
+		for (Worker worker : workers) {
+			Task task = worker.current;
+			if (task != null && task.result == result) {
+				return worker.engineHandler.moveNow();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets told about the searches of all engines of the pool.
+	 * @param listener listener
+	 */
+	public void addSearchListener(SearchListener listener) {
+		searchListeners.add(listener);
+	}
+
+	public void removeSearchListener(SearchListener listener) {
+		searchListeners.remove(listener);
+	}
+
+	/**
+	 * @return number of engines
+	 */
+	public int getSize() {
+		return threads.size();
+	}
+
+	/**
+	 * @return number of searches waiting for an engine
+	 */
+	public int getQueueLength() {
+		return tasks.size();
+	}
+
+	/**
+	 * Cancels all waiting searches and quits the engines.
+	 */
+	public void shutdown() {
+		running = false;
+		Task task;
+		while ((task = tasks.poll()) != null) {
+			QUEUE_LENGTH.decrement();
+			task.result.cancel(false);
+		}
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join(3000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
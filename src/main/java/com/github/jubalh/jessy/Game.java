@@ -1,22 +1,75 @@
 package com.github.jubalh.jessy;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import com.fluxchess.jcpi.models.GenericBoard;
 import com.fluxchess.jcpi.models.GenericMove;
 import com.fluxchess.jcpi.models.GenericRank;
 import com.fluxchess.jcpi.models.GenericChessman;
-import com.fluxchess.jcpi.utils.MoveGenerator;
-import com.fluxchess.flux.board.Hex88Board;
-import com.fluxchess.flux.move.IntMove;
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.book.OpeningBook;
+import com.github.jubalh.jessy.jfr.BoardUpdateEvent;
+import com.github.jubalh.jessy.jfr.EngineEvent;
+import com.github.jubalh.jessy.jfr.ProcessEvent;
+import com.github.jubalh.jessy.jfr.ValidationEvent;
+import com.github.jubalh.jessy.metrics.Histogram;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+import com.github.jubalh.jessy.tablebase.Tablebases;
 import com.github.jubalh.jessy.pieces.*;
 
 public class Game extends Observable {
 
-	private EngineHandler engineHandler = null;
+	private static final Histogram PROCESS_TIME = MetricsRegistry.getDefault().timer("game.process");
+	private static final Histogram VALIDATION_TIME = MetricsRegistry.getDefault().timer("game.validate");
+	private static final Histogram MATE_CHECK_TIME = MetricsRegistry.getDefault().timer("game.mateCheck");
+
+	// one engine session for all games, unless the game uses a pool
+	private final EngineHandler engineHandler;
+	private final EnginePool enginePool;
+	// several engines searching the moves of the engine, null for just engineHandler
+	private volatile RootSplitSearch rootSplitSearch = null;
+	private final SearchListener engineListener;
+	// added by others, kept to be added to engines which get started later
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<SearchListener>();
+	// set on every engine, the ones to come as well
+	private final Map<String, String> engineOptions = new LinkedHashMap<String, String>();
+	// written under the lock of the game, read by moveNow() without it
+	private volatile CompletableFuture<GenericMove> pendingEngineMove = null;
+	// where pendingEngineMove comes from, if it is the answer to a speculation
+	private volatile Speculator.Speculation pendingSpeculation = null;
+	private volatile OpeningBook openingBook = null;
+	private volatile Tablebases tablebases = null;
+	private volatile SearchInfo lastSearch = null;
+	// think on the user's time about the reply the engine expects
+	private volatile boolean pondering = true;
+	// answers to the likeliest replies, searched on the user's time
+	private volatile Speculator speculator = null;
 	private final List<GenericMove> moves = new ArrayList<GenericMove>();
+	// games started so far, replies asked for in an earlier one get dropped
+	private int games = 0;
+	// position after the last capture or pawn move, null for the start position
+	private String startFen = Board.STANDARD_FEN;
+	private String irreversibleFen = null;
+	private int irreversibleIndex = 0;
+	// legal moves of the current ply, only valid if legalMovesValid is set
+	private final LegalMoves legalMoves = new LegalMoves();
+	private boolean legalMovesValid = false;
+	private final int[] scratchMoves = new int[MoveGenerator.MAX_MOVES];
+	// survives init(), so positions of earlier games are known as well,
+	// the best moves get forgotten when the engine's settings change
+	private final PositionCache positionCache = new PositionCache();
+	private volatile TimeControl timeControl = TimeControl.DEFAULT;
+	// set by setTimeControl(), the clock and the engine get it with the next game
+	private volatile TimeControl nextTimeControl = timeControl;
+	private final Clock clock = new Clock(timeControl);
 	private int castlingInt = 0;
 	private Board board;
 	private boolean running;
@@ -30,23 +83,89 @@ public class Game extends Observable {
 	 */
 	public Game(Board board) {
 		this.board = board;
+		this.engineHandler = new EngineHandler();
+		this.enginePool = null;
+		// keeps what the engine is thinking, the observers get told under the
+		// lock of the game only, others listen to the searches themselves
+		this.engineListener = new SearchListener() {
+			public void searchUpdated(SearchInfo info) {
+				// pondering is about a position which may never come
+				if (info.isPondering()) {
+					return;
+				}
+				lastSearch = info;
+			}
+
+			public void searchFinished(SearchInfo info) {
+				if (info.isPondering()) {
+					return;
+				}
+				lastSearch = info;
+			}
+		};
+		this.engineHandler.addSearchListener(engineListener);
+	}
+
+	/**
+	 * Constructor for games sharing the engines of a pool.
+	 * @param board to use
+	 * @param enginePool pool to search with
+	 */
+	public Game(Board board, EnginePool enginePool) {
+		this.board = board;
+		this.engineHandler = null;
+		this.enginePool = enginePool;
+		this.engineListener = null;
 	}
 
-	public void init() {
+	/**
+	 * Starts a new game from the standard position.
+	 * Synchronized, so no reply of the engine gets played into the new game.
+	 */
+	public synchronized void init() {
 		board.reset();
 		board.init();
+		startFen = Board.STANDARD_FEN;
+		initState();
+	}
+
+	/**
+	 * Starts from a position other than the standard one.
+	 * @param fen position to start from
+	 * @throws IllegalNotationException if fen can't be read
+	 */
+	public synchronized void init(String fen) throws IllegalNotationException {
+		board.setFen(fen);
+		startFen = board.toFen();
+		initState();
+	}
 
+	private void initState() {
+		// the engine may still think about the last game
+		cancelEngineMove();
+		games++;
 		moves.clear();
-		castlingInt = getHexBoard().castling;
+		legalMovesValid = false;
+		castlingInt = board.getCastling();
+		irreversibleFen = null;
+		irreversibleIndex = 0;
 
-		engineHandler = new EngineHandler();
-		engineHandler.start();
-		engineHandler.newGame();
+		// only starts the engine the first time
+		if (engineHandler != null) {
+			engineHandler.start();
+		}
 
 		this.running = false;
 		this.moveWasValid = false;
 		this.isComputerGame = false;
-		this.currentPlayer = Color.WHITE;
+		this.currentPlayer = board.getSideToMove();
+
+		if (nextTimeControl != timeControl) {
+			timeControl = nextTimeControl;
+			positionCache.clearBestMoves();
+		}
+		clock.reset(timeControl);
+		clock.start(currentPlayer);
 	}
 
 	/**
@@ -58,13 +177,51 @@ public class Game extends Observable {
 	}
 
 	/**
-	 * Sets game status
+	 * Sets game status.
+	 * Synchronized, so a stop also cancels a move of the engine
+	 * which got requested at the same time.
 	 * @param status
 	 */
-	public void setRunning(boolean status) {
+	public synchronized void setRunning(boolean status) {
 		this.running = status;
-		if(status == false && engineHandler != null) {
-			engineHandler.stop();//TODO: rather in destructor?
+		if (status == false) {
+			clock.stop();
+		}
+		if (status == false) {
+			cancelEngineMove();
+		}
+	}
+
+	/**
+	 * Gives up the move the engine is searching, the pondering and the speculations.
+	 * Called under the lock of the game.
+	 */
+	private void cancelEngineMove() {
+		if (pendingEngineMove != null) {
+			pendingEngineMove.cancel(false);
+			pendingEngineMove = null;
+		}
+		pendingSpeculation = null;
+		if (engineHandler != null) {
+			engineHandler.stopPondering();
+			engineHandler.cancel();
+		}
+		Speculator current = speculator;
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
+	/**
+	 * Ends the engine session.
+	 * To be called when jessy quits.
+	 */
+	public void shutdown() {
+		setRunning(false);
+		setSpeculation(0);
+		setSearchEngines(1);
+		if (engineHandler != null) {
+			engineHandler.stop();
 		}
 	}
 
@@ -135,14 +292,44 @@ public class Game extends Observable {
 		return board;
 	}
 
-	public void statusUpdate(String message) {
+	/**
+	 * Copies the current position, without moves of the engine
+	 * being played into it meanwhile.
+	 * @return copy of the board
+	 */
+	public synchronized Board copyBoard() {
+		return new Board(board);
+	}
+
+	/**
+	 * Tells the observers about a message.
+	 * Synchronized like the other notifications, otherwise two threads
+	 * setting the changed flag at once would lose one of them.
+	 * @param message message for the user
+	 */
+	public synchronized void statusUpdate(String message) {
 		GameNotification notification = new GameNotification(message);
 		setChanged();
 		notifyObservers(notification);
 	}
 
-	public void process(GenericMove move) {
+	public synchronized void process(GenericMove move) {
+		ProcessEvent event = new ProcessEvent();
+		event.begin();
+		long start = System.nanoTime();
+		int ply = moves.size();
+		processMove(move);
+		PROCESS_TIME.recordSince(start);
+		if (event.shouldCommit()) {
+			event.setMove(move, ply);
+			event.commit();
+		}
+	}
 
+	private void processMove(GenericMove move) {
+		if (isTimeUp()) {
+			return;
+		}
 		try {
 			Figure figureToMove = board.getFigure(move.from);
 			if (figureToMove == null) {
@@ -160,26 +347,20 @@ public class Game extends Observable {
 						 * right now it defaults to a queen
 						 */
 						// System.out.println("What piece would you like to promote to?");
-						board.moveFigure(move);
-						if (genMove.promotion != null) {
-							board.setFigure(move.to, new Queen(getCurrentPlayer()));
-						}
+						// the board takes care of castling, en passant and promotion
 						this.makeMove(genMove);
 						if (this.isMate()) {
-							statusUpdate("Checkmate!\n");
+							if (board.isCheck()) {
+								statusUpdate("Checkmate!\n");
+							} else {
+								statusUpdate("Stalemate!\n");
+							}
 							return;
 						} else {
-							if ( this.isCastle() ) {
-								board.moveCastlingRook();
-							}
-
 							this.nextPlayer();
 							if (this.isComputerGame()) {
-								/*TODO: this should be done in a gameloop.
-								 * for sure after drawing the board so the user sees his last move first.
-								 * best would be in another thread so jessy doesnt freeze. 
-								 */
-								engineHandler.compute(this, board);
+								// runs in the background, the user sees his move right away
+								requestEngineMove();
 							}
 						}
 					} else {
@@ -199,54 +380,628 @@ public class Game extends Observable {
 		}
 	}
 
-	private Hex88Board getHexBoard() {
-		Hex88Board hex88Board = new Hex88Board(new GenericBoard(GenericBoard.STANDARDSETUP));
-		for (GenericMove genericMove : moves) {
-			int move = IntMove.convertMove(genericMove, hex88Board);
-			hex88Board.makeMove(move);
+	/**
+	 * Checks whether the player to move ran out of time.
+	 * Ends the game if so.
+	 * @return true if time is up
+	 */
+	private boolean isTimeUp() {
+		if (!clock.isExpired(currentPlayer)) {
+			return false;
+		}
+		setValidMove(false);
+		statusUpdate((currentPlayer == Color.WHITE ? "White" : "Black") + " lost on time\n");
+		setRunning(false);
+		return true;
+	}
+
+	/**
+	 * Returns the time control of the running game,
+	 * used for the engine and the clock.
+	 * @return time control
+	 */
+	public TimeControl getTimeControl() {
+		return timeControl;
+	}
+
+	/**
+	 * @return time control the next game gets played with
+	 */
+	public TimeControl getNextTimeControl() {
+		return nextTimeControl;
+	}
+
+	/**
+	 * Sets the time control of the next game.
+	 * The running game keeps its own, otherwise the engine would
+	 * get limits which don't fit the clock.
+	 * @param timeControl time control
+	 */
+	public void setTimeControl(TimeControl timeControl) {
+		this.nextTimeControl = timeControl;
+	}
+
+	public OpeningBook getOpeningBook() {
+		return openingBook;
+	}
+
+	/**
+	 * Sets the book which gets asked before the engine.
+	 * @param openingBook book or null for none
+	 */
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+
+	/**
+	 * Gets told about the searches of the engine, or of all engines of the pool.
+	 * @param listener listener
+	 */
+	public void addSearchListener(SearchListener listener) {
+		if (enginePool != null) {
+			enginePool.addSearchListener(listener);
+		} else if (engineHandler != null) {
+			engineHandler.addSearchListener(listener);
+			searchListeners.add(listener);
+			RootSplitSearch split = rootSplitSearch;
+			if (split != null) {
+				split.addSearchListener(listener);
+			}
+		}
+	}
+
+	public void removeSearchListener(SearchListener listener) {
+		if (enginePool != null) {
+			enginePool.removeSearchListener(listener);
+		} else if (engineHandler != null) {
+			engineHandler.removeSearchListener(listener);
+			searchListeners.remove(listener);
+			RootSplitSearch split = rootSplitSearch;
+			if (split != null) {
+				split.removeSearchListener(listener);
+			}
 		}
-		return hex88Board;
 	}
 
-	private GenericBoard getCurrentBoard() {
-		Hex88Board hex88Board = getHexBoard();
+	/**
+	 * @return number of engines searching the moves of the engine
+	 */
+	public int getSearchEngines() {
+		RootSplitSearch split = rootSplitSearch;
+		return split == null ? 1 : split.getSize();
+	}
 
-		return hex88Board.getBoard();
+	/**
+	 * Sets how many engines search the moves of the engine,
+	 * each one its share of the moves.
+	 * @param engines number of engines, 1 for the usual single one,
+	 * at most RootSplitSearch.MAX_SIZE
+	 */
+	public synchronized void setSearchEngines(int engines) {
+		if (engineHandler == null) {
+			return;
+		}
+		engines = Math.min(engines, RootSplitSearch.MAX_SIZE);
+		positionCache.clearBestMoves();
+		if (rootSplitSearch != null) {
+			rootSplitSearch.stop();
+			rootSplitSearch = null;
+		}
+		if (engines > 1) {
+			RootSplitSearch split = new RootSplitSearch(engines);
+			for (Map.Entry<String, String> option : engineOptions.entrySet()) {
+				split.setOption(option.getKey(), option.getValue());
+			}
+			split.addSearchListener(engineListener);
+			for (SearchListener listener : searchListeners) {
+				split.addSearchListener(listener);
+			}
+			rootSplitSearch = split;
+		}
 	}
 
-	private boolean isValid(GenericBoard board, GenericMove move) {
-		for (GenericMove validMove : MoveGenerator.getGenericMoves(board)) {
-			if (move.equals(validMove)) {
-				return true;
+	/**
+	 * Sets an option of all engines, like the size of the hash tables.
+	 * @param name option name
+	 * @param value option value, null to press a button
+	 */
+	public synchronized void setEngineOption(String name, String value) {
+		if (engineHandler == null) {
+			return;
+		}
+		engineHandler.setOption(name, value);
+		positionCache.clearBestMoves();
+		if (rootSplitSearch != null) {
+			rootSplitSearch.setOption(name, value);
+		}
+		// buttons are for the engines which run, the speculative ones start over anyway
+		if (value != null) {
+			engineOptions.put(name, value);
+			if (speculator != null) {
+				speculator.setOption(name, value);
 			}
 		}
+	}
 
-		return false;
+	/**
+	 * @return options set with setEngineOption
+	 */
+	public synchronized Map<String, String> getEngineOptionValues() {
+		return new LinkedHashMap<String, String>(engineOptions);
+	}
+
+	/**
+	 * @return options the engine has, empty if it didn't tell
+	 */
+	public List<EngineOption> getEngineOptions() {
+		if (engineHandler == null) {
+			return Collections.emptyList();
+		}
+		return engineHandler.getEngineOptions();
+	}
+
+	public boolean isPondering() {
+		return pondering;
+	}
+
+	/**
+	 * Sets whether the engine thinks on the user's time.
+	 * @param pondering true to ponder
+	 */
+	public void setPondering(boolean pondering) {
+		this.pondering = pondering;
+		if (!pondering && engineHandler != null) {
+			engineHandler.stopPondering();
+		}
+	}
+
+	/**
+	 * @return number of replies the engine's answers get searched to in advance, 0 for none
+	 */
+	public int getSpeculation() {
+		Speculator current = speculator;
+		return current == null ? 0 : current.getCandidates();
+	}
+
+	/**
+	 * Sets how many of the likeliest replies of the user get the engine's
+	 * answer searched in advance, each on an engine of its own.
+	 * @param candidates number of replies, 0 for none, at most Speculator.MAX_CANDIDATES
+	 */
+	public synchronized void setSpeculation(int candidates) {
+		candidates = Math.min(candidates, Speculator.MAX_CANDIDATES);
+		if (speculator != null) {
+			speculator.shutdown();
+			speculator = null;
+		}
+		if (candidates > 0) {
+			speculator = new Speculator(candidates, engineOptions);
+		}
+	}
+
+	/**
+	 * @return running or last search of the engine, null if there was none
+	 */
+	public SearchInfo getLastSearch() {
+		return lastSearch;
+	}
+
+	public Tablebases getTablebases() {
+		return tablebases;
+	}
+
+	/**
+	 * Sets the tablebases which get asked before the engine,
+	 * once few enough pieces are left.
+	 * @param tablebases tablebases or null for none
+	 */
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
 	}
 
-	public boolean isValidMove(GenericMove move) {
-		return isValid(getCurrentBoard(), move);
+	/**
+	 * Returns the clock of the running game.
+	 * @return clock
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Asks the book, the tablebases or else the engine for its move.
+	 * The reply gets played when it arrives.
+	 */
+	private void requestEngineMove() {
+		final int game = games;
+		final int ply = moves.size();
+		final Speculator.Speculation speculation = speculator == null ? null : speculator.take(board.getZobristKey(), ply);
+		final EngineEvent event = new EngineEvent();
+		event.begin();
+		String source = "book";
+		int knownMove = openingBook == null ? Move.NONE : openingBook.probe(board);
+		if (knownMove == Move.NONE && tablebases != null) {
+			source = "tablebase";
+			knownMove = tablebases.bestMove(board);
+		}
+		GenericMove known = knownMove == Move.NONE ? null : Move.toGenericMove(knownMove);
+		if (known == null && !board.isRepetition()) {
+			// position was searched before at least as deep, no need to do it again,
+			// unless the same move would repeat the game
+			source = "known";
+			known = getKnownBestMove(getSearchDepth());
+		}
+		if (known != null) {
+			if (engineHandler != null) {
+				engineHandler.stopPondering();
+			}
+			if (speculation != null) {
+				speculation.getResult().cancel(false);
+			}
+			pendingEngineMove = CompletableFuture.completedFuture(known);
+		} else if (speculation != null) {
+			source = "speculation";
+			if (engineHandler != null) {
+				engineHandler.stopPondering();
+			}
+			pendingSpeculation = speculation;
+			pendingEngineMove = speculation.getResult();
+		} else if (enginePool != null) {
+			source = "engine";
+			pendingEngineMove = enginePool.compute(this);
+		} else {
+			source = "engine";
+			pendingEngineMove = engineHandler.takePonderHit(this);
+			RootSplitSearch split = rootSplitSearch;
+			if (pendingEngineMove == null) {
+				pendingEngineMove = split != null ? split.compute(this) : engineHandler.compute(this);
+			}
+		}
+		event.source = source;
+		final boolean speculated = "speculation".equals(source);
+		// only moves of a search get remembered, with the depth they got searched to
+		final boolean searched = speculated || "engine".equals(source);
+		pendingEngineMove.whenCompleteAsync((move, failure) -> {
+			if (speculated && speculation.getInfo() != null) {
+				lastSearch = speculation.getInfo();
+			}
+			if (failure == null) {
+				applyEngineMove(move, searched, game, ply);
+			} else {
+				Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+				if (!(cause instanceof CancellationException)) {
+					applyFallbackMove(cause, game, ply);
+				}
+			}
+			if (event.shouldCommit()) {
+				event.setMove(move, ply);
+				event.commit();
+			}
+		});
+	}
+
+	/**
+	 * Makes the engine play the best move it found so far.
+	 * @return false if the engine isn't thinking
+	 */
+	public boolean moveNow() {
+		CompletableFuture<GenericMove> pending = pendingEngineMove;
+		if (pending == null || pending.isDone()) {
+			return false;
+		}
+		// searched on an engine of the speculator, not on the one of the game
+		Speculator.Speculation speculation = pendingSpeculation;
+		if (speculation != null && speculation.getResult() == pending) {
+			return speculation.moveNow();
+		}
+		if (engineHandler == null) {
+			// the pool has no way to reach the one engine searching
+			return false;
+		}
+		RootSplitSearch split = rootSplitSearch;
+		return engineHandler.moveNow() || (split != null && split.moveNow());
+	}
+
+	/**
+	 * Plays the move of the engine and tells the observers about it.
+	 * Replies to a position which is gone already get dropped.
+	 * @param move best move of the engine
+	 * @param searched whether the move comes from a search, not from the book, tablebases or cache
+	 * @param game number of the game the engine was asked in
+	 * @param ply number of moves played when the engine was asked
+	 */
+	private synchronized void applyEngineMove(GenericMove move, boolean searched, int game, int ply) {
+		if (!isRunning() || games != game || moves.size() != ply) {
+			return;
+		}
+		SearchInfo search = lastSearch;
+		if (searched && search != null && move.equals(search.getBestMove()) && board.toFen().equals(search.getFen())) {
+			setKnownBestMove(move, search.getDepth());
+		}
+		if (!playReply(move, "")) {
+			return;
+		}
+		// the user thinks now, the engine gets busy with the likely replies
+		GenericMove expected = getExpectedReply(move);
+		boolean pondered = expected != null && pondering && engineHandler != null;
+		if (pondered) {
+			engineHandler.ponder(this, expected);
+		}
+		Speculator current = speculator;
+		if (current != null) {
+			current.speculate(this, expected, pondered);
+		}
+	}
+
+	/**
+	 * The reply the engine expects after its move,
+	 * the second move of its main line.
+	 * @param move move the engine just played
+	 * @return reply or null if there is none
+	 */
+	private GenericMove getExpectedReply(GenericMove move) {
+		SearchInfo search = lastSearch;
+		if (search == null) {
+			return null;
+		}
+		List<GenericMove> pv = search.getPv();
+		// the move may be a known one, with the search of another position
+		if (pv.size() < 2 || !pv.get(0).equals(move) || !isValid(Move.valueOf(pv.get(1)))) {
+			return null;
+		}
+		return pv.get(1);
+	}
+
+	/**
+	 * The engine failed, so the game goes on with the best move it
+	 * reported so far, or with any legal move.
+	 * @param failure why the engine has no move
+	 * @param game number of the game the engine was asked in
+	 * @param ply number of moves played when the engine was asked
+	 */
+	private synchronized void applyFallbackMove(Throwable failure, int game, int ply) {
+		if (!isRunning() || games != game || moves.size() != ply) {
+			return;
+		}
+		GenericMove move = null;
+		SearchInfo search = lastSearch;
+		// a move searched before, even if not as deep, is still better than any
+		GenericMove known = getKnownBestMove(0);
+		if (search != null && !search.getPv().isEmpty() && isValid(Move.valueOf(search.getPv().get(0)))) {
+			move = search.getPv().get(0);
+		} else if (known != null && isValid(Move.valueOf(known))) {
+			move = known;
+		} else if (!getLegalMoves().isEmpty()) {
+			move = Move.toGenericMove(getLegalMoves().get(0));
+		}
+		if (move == null) {
+			return;
+		}
+		playReply(move, "Engine failed (" + failure.getMessage() + "), playing " + move + "\n");
+	}
+
+	/**
+	 * Plays the reply of the engine, ending the game on mate.
+	 * Called under the lock of the game.
+	 * @return false if the game is over
+	 */
+	private boolean playReply(GenericMove move, String message) {
+		if (isTimeUp()) {
+			setChanged();
+			notifyObservers(new MoveNotification(null, ""));
+			return false;
+		}
+		// also updates the board
+		makeMove(move);
+		setValidMove(true);
+
+		boolean mate = isMate();
+		if (mate) {
+			message += board.isCheck() ? "Checkmate!\n" : "Stalemate!\n";
+			// right away, the next input of the user is no move anymore
+			setRunning(false);
+		} else {
+			nextPlayer();
+		}
+		setChanged();
+		notifyObservers(new MoveNotification(move, message));
+		return !mate && isRunning();
+	}
+
+	/**
+	 * Returns the legal moves of the current position.
+	 * They get generated once per ply and cached until the next move is made or undone.
+	 * @return legal moves
+	 */
+	private LegalMoves getLegalMoves() {
+		if (!legalMovesValid) {
+			getPositionEntry();
+		}
+		return legalMoves;
+	}
+
+	/**
+	 * Returns what is known about the current position.
+	 * Unknown positions get analyzed and put into the cache.
+	 * Also makes the legal moves of the current ply valid.
+	 * @return cache entry of current position
+	 */
+	private PositionCache.Entry getPositionEntry() {
+		PositionCache.Entry entry = positionCache.get(board.getZobristKey());
+		if (entry == null) {
+			legalMoves.update(board);
+			PositionCache.Status status;
+			if (legalMoves.isEmpty()) {
+				status = board.isCheck() ? PositionCache.Status.CHECKMATE : PositionCache.Status.STALEMATE;
+			} else {
+				status = board.isCheck() ? PositionCache.Status.CHECK : PositionCache.Status.NORMAL;
+			}
+			entry = positionCache.put(board.getZobristKey(), legalMoves, status);
+		} else if (!legalMovesValid) {
+			legalMoves.set(entry.getLegalMoves());
+		}
+		legalMovesValid = true;
+		return entry;
+	}
+
+	private boolean isValid(int move) {
+		return getLegalMoves().contains(move);
+	}
+
+	public synchronized boolean isValidMove(GenericMove move) {
+		ValidationEvent event = new ValidationEvent();
+		event.begin();
+		long start = System.nanoTime();
+		boolean valid = isValid(Move.valueOf(move));
+		VALIDATION_TIME.recordSince(start);
+		if (event.shouldCommit()) {
+			event.setMove(move, moves.size());
+			event.valid = valid;
+			event.commit();
+		}
+		return valid;
 	}
 
-	public void makeMove(GenericMove move) {
-		if (isValidMove(move)) {
+	/**
+	 * Plays a move on the board.
+	 * @param move legal move
+	 * @throws IllegalArgumentException if move is not legal
+	 */
+	public synchronized void makeMove(GenericMove move) {
+		int intMove = Move.valueOf(move);
+		if (isValid(intMove)) {
+			BoardUpdateEvent event = new BoardUpdateEvent();
+			event.begin();
+			// before the move, afterwards the board doesn't tell anymore
+			String special = event.isEnabled() ? specialMove(intMove) : null;
+			board.makeMove(intMove);
+			if (event.shouldCommit()) {
+				event.setMove(move, moves.size());
+				event.special = special;
+				event.commit();
+			}
+			clock.press();
 			moves.add(move);
+			if (board.getHalfMoveClock() == 0) {
+				irreversibleFen = board.toFen();
+				irreversibleIndex = moves.size();
+			}
+			legalMovesValid = false;
 		} else {
 			throw new IllegalArgumentException();
 		}
 	}
 
-	public void undoMove() {
+	/**
+	 * @return "castling", "en passant", "promotion" or "" for other moves
+	 */
+	private String specialMove(int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int type = Piece.type(board.getPiece(from));
+		if (Move.promotion(move) != 0) {
+			return "promotion";
+		}
+		if (type == Piece.KING && Math.abs(Square.file(from) - Square.file(to)) == 2) {
+			return "castling";
+		}
+		if (type == Piece.PAWN && Square.file(from) != Square.file(to) && board.getPiece(to) == Piece.NONE) {
+			return "en passant";
+		}
+		return "";
+	}
+
+	public synchronized void undoMove() {
 		moves.remove(moves.size() - 1);
+		if (moves.size() < irreversibleIndex) {
+			// older positions are not kept, start from the beginning
+			irreversibleFen = null;
+			irreversibleIndex = 0;
+		}
+		board.unmakeMove();
+		legalMovesValid = false;
+	}
+
+	/**
+	 * Checks whether the side to move has no legal move left.
+	 * This is the case on checkmate and on stalemate.
+	 * @return true if no legal move
+	 */
+	public synchronized boolean isMate() {
+		long start = System.nanoTime();
+		boolean mate = hasNoLegalMove();
+		MATE_CHECK_TIME.recordSince(start);
+		return mate;
+	}
+
+	private boolean hasNoLegalMove() {
+		// nothing on the board before the game got initialized
+		if (board.getOccupied() == 0) {
+			return false;
+		}
+		if (legalMovesValid) {
+			return legalMoves.isEmpty();
+		}
+		PositionCache.Entry entry = positionCache.get(board.getZobristKey());
+		if (entry != null) {
+			return entry.getLegalMoves().length == 0;
+		}
+		return !MoveGenerator.hasLegalMove(board, scratchMoves);
+	}
+
+	/**
+	 * Returns the status of the side to move in the current position.
+	 * @return status
+	 */
+	public synchronized PositionCache.Status getStatus() {
+		return getPositionEntry().getStatus();
+	}
+
+	/**
+	 * Returns the Zobrist key of the current position.
+	 * @return Zobrist key
+	 */
+	public long getPositionKey() {
+		return board.getZobristKey();
+	}
+
+	/**
+	 * Returns the best move the engine found in the current position before.
+	 * @param depth depth the engine has to have searched to at least
+	 * @return best move or null if the engine never searched this position as deep
+	 */
+	public synchronized GenericMove getKnownBestMove(int depth) {
+		PositionCache.Entry entry = getPositionEntry();
+		return entry.getBestMoveDepth() >= depth ? entry.getBestMove() : null;
+	}
+
+	/**
+	 * Remembers the best move the engine found in the current position.
+	 * @param move best move
+	 * @param depth depth the engine searched to
+	 */
+	public synchronized void setKnownBestMove(GenericMove move, int depth) {
+		getPositionEntry().setBestMove(move, depth);
+	}
+
+	/**
+	 * @return depth a search of the engine would reach now, the one of the time control
+	 * if it has one, else the one of the last search, Integer.MAX_VALUE if there was none
+	 */
+	private int getSearchDepth() {
+		if (timeControl.getType() == TimeControl.Type.DEPTH) {
+			return timeControl.getDepth();
+		}
+		SearchInfo search = lastSearch;
+		return search == null || search.getDepth() == 0 ? Integer.MAX_VALUE : search.getDepth();
 	}
 
-	public boolean isMate() {
-		return MoveGenerator.getGenericMoves(getCurrentBoard()).length == 0;
+	public PositionCache getPositionCache() {
+		return positionCache;
 	}
 
 	public boolean isCastle() {
-		int newCastling = getHexBoard().castling;
-		if (getHexBoard().castling != castlingInt) {
+		int newCastling = board.getCastling();
+		if (newCastling != castlingInt) {
 			castlingInt =  newCastling;
 			return true;
 		}
@@ -254,6 +1009,30 @@ public class Game extends Observable {
 		return false;
 	}
 	
+	/**
+	 * Returns the position after the last capture or pawn move.
+	 * Positions before it can't come back, so it and the moves
+	 * since then are all the engine needs to know.
+	 * @return position in FEN
+	 */
+	public synchronized String getIrreversibleFen() {
+		return irreversibleFen == null ? startFen : irreversibleFen;
+	}
+
+	/**
+	 * @return moves played since getIrreversibleFen()
+	 */
+	public synchronized List<GenericMove> getMovesSinceIrreversible() {
+		return moves.subList(irreversibleIndex, moves.size());
+	}
+
+	/**
+	 * @return position the game started from in FEN
+	 */
+	public String getStartFen() {
+		return startFen;
+	}
+
 	public List<GenericMove> getMoves() {
 		return this.moves;
 	}
@@ -0,0 +1,83 @@
+package com.github.jubalh.jessy;
+
+/**
+ *
+ * Legal moves of one position with constant time lookup.
+ * The buffers get reused for every position, so updating allocates nothing.
+ * @author Michael Vetter
+ *
+ */
+public final class LegalMoves {
+
+	// a packed move fits into 15 bits
+	private static final int MOVE_BITS = 15;
+
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private final long[] lookup = new long[(1 << MOVE_BITS) >>> 6];
+	private int size = 0;
+
+	/**
+	 * Generates the legal moves of board.
+	 * @param board position
+	 */
+	public void update(Board board) {
+		clear();
+		size = MoveGenerator.generateLegalMoves(board, moves);
+		for (int i = 0; i < size; i++) {
+			lookup[moves[i] >>> 6] |= 1L << moves[i];
+		}
+	}
+
+	/**
+	 * Takes over moves which are already known to be legal.
+	 * @param legal packed legal moves
+	 */
+	public void set(int[] legal) {
+		clear();
+		size = legal.length;
+		for (int i = 0; i < size; i++) {
+			moves[i] = legal[i];
+			lookup[moves[i] >>> 6] |= 1L << moves[i];
+		}
+	}
+
+	/**
+	 * Forgets all moves.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			lookup[moves[i] >>> 6] = 0L;
+		}
+		size = 0;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return true if move is legal
+	 */
+	public boolean contains(int move) {
+		return (lookup[move >>> 6] & (1L << move)) != 0;
+	}
+
+	/**
+	 * @return number of legal moves
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if there is no legal move
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param index index starting with 0
+	 * @return packed move
+	 */
+	public int get(int index) {
+		return moves[index];
+	}
+}
@@ -1,10 +1,23 @@
 package com.github.jubalh.jessy;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jubalh.jessy.book.OpeningBook;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+import com.github.jubalh.jessy.tablebase.TablebaseGenerator;
+import com.github.jubalh.jessy.tablebase.Tablebases;
+
 /**
  * Console Chess.
  * @author Michael Vetter
  */
 public final class Main {
+	// used if it's in the working directory
+	private static final String DEFAULT_BOOK = "book.bin";
+
 	private Main() { }
 
 	/**
@@ -12,11 +25,49 @@ public final class Main {
 	 * @param args cmdline params
 	 */
 	public static void main(final String[] args) {
+		// metrics for jconsole and the like
+		MetricsRegistry.getDefault().enableJmx();
 		Board board = new Board();
 		Game game = new Game(board);
-		CmdLine cmdBoard = new CmdLine(game);
+		if (new File(DEFAULT_BOOK).isFile()) {
+			try {
+				game.setOpeningBook(new OpeningBook(DEFAULT_BOOK));
+			} catch (IOException e) {
+				System.err.println("Can't read opening book: " + e.getMessage());
+			}
+		}
+		if (new File(TablebaseGenerator.DEFAULT_DIRECTORY).isDirectory()) {
+			try {
+				game.setTablebases(Tablebases.load(TablebaseGenerator.DEFAULT_DIRECTORY));
+			} catch (IOException e) {
+				System.err.println("Can't read tablebases: " + e.getMessage());
+			}
+		}
+		// options of engine.properties apply to all engines, the ones started later as well
+		EngineConfig config = new EngineConfig(EngineConfig.DEFAULT_FILE);
+		try {
+			config = EngineConfig.load(EngineConfig.DEFAULT_FILE);
+		} catch (IOException e) {
+			System.err.println("Can't read engine options: " + e.getMessage());
+		}
+		// checked like the ones of setoption, the file may have been edited by hand
+		List<EngineOption> engineOptions = game.getEngineOptions();
+		for (Map.Entry<String, String> option : config.getOptions().entrySet()) {
+			EngineOption engineOption = EngineOption.find(engineOptions, option.getKey());
+			if (engineOption == null) {
+				System.err.println("Engine option " + option.getKey() + " ignored: engine has no such option");
+				continue;
+			}
+			try {
+				game.setEngineOption(engineOption.getName(), engineOption.check(option.getValue()));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Engine option " + option.getKey() + " ignored: " + e.getMessage());
+			}
+		}
+		CmdLine cmdBoard = new CmdLine(game, config);
 
 		game.addObserver(cmdBoard);
 		cmdBoard.run();
+		game.shutdown();
 	}
 }
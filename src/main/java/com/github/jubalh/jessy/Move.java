@@ -0,0 +1,138 @@
+package com.github.jubalh.jessy;
+
+import com.fluxchess.jcpi.models.GenericChessman;
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Moves packed into an int.
+ * Bits 0-5 hold the origin square, bits 6-11 the destination
+ * and bits 12-14 the piece type to promote to (0 if none).
+ * @author Michael Vetter
+ *
+ */
+public final class Move {
+
+	public static final int NONE = 0;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int TO_SHIFT = 6;
+	private static final int PROMOTION_SHIFT = 12;
+	private static final int PROMOTION_MASK = 0x7;
+
+	private Move() { }
+
+	/**
+	 * @param from origin square
+	 * @param to destination square
+	 * @return packed move
+	 */
+	public static int valueOf(int from, int to) {
+		return from | (to << TO_SHIFT);
+	}
+
+	/**
+	 * @param from origin square
+	 * @param to destination square
+	 * @param promotion piece type to promote to
+	 * @return packed move
+	 */
+	public static int valueOf(int from, int to, int promotion) {
+		return from | (to << TO_SHIFT) | (promotion << PROMOTION_SHIFT);
+	}
+
+	/**
+	 * @param move jcpi move
+	 * @return packed move
+	 */
+	public static int valueOf(GenericMove move) {
+		int from = Square.valueOf(move.from);
+		int to = Square.valueOf(move.to);
+		if (move.promotion == null) {
+			return valueOf(from, to);
+		}
+		return valueOf(from, to, toPieceType(move.promotion));
+	}
+
+	/**
+	 * @param move packed move
+	 * @return origin square
+	 */
+	public static int from(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return destination square
+	 */
+	public static int to(int move) {
+		return (move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return piece type to promote to, 0 if no promotion
+	 */
+	public static int promotion(int move) {
+		return (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return jcpi move
+	 */
+	public static GenericMove toGenericMove(int move) {
+		if (promotion(move) == 0) {
+			return new GenericMove(Square.toGenericPosition(from(move)), Square.toGenericPosition(to(move)));
+		}
+		return new GenericMove(Square.toGenericPosition(from(move)), Square.toGenericPosition(to(move)),
+				toGenericChessman(promotion(move)));
+	}
+
+	/**
+	 * @param move packed move
+	 * @return move in coordinate notation, like "e7e8q"
+	 */
+	public static String toString(int move) {
+		String s = Square.toString(from(move)) + Square.toString(to(move));
+		switch (promotion(move)) {
+		case Piece.KNIGHT:
+			return s + "n";
+		case Piece.BISHOP:
+			return s + "b";
+		case Piece.ROOK:
+			return s + "r";
+		case Piece.QUEEN:
+			return s + "q";
+		default:
+			return s;
+		}
+	}
+
+	private static int toPieceType(GenericChessman chessman) {
+		switch (chessman) {
+		case KNIGHT:
+			return Piece.KNIGHT;
+		case BISHOP:
+			return Piece.BISHOP;
+		case ROOK:
+			return Piece.ROOK;
+		default:
+			return Piece.QUEEN;
+		}
+	}
+
+	private static GenericChessman toGenericChessman(int type) {
+		switch (type) {
+		case Piece.KNIGHT:
+			return GenericChessman.KNIGHT;
+		case Piece.BISHOP:
+			return GenericChessman.BISHOP;
+		case Piece.ROOK:
+			return GenericChessman.ROOK;
+		default:
+			return GenericChessman.QUEEN;
+		}
+	}
+}
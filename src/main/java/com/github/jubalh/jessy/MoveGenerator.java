@@ -0,0 +1,189 @@
+package com.github.jubalh.jessy;
+
+/**
+ *
+ * Generates moves of a Board into int buffers.
+ * Moves are packed ints, see Move. Nothing gets allocated while generating,
+ * the caller passes a buffer of at least MAX_MOVES entries.
+ * @author Michael Vetter
+ *
+ */
+public final class MoveGenerator {
+
+	// no chess position has more moves than this
+	public static final int MAX_MOVES = 256;
+
+	private static final int WHITE = Color.WHITE.ordinal();
+
+	private MoveGenerator() { }
+
+	/**
+	 * Generates all moves, including those which leave the own king in check.
+	 * @param board position
+	 * @param moves buffer to write to
+	 * @return number of moves written
+	 */
+	public static int generatePseudoLegalMoves(Board board, int[] moves) {
+		int color = board.getSideToMove().ordinal();
+		long own = board.getOccupancy(board.getSideToMove());
+		long occupied = board.getOccupied();
+		long targets = ~own;
+		int size = 0;
+
+		size = generatePawnMoves(board, color, occupied, moves, size);
+
+		long pieces = board.getPieces(Piece.valueOf(color, Piece.KNIGHT));
+		while (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			size = addMoves(from, Bitboards.knightAttacks(from) & targets, moves, size);
+		}
+
+		pieces = board.getPieces(Piece.valueOf(color, Piece.BISHOP)) | board.getPieces(Piece.valueOf(color, Piece.QUEEN));
+		while (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			size = addMoves(from, Bitboards.bishopAttacks(from, occupied) & targets, moves, size);
+		}
+
+		pieces = board.getPieces(Piece.valueOf(color, Piece.ROOK)) | board.getPieces(Piece.valueOf(color, Piece.QUEEN));
+		while (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			size = addMoves(from, Bitboards.rookAttacks(from, occupied) & targets, moves, size);
+		}
+
+		pieces = board.getPieces(Piece.valueOf(color, Piece.KING));
+		if (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			size = addMoves(from, Bitboards.kingAttacks(from) & targets, moves, size);
+			size = generateCastlingMoves(board, color, from, occupied, moves, size);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Generates all legal moves.
+	 * @param board position
+	 * @param moves buffer to write to
+	 * @return number of moves written
+	 */
+	public static int generateLegalMoves(Board board, int[] moves) {
+		int size = generatePseudoLegalMoves(board, moves);
+		int legal = 0;
+		for (int i = 0; i < size; i++) {
+			if (isLegal(board, moves[i])) {
+				moves[legal++] = moves[i];
+			}
+		}
+		return legal;
+	}
+
+	/**
+	 * Checks whether the side to move has at least one legal move.
+	 * Stops at the first one found.
+	 * @param board position
+	 * @param scratch buffer for the pseudo legal moves
+	 * @return true if there is a legal move
+	 */
+	public static boolean hasLegalMove(Board board, int[] scratch) {
+		int size = generatePseudoLegalMoves(board, scratch);
+		for (int i = 0; i < size; i++) {
+			if (isLegal(board, scratch[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a pseudo legal move keeps the own king out of check.
+	 * @param board position
+	 * @param move pseudo legal move
+	 * @return true if legal
+	 */
+	public static boolean isLegal(Board board, int move) {
+		Color color = board.getSideToMove();
+		board.makeMove(move);
+		boolean legal = !board.isKingAttacked(color);
+		board.unmakeMove();
+		return legal;
+	}
+
+	private static int addMoves(int from, long targets, int[] moves, int size) {
+		while (targets != 0) {
+			moves[size++] = Move.valueOf(from, Long.numberOfTrailingZeros(targets));
+			targets &= targets - 1;
+		}
+		return size;
+	}
+
+	private static int addPawnMove(int from, int to, int[] moves, int size) {
+		if (to >= 56 || to < 8) {
+			moves[size++] = Move.valueOf(from, to, Piece.QUEEN);
+			moves[size++] = Move.valueOf(from, to, Piece.ROOK);
+			moves[size++] = Move.valueOf(from, to, Piece.BISHOP);
+			moves[size++] = Move.valueOf(from, to, Piece.KNIGHT);
+		} else {
+			moves[size++] = Move.valueOf(from, to);
+		}
+		return size;
+	}
+
+	private static int generatePawnMoves(Board board, int color, long occupied, int[] moves, int size) {
+		long pawns = board.getPieces(Piece.valueOf(color, Piece.PAWN));
+		long enemies = board.getOccupancy(Color.values()[1 - color]);
+		int enPassant = board.getEnPassant();
+		if (enPassant != Square.NONE) {
+			enemies |= 1L << enPassant;
+		}
+		int forward = color == WHITE ? 8 : -8;
+		int startRank = color == WHITE ? 1 : 6;
+
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+
+			int to = from + forward;
+			if ((occupied & (1L << to)) == 0) {
+				size = addPawnMove(from, to, moves, size);
+				int twoAhead = to + forward;
+				if (Square.rank(from) == startRank && (occupied & (1L << twoAhead)) == 0) {
+					moves[size++] = Move.valueOf(from, twoAhead);
+				}
+			}
+
+			long captures = Bitboards.pawnAttacks(color, from) & enemies;
+			while (captures != 0) {
+				size = addPawnMove(from, Long.numberOfTrailingZeros(captures), moves, size);
+				captures &= captures - 1;
+			}
+		}
+		return size;
+	}
+
+	private static int generateCastlingMoves(Board board, int color, int king, long occupied, int[] moves, int size) {
+		int castling = board.getCastling();
+		int kingside = color == WHITE ? Board.CASTLING_WHITE_KINGSIDE : Board.CASTLING_BLACK_KINGSIDE;
+		int queenside = color == WHITE ? Board.CASTLING_WHITE_QUEENSIDE : Board.CASTLING_BLACK_QUEENSIDE;
+		if ((castling & (kingside | queenside)) == 0) {
+			return size;
+		}
+		int opponent = 1 - color;
+		if (board.isAttacked(king, opponent)) {
+			return size;
+		}
+		if ((castling & kingside) != 0
+				&& (occupied & ((1L << (king + 1)) | (1L << (king + 2)))) == 0
+				&& !board.isAttacked(king + 1, opponent)) {
+			moves[size++] = Move.valueOf(king, king + 2);
+		}
+		if ((castling & queenside) != 0
+				&& (occupied & ((1L << (king - 1)) | (1L << (king - 2)) | (1L << (king - 3)))) == 0
+				&& !board.isAttacked(king - 1, opponent)) {
+			moves[size++] = Move.valueOf(king, king - 2);
+		}
+		return size;
+	}
+}
@@ -0,0 +1,25 @@
+package com.github.jubalh.jessy;
+
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Tells observers that a move got played without them asking for it,
+ * like the reply of the engine.
+ * @author Michael Vetter
+ *
+ */
+public class MoveNotification extends GameNotification {
+
+	private final GenericMove move;
+
+	public MoveNotification(GenericMove move, String message) {
+		super(message);
+		this.move = move;
+	}
+
+	public GenericMove getMove() {
+		return move;
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+
+/**
+ *
+ * Counts the leaf nodes of the move tree up to a given depth.
+ * The root moves get split across a fork/join pool.
+ * Results can be compared with the published perft numbers.
+ * @author Michael Vetter
+ *
+ */
+public final class Perft {
+
+	// one move buffer per ply, each ply takes about 30 times longer than the one before,
+	// so even from the start position depth 10 runs for days
+	private static final int MAX_DEPTH = 32;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Result of one perft run.
+	 */
+	public static final class Result {
+		private final List<String> moves = new ArrayList<String>();
+		private final List<Long> counts = new ArrayList<Long>();
+		private long nodes = 0;
+		private long nanos = 0;
+
+		/**
+		 * @return root moves in coordinate notation
+		 */
+		public List<String> getMoves() {
+			return moves;
+		}
+
+		/**
+		 * @return leaf nodes below each root move
+		 */
+		public List<Long> getCounts() {
+			return counts;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public long getNodesPerSecond() {
+			if (nanos == 0) {
+				return 0;
+			}
+			return nodes * 1000000000L / nanos;
+		}
+
+		/**
+		 * Prints a line per root move followed by the totals.
+		 */
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < moves.size(); i++) {
+				s.append(moves.get(i)).append(": ").append(counts.get(i)).append('\n');
+			}
+			s.append("Moves: ").append(moves.size()).append('\n');
+			s.append("Nodes: ").append(nodes).append('\n');
+			s.append("Time: ").append(nanos / 1000000L).append(" ms\n");
+			s.append("Nodes/second: ").append(getNodesPerSecond()).append('\n');
+			return s.toString();
+		}
+	}
+
+	/**
+	 * Counts the nodes below one root move on its own board.
+	 */
+	private static final class RootMoveTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final Board board;
+		private final int depth;
+
+		RootMoveTask(Board board, int move, int depth) {
+			this.board = new Board(board);
+			this.board.makeMove(move);
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			return perft(board, depth, new int[MAX_DEPTH][MoveGenerator.MAX_MOVES]);
+		}
+	}
+
+	/**
+	 * Constructor using one thread per core.
+	 */
+	public Perft() {
+		this(new ForkJoinPool());
+	}
+
+	/**
+	 * Constructor
+	 * @param pool pool to run root moves on
+	 */
+	public Perft(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Counts the leaf nodes and splits them by root move.
+	 * @param board position to start from, stays untouched
+	 * @param depth depth in plies, at least 1
+	 * @return result
+	 */
+	public Result divide(Board board, int depth) {
+		if (depth < 1 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("Depth has to be between 1 and " + MAX_DEPTH);
+		}
+		Result result = new Result();
+		long start = System.nanoTime();
+
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		int size = MoveGenerator.generateLegalMoves(board, rootMoves);
+		List<RootMoveTask> tasks = new ArrayList<RootMoveTask>();
+		for (int i = 0; i < size; i++) {
+			RootMoveTask task = new RootMoveTask(board, rootMoves[i], depth - 1);
+			tasks.add(task);
+			pool.execute(task);
+		}
+		for (int i = 0; i < size; i++) {
+			long count = tasks.get(i).join();
+			result.moves.add(Move.toString(rootMoves[i]));
+			result.counts.add(count);
+			result.nodes += count;
+		}
+
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Counts the leaf nodes on the calling thread.
+	 * @param board position, gets restored afterwards
+	 * @param depth depth in plies
+	 * @param buffers one move buffer per ply
+	 * @return number of leaf nodes
+	 */
+	public static long perft(Board board, int depth, int[][] buffers) {
+		if (depth == 0) {
+			return 1;
+		}
+		int[] moves = buffers[depth];
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+		if (depth == 1) {
+			return size;
+		}
+		long nodes = 0;
+		for (int i = 0; i < size; i++) {
+			board.makeMove(moves[i]);
+			nodes += perft(board, depth - 1, buffers);
+			board.unmakeMove();
+		}
+		return nodes;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Runs perft without the command line interface.
+	 * Usage: Perft depth [fen]
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: Perft <depth> [fen]");
+			System.exit(1);
+		}
+		Board board = new Board();
+		try {
+			int depth = Integer.parseInt(args[0]);
+			if (args.length > 1) {
+				StringBuilder fen = new StringBuilder();
+				for (int i = 1; i < args.length; i++) {
+					fen.append(args[i]).append(' ');
+				}
+				board.setFen(fen.toString());
+			} else {
+				board.init();
+			}
+
+			Perft perft = new Perft();
+			System.out.print(perft.divide(board, depth));
+			perft.shutdown();
+		} catch (NumberFormatException e) {
+			System.err.println("Depth is not a number: " + args[0]);
+			System.exit(1);
+		} catch (IllegalNotationException e) {
+			System.err.println("Illegal FEN");
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.github.jubalh.jessy;
+
+import com.github.jubalh.jessy.pieces.Bishop;
+import com.github.jubalh.jessy.pieces.Figure;
+import com.github.jubalh.jessy.pieces.King;
+import com.github.jubalh.jessy.pieces.Knight;
+import com.github.jubalh.jessy.pieces.Pawn;
+import com.github.jubalh.jessy.pieces.Queen;
+import com.github.jubalh.jessy.pieces.Rook;
+
+/**
+ *
+ * Piece and piece type constants used by the bitboards.
+ * A piece is its type plus six times its color ordinal,
+ * so white pieces are 0-5 and black pieces 6-11.
+ * @author Michael Vetter
+ *
+ */
+public final class Piece {
+
+	public static final int NONE = -1;
+
+	// piece types
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+	public static final int TYPE_COUNT = 6;
+
+	// pieces
+	public static final int WHITE_PAWN = 0;
+	public static final int WHITE_KNIGHT = 1;
+	public static final int WHITE_BISHOP = 2;
+	public static final int WHITE_ROOK = 3;
+	public static final int WHITE_QUEEN = 4;
+	public static final int WHITE_KING = 5;
+	public static final int BLACK_PAWN = 6;
+	public static final int BLACK_KNIGHT = 7;
+	public static final int BLACK_BISHOP = 8;
+	public static final int BLACK_ROOK = 9;
+	public static final int BLACK_QUEEN = 10;
+	public static final int BLACK_KING = 11;
+	public static final int COUNT = 12;
+
+	// figures are immutable, so one of each kind is enough
+	private static final Figure[] FIGURES = {
+		new Pawn(Color.WHITE), new Knight(Color.WHITE), new Bishop(Color.WHITE),
+		new Rook(Color.WHITE), new Queen(Color.WHITE), new King(Color.WHITE),
+		new Pawn(Color.BLACK), new Knight(Color.BLACK), new Bishop(Color.BLACK),
+		new Rook(Color.BLACK), new Queen(Color.BLACK), new King(Color.BLACK)
+	};
+
+	private Piece() { }
+
+	/**
+	 * Combines color and type to a piece.
+	 * @param color color ordinal
+	 * @param type piece type
+	 * @return piece
+	 */
+	public static int valueOf(int color, int type) {
+		return color * TYPE_COUNT + type;
+	}
+
+	/**
+	 * @param piece piece
+	 * @return piece type
+	 */
+	public static int type(int piece) {
+		return piece % TYPE_COUNT;
+	}
+
+	/**
+	 * @param piece piece
+	 * @return color ordinal of the piece
+	 */
+	public static int color(int piece) {
+		return piece / TYPE_COUNT;
+	}
+
+	/**
+	 * Returns the piece a figure stands for.
+	 * @param figure figure
+	 * @return piece or NONE if figure is null
+	 */
+	public static int valueOf(Figure figure) {
+		if (figure == null) {
+			return NONE;
+		}
+		int type;
+		if (figure instanceof Pawn) {
+			type = PAWN;
+		} else if (figure instanceof Knight) {
+			type = KNIGHT;
+		} else if (figure instanceof Bishop) {
+			type = BISHOP;
+		} else if (figure instanceof Rook) {
+			type = ROOK;
+		} else if (figure instanceof Queen) {
+			type = QUEEN;
+		} else {
+			type = KING;
+		}
+		return valueOf(figure.getColor().ordinal(), type);
+	}
+
+	/**
+	 * Returns the shared figure of the piece.
+	 * @param piece piece
+	 * @return figure, null if piece is NONE
+	 */
+	public static Figure figure(int piece) {
+		if (piece == NONE) {
+			return null;
+		}
+		return FIGURES[piece];
+	}
+}
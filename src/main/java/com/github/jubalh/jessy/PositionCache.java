@@ -0,0 +1,158 @@
+package com.github.jubalh.jessy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Remembers what is known about positions, keyed by their Zobrist key.
+ * Holds at most a fixed number of positions, the least recently used one
+ * gets evicted first.
+ * @author Michael Vetter
+ *
+ */
+public final class PositionCache {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Status of the side to move.
+	 */
+	public enum Status {
+		NORMAL, CHECK, CHECKMATE, STALEMATE
+	}
+
+	/**
+	 * Everything known about one position.
+	 */
+	public static final class Entry {
+		private final int[] legalMoves;
+		private final Status status;
+		private GenericMove bestMove;
+		private int bestMoveDepth = 0;
+
+		private Entry(int[] legalMoves, Status status) {
+			this.legalMoves = legalMoves;
+			this.status = status;
+		}
+
+		/**
+		 * @return packed legal moves, must not be modified
+		 */
+		public int[] getLegalMoves() {
+			return legalMoves;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return last best move the engine found, null if never searched
+		 */
+		public GenericMove getBestMove() {
+			return bestMove;
+		}
+
+		/**
+		 * @return depth the engine searched getBestMove() to
+		 */
+		public int getBestMoveDepth() {
+			return bestMoveDepth;
+		}
+
+		/**
+		 * @param bestMove best move the engine found, null for none
+		 * @param depth depth the engine searched to
+		 */
+		public void setBestMove(GenericMove bestMove, int depth) {
+			this.bestMove = bestMove;
+			this.bestMoveDepth = depth;
+		}
+	}
+
+	private final Map<Long, Entry> entries;
+	private int hits = 0;
+	private int misses = 0;
+
+	/**
+	 * Constructor
+	 */
+	public PositionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of positions
+	 */
+	public PositionCache(final int capacity) {
+		entries = new LinkedHashMap<Long, Entry>(capacity * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, PositionCache.Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param key Zobrist key
+	 * @return entry or null if position is unknown
+	 */
+	public Entry get(long key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the legal moves and status of a position.
+	 * @param key Zobrist key
+	 * @param legalMoves legal moves of position
+	 * @param status status of the side to move
+	 * @return the new entry
+	 */
+	public Entry put(long key, LegalMoves legalMoves, Status status) {
+		int[] moves = new int[legalMoves.size()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = legalMoves.get(i);
+		}
+		Entry entry = new Entry(moves, status);
+		entries.put(key, entry);
+		return entry;
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Forgets the best moves, but keeps the legal moves and status.
+	 * To be called when the engine would search differently now.
+	 */
+	public void clearBestMoves() {
+		for (Entry entry : entries.values()) {
+			entry.setBestMove(null, 0);
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,244 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.metrics.Histogram;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+
+/**
+ *
+ * Searches one position with several Flux engines at once.
+ * Flux searches with a single thread, so the root moves get dealt out
+ * to the engines instead, each searching only its share of them with the
+ * same limits. The move with the best score of all engines gets played.
+ * Scores of engines which got different depths are compared as they are,
+ * the engines with fewer moves to search get deeper in the same time.
+ * @author Michael Vetter
+ *
+ */
+public class RootSplitSearch {
+
+	// one engine per core, more would only take turns on them
+	public static final int MAX_SIZE = Runtime.getRuntime().availableProcessors();
+
+	// root moves per engine of the searches, of all searchers together
+	private static final Histogram SPLIT_MOVES = MetricsRegistry.getDefault().histogram("split.moves");
+
+	/**
+	 * One engine with what it told about its current search.
+	 */
+	private final class Part implements SearchListener {
+		private final EngineHandler engineHandler = new EngineHandler();
+		private volatile SearchInfo running = null;
+		private volatile SearchInfo finished = null;
+
+		public void searchUpdated(SearchInfo info) {
+			running = info;
+			forwardBest();
+		}
+
+		public void searchFinished(SearchInfo info) {
+			finished = info;
+		}
+	}
+
+	private final List<Part> parts = new ArrayList<Part>();
+	private final int size;
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<SearchListener>();
+	private boolean started = false;
+
+	/**
+	 * Constructor
+	 * @param size number of engines
+	 */
+	public RootSplitSearch(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Search needs at least one engine");
+		}
+		this.size = size;
+		for (int i = 0; i < size; i++) {
+			Part part = new Part();
+			part.engineHandler.addSearchListener(part);
+			parts.add(part);
+		}
+	}
+
+	/**
+	 * @return number of engines
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Starts the engines unless they run already.
+	 */
+	public synchronized void start() {
+		for (Part part : parts) {
+			part.engineHandler.start();
+		}
+		started = true;
+	}
+
+	/**
+	 * Quits the engines.
+	 */
+	public synchronized void stop() {
+		for (Part part : parts) {
+			part.engineHandler.stop();
+		}
+		started = false;
+	}
+
+	/**
+	 * Sets an engine option on all engines.
+	 * @param name option name
+	 * @param value option value
+	 */
+	public synchronized void setOption(String name, String value) {
+		for (Part part : parts) {
+			part.engineHandler.setOption(name, value);
+		}
+	}
+
+	/**
+	 * Gets told how the search goes, through the engine with the best score
+	 * so far, and about the search of the engine whose move got chosen.
+	 * @param listener listener
+	 */
+	public void addSearchListener(SearchListener listener) {
+		searchListeners.add(listener);
+	}
+
+	public void removeSearchListener(SearchListener listener) {
+		searchListeners.remove(listener);
+	}
+
+	/**
+	 * Makes all engines play the best move they found so far.
+	 * @return false if none of them is searching
+	 */
+	public synchronized boolean moveNow() {
+		boolean stopped = false;
+		for (Part part : parts) {
+			stopped |= part.engineHandler.moveNow();
+		}
+		return stopped;
+	}
+
+	/**
+	 * It's the engine's turn.
+	 * Starts the searches and returns immediately.
+	 * Cancelling the future stops all of them.
+	 * @param game game to search the current position of
+	 * @return future which completes with the best move
+	 */
+	public synchronized CompletableFuture<GenericMove> compute(Game game) {
+		if (!started) {
+			start();
+		}
+
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegalMoves(new Board(game.getBoard()), legal);
+		int engines = Math.max(1, Math.min(size, count));
+		List<List<GenericMove>> shares = new ArrayList<List<GenericMove>>();
+		for (int i = 0; i < engines; i++) {
+			shares.add(new ArrayList<GenericMove>());
+		}
+		// dealt out one by one, so each engine gets some of the early, usually better, moves
+		for (int i = 0; i < count; i++) {
+			shares.get(i % engines).add(Move.toGenericMove(legal[i]));
+		}
+
+		for (Part part : parts) {
+			part.running = null;
+			part.finished = null;
+		}
+		final List<CompletableFuture<GenericMove>> searches = new ArrayList<CompletableFuture<GenericMove>>();
+		final List<Part> searching = new ArrayList<Part>();
+		for (int i = 0; i < engines; i++) {
+			Part part = parts.get(i);
+			SearchRequest request = SearchRequest.of(game);
+			if (count > 0) {
+				request.getStartCommand().setSearchMoveList(shares.get(i));
+			}
+			SPLIT_MOVES.record(shares.get(i).size());
+			searching.add(part);
+			// a failed engine only loses its share of the moves
+			searches.add(part.engineHandler.search(request).handle((move, failure) -> failure == null ? move : null));
+		}
+
+		final CompletableFuture<GenericMove> result = new CompletableFuture<GenericMove>();
+		CompletableFuture.allOf(searches.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+			Part best = null;
+			GenericMove bestMove = null;
+			for (int i = 0; i < searches.size(); i++) {
+				GenericMove move = searches.get(i).join();
+				Part part = searching.get(i);
+				if (move != null && (best == null || isBetter(part.finished, best.finished))) {
+					best = part;
+					bestMove = move;
+				}
+			}
+			if (best == null) {
+				result.completeExceptionally(new IllegalStateException("No engine found a move"));
+				return;
+			}
+			if (best.finished != null) {
+				for (SearchListener listener : searchListeners) {
+					listener.searchFinished(best.finished);
+				}
+			}
+			result.complete(bestMove);
+		});
+		result.whenComplete((move, failure) -> {
+			if (result.isCancelled()) {
+				for (Part part : searching) {
+					part.engineHandler.cancel();
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Tells the listeners about the search of the engine with the best score.
+	 */
+	private void forwardBest() {
+		SearchInfo best = null;
+		for (Part part : parts) {
+			SearchInfo info = part.running;
+			if (info != null && (best == null || isBetter(info, best))) {
+				best = info;
+			}
+		}
+		if (best == null) {
+			return;
+		}
+		for (SearchListener listener : searchListeners) {
+			listener.searchUpdated(best);
+		}
+	}
+
+	/**
+	 * @return whether info has a better score than other, or is deeper if both have none
+	 */
+	private static boolean isBetter(SearchInfo info, SearchInfo other) {
+		if (info == null) {
+			return false;
+		}
+		if (other == null) {
+			return true;
+		}
+		int value = info.getValue();
+		int otherValue = other.getValue();
+		if (value != otherValue) {
+			return value > otherValue;
+		}
+		return info.getDepth() > other.getDepth();
+	}
+}
@@ -0,0 +1,358 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.fluxchess.jcpi.commands.ProtocolInformationCommand;
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * What the engine told about one search, as it goes.
+ * Gets filled from the information the engine sends while searching,
+ * and keeps one entry per finished iteration, so it shows how much of the
+ * time budget each depth took. Written by the engine thread, read by others.
+ * @author Michael Vetter
+ *
+ */
+public final class SearchInfo {
+
+	// no budget, the search is limited by depth or nodes
+	public static final long NO_BUDGET = -1;
+	// moves of the principal variation shown in the summary
+	private static final int SUMMARY_PV_LENGTH = 3;
+	// value of a mate right away, above any score in centipawns
+	private static final int MATE_VALUE = 1000000;
+
+	/**
+	 * One iteration of the search, reported with its principal variation.
+	 */
+	public static final class Iteration {
+		private final int depth;
+		private final long millis;
+		private final long nodes;
+		private final Integer centipawns;
+		private final Integer mate;
+		private final List<GenericMove> pv;
+
+		Iteration(int depth, long millis, long nodes, Integer centipawns, Integer mate, List<GenericMove> pv) {
+			this.depth = depth;
+			this.millis = millis;
+			this.nodes = nodes;
+			this.centipawns = centipawns;
+			this.mate = mate;
+			this.pv = pv;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public List<GenericMove> getPv() {
+			return pv;
+		}
+	}
+
+	private final String fen;
+	private final String timeControl;
+	private final long budgetMillis;
+	private final long startMillis = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+	private long endNanos = 0;
+
+	private int depth = 0;
+	private int maxDepth = 0;
+	private long millis = 0;
+	private long nodes = 0;
+	private long nps = 0;
+	// permille of the hash table in use
+	private int hashFull = 0;
+	private Integer centipawns = null;
+	private Integer mate = null;
+	private List<GenericMove> pv = Collections.emptyList();
+	private GenericMove currentMove = null;
+	private final List<Iteration> iterations = new ArrayList<Iteration>();
+	private GenericMove bestMove = null;
+	private boolean cancelled = false;
+	// searching on the opponent's time, until the expected reply gets played
+	private boolean pondering;
+	private boolean ponderHit = false;
+
+	/**
+	 * Constructor
+	 * @param fen position searched, may be null
+	 * @param timeControl limits of the search as text
+	 * @param budgetMillis time the engine may use, or NO_BUDGET
+	 */
+	public SearchInfo(String fen, String timeControl, long budgetMillis) {
+		this(fen, timeControl, budgetMillis, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param fen position searched, may be null
+	 * @param timeControl limits of the search as text
+	 * @param budgetMillis time the engine may use, or NO_BUDGET
+	 * @param pondering whether the search waits for the expected reply
+	 */
+	public SearchInfo(String fen, String timeControl, long budgetMillis, boolean pondering) {
+		this.fen = fen;
+		this.timeControl = timeControl;
+		this.budgetMillis = budgetMillis;
+		this.pondering = pondering;
+	}
+
+	/**
+	 * The expected reply got played, the search is a normal one from now on.
+	 */
+	public synchronized void ponderHit() {
+		pondering = false;
+		ponderHit = true;
+	}
+
+	/**
+	 * @return whether the search still waits for the expected reply
+	 */
+	public synchronized boolean isPondering() {
+		return pondering;
+	}
+
+	/**
+	 * Takes over what the engine reported.
+	 * Fields the engine left out keep their last value.
+	 * @param command information of the engine
+	 */
+	public synchronized void update(ProtocolInformationCommand command) {
+		if (command.getDepth() != null) {
+			depth = command.getDepth();
+		}
+		if (command.getMaxDepth() != null) {
+			maxDepth = command.getMaxDepth();
+		}
+		if (command.getTime() != null) {
+			millis = command.getTime();
+		}
+		if (command.getNodes() != null) {
+			nodes = command.getNodes();
+		}
+		if (command.getNps() != null) {
+			nps = command.getNps();
+		}
+		if (command.getHash() != null) {
+			hashFull = command.getHash();
+		}
+		if (command.getCurrentMove() != null) {
+			currentMove = command.getCurrentMove();
+		}
+		if (command.getMate() != null) {
+			mate = command.getMate();
+			centipawns = null;
+		} else if (command.getCentipawns() != null) {
+			centipawns = command.getCentipawns();
+			mate = null;
+		}
+		List<GenericMove> moveList = command.getMoveList();
+		if (moveList != null && !moveList.isEmpty()) {
+			pv = new ArrayList<GenericMove>(moveList);
+			iterations.add(new Iteration(depth, millis, nodes, centipawns, mate, pv));
+		}
+	}
+
+	/**
+	 * Ends the search.
+	 * @param bestMove move the engine chose, null for none
+	 * @param cancelled whether nobody waited for the move anymore
+	 */
+	public synchronized void finish(GenericMove bestMove, boolean cancelled) {
+		this.bestMove = bestMove;
+		this.cancelled = cancelled;
+		this.endNanos = System.nanoTime();
+	}
+
+	public synchronized boolean isFinished() {
+		return endNanos != 0;
+	}
+
+	/**
+	 * @return time from sending the search until the best move, or until now
+	 */
+	public synchronized long getElapsedMillis() {
+		return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1000000L;
+	}
+
+	public String getFen() {
+		return fen;
+	}
+
+	public long getBudgetMillis() {
+		return budgetMillis;
+	}
+
+	public synchronized int getDepth() {
+		return depth;
+	}
+
+	public synchronized long getNodes() {
+		return nodes;
+	}
+
+	public synchronized long getNps() {
+		return nps;
+	}
+
+	public synchronized int getHashFull() {
+		return hashFull;
+	}
+
+	public synchronized GenericMove getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return principal variation of the last iteration, empty if there is none yet
+	 */
+	public synchronized List<GenericMove> getPv() {
+		return pv;
+	}
+
+	public synchronized List<Iteration> getIterations() {
+		return new ArrayList<Iteration>(iterations);
+	}
+
+	/**
+	 * @return score in centipawns with mates beyond all of them, shorter ones
+	 * better, Integer.MIN_VALUE if there is none yet
+	 */
+	public synchronized int getValue() {
+		if (mate != null) {
+			return mate > 0 ? MATE_VALUE - mate : -MATE_VALUE - mate;
+		}
+		return centipawns == null ? Integer.MIN_VALUE : centipawns;
+	}
+
+	/**
+	 * @return score like "+0.35" or "#3", empty if there is none yet
+	 */
+	public synchronized String getScore() {
+		return formatScore(centipawns, mate);
+	}
+
+	/**
+	 * Short line for the prompt, like "d12/18 +0.35 850 kn/s e2e4 e7e5 g1f3".
+	 * @return summary
+	 */
+	public synchronized String getSummary() {
+		StringBuilder s = new StringBuilder();
+		s.append('d').append(depth).append('/').append(maxDepth);
+		String score = getScore();
+		if (!score.isEmpty()) {
+			s.append(' ').append(score);
+		}
+		s.append(' ').append(nps / 1000).append(" kn/s");
+		int length = Math.min(SUMMARY_PV_LENGTH, pv.size());
+		for (int i = 0; i < length; i++) {
+			s.append(' ').append(pv.get(i));
+		}
+		if (pv.isEmpty() && currentMove != null) {
+			s.append(' ').append(currentMove);
+		}
+		return s.toString();
+	}
+
+	/**
+	 * @return the search as one line of JSON
+	 */
+	public synchronized String toJson() {
+		StringBuilder s = new StringBuilder(256 + 64 * iterations.size());
+		s.append('{');
+		s.append("\"start\":").append(startMillis);
+		s.append(",\"fen\":");
+		appendString(s, fen);
+		s.append(",\"timeControl\":");
+		appendString(s, timeControl);
+		s.append(",\"budgetMs\":").append(budgetMillis == NO_BUDGET ? "null" : String.valueOf(budgetMillis));
+		s.append(",\"elapsedMs\":").append(getElapsedMillis());
+		s.append(",\"engineMs\":").append(millis);
+		s.append(",\"depth\":").append(depth);
+		s.append(",\"maxDepth\":").append(maxDepth);
+		s.append(",\"nodes\":").append(nodes);
+		s.append(",\"nps\":").append(nps);
+		s.append(",\"hashFull\":").append(hashFull);
+		appendScore(s, centipawns, mate);
+		s.append(",\"bestMove\":");
+		appendString(s, bestMove == null ? null : bestMove.toString());
+		s.append(",\"cancelled\":").append(cancelled);
+		s.append(",\"ponder\":").append(pondering || ponderHit);
+		s.append(",\"ponderHit\":").append(ponderHit);
+		s.append(",\"pv\":");
+		appendMoves(s, pv);
+		s.append(",\"iterations\":[");
+		for (int i = 0; i < iterations.size(); i++) {
+			Iteration iteration = iterations.get(i);
+			if (i > 0) {
+				s.append(',');
+			}
+			s.append("{\"depth\":").append(iteration.depth);
+			s.append(",\"ms\":").append(iteration.millis);
+			s.append(",\"nodes\":").append(iteration.nodes);
+			appendScore(s, iteration.centipawns, iteration.mate);
+			s.append(",\"pv\":");
+			appendMoves(s, iteration.pv);
+			s.append('}');
+		}
+		s.append("]}");
+		return s.toString();
+	}
+
+	private static String formatScore(Integer centipawns, Integer mate) {
+		if (mate != null) {
+			return "#" + mate;
+		}
+		if (centipawns != null) {
+			return String.format(Locale.ROOT, "%+.2f", centipawns / 100.0);
+		}
+		return "";
+	}
+
+	private static void appendScore(StringBuilder s, Integer centipawns, Integer mate) {
+		s.append(",\"cp\":").append(centipawns == null ? "null" : centipawns.toString());
+		s.append(",\"mate\":").append(mate == null ? "null" : mate.toString());
+	}
+
+	private static void appendMoves(StringBuilder s, List<GenericMove> moves) {
+		s.append('[');
+		for (int i = 0; i < moves.size(); i++) {
+			if (i > 0) {
+				s.append(',');
+			}
+			s.append('"').append(moves.get(i)).append('"');
+		}
+		s.append(']');
+	}
+
+	private static void appendString(StringBuilder s, String text) {
+		if (text == null) {
+			s.append("null");
+			return;
+		}
+		s.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				s.append('\\');
+			}
+			s.append(c);
+		}
+		s.append('"');
+	}
+}
@@ -0,0 +1,23 @@
+package com.github.jubalh.jessy;
+
+/**
+ *
+ * Gets told about the progress of engine searches.
+ * Called on the engine thread, so it should return quickly.
+ * @author Michael Vetter
+ *
+ */
+public interface SearchListener {
+
+	/**
+	 * The engine sent new information.
+	 * @param info search so far
+	 */
+	void searchUpdated(SearchInfo info);
+
+	/**
+	 * The engine sent its best move.
+	 * @param info whole search
+	 */
+	void searchFinished(SearchInfo info);
+}
@@ -0,0 +1,165 @@
+package com.github.jubalh.jessy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fluxchess.jcpi.commands.EngineStartCalculatingCommand;
+import com.fluxchess.jcpi.models.GenericBoard;
+import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.models.IllegalNotationException;
+
+/**
+ *
+ * Everything an engine needs to search a position:
+ * a root position, the moves played since and the search limits.
+ * Doesn't refer to the game, so it can wait in a queue while the game goes on.
+ * @author Michael Vetter
+ *
+ */
+public final class SearchRequest {
+
+	private final GenericBoard root;
+	private final List<GenericMove> moves;
+	private final EngineStartCalculatingCommand startCommand;
+	// only for telemetry
+	private String fen = null;
+	private String limits = "";
+	private long budgetMillis = TimeControl.DEFAULT_MAX_MILLIS;
+	private boolean ponder = false;
+
+	/**
+	 * Constructor
+	 * @param root position to start from
+	 * @param moves moves played from root
+	 * @param startCommand search limits
+	 */
+	public SearchRequest(GenericBoard root, List<GenericMove> moves, EngineStartCalculatingCommand startCommand) {
+		this.root = root;
+		this.moves = new ArrayList<GenericMove>(moves);
+		this.startCommand = startCommand;
+	}
+
+	/**
+	 * Creates a request for the current position of a game
+	 * using the time control of the game.
+	 * @param game game
+	 * @return request
+	 */
+	public static SearchRequest of(Game game) {
+		return of(game, game.getTimeControl());
+	}
+
+	/**
+	 * Creates a request for the current position of a game
+	 * using other limits than the game's, e.g. one per side.
+	 * @param game game
+	 * @param timeControl search limits
+	 * @return request
+	 */
+	public static SearchRequest of(Game game, TimeControl timeControl) {
+		return of(game, timeControl, game.getCurrentPlayer(), null, false);
+	}
+
+	/**
+	 * Creates a request to ponder: to search the position after the reply
+	 * the engine expects, while the other side still thinks about it.
+	 * The search runs until the engine gets told the reply was played.
+	 * @param game game, with the opponent of the engine to move
+	 * @param expected reply the engine expects
+	 * @return request
+	 */
+	public static SearchRequest ponder(Game game, GenericMove expected) {
+		return of(game, game.getTimeControl(), opponent(game), expected, true);
+	}
+
+	/**
+	 * Creates a request for the engine's answer to a reply
+	 * the other side hasn't played yet.
+	 * @param game game, with the opponent of the engine to move
+	 * @param reply reply to answer
+	 * @return request
+	 */
+	public static SearchRequest after(Game game, GenericMove reply) {
+		return of(game, game.getTimeControl(), opponent(game), reply, false);
+	}
+
+	private static Color opponent(Game game) {
+		return game.getCurrentPlayer() == Color.WHITE ? Color.BLACK : Color.WHITE;
+	}
+
+	private static SearchRequest of(Game game, TimeControl timeControl, Color sideToMove, GenericMove expected, boolean ponder) {
+		EngineStartCalculatingCommand startCommand = new EngineStartCalculatingCommand();
+		timeControl.apply(startCommand, game.getClock(), sideToMove);
+		List<GenericMove> moves = new ArrayList<GenericMove>(game.getMovesSinceIrreversible());
+		if (expected != null) {
+			moves.add(expected);
+		}
+		if (ponder) {
+			startCommand.setPonder();
+		}
+		SearchRequest request;
+		try {
+			request = new SearchRequest(new GenericBoard(game.getIrreversibleFen()), moves, startCommand);
+		} catch (IllegalNotationException e) {
+			// should not occur, the fen comes from the board
+			List<GenericMove> allMoves = new ArrayList<GenericMove>(game.getMoves());
+			if (expected != null) {
+				allMoves.add(expected);
+			}
+			request = new SearchRequest(new GenericBoard(GenericBoard.STANDARDSETUP), allMoves, startCommand);
+		}
+		if (expected == null) {
+			request.fen = game.getBoard().toFen();
+			request.limits = timeControl.toString();
+		} else {
+			Board after = new Board(game.getBoard());
+			after.makeMove(Move.valueOf(expected));
+			request.fen = after.toFen();
+			request.limits = (ponder ? "ponder " : "after ") + expected + ", " + timeControl;
+			request.ponder = ponder;
+		}
+		// the engine decides how much of it to use, but no search runs without a limit
+		request.budgetMillis = timeControl.getMoveLimitMillis(game.getClock(), sideToMove);
+		return request;
+	}
+
+	/**
+	 * @return position searched in FEN, for telemetry
+	 */
+	public String getFen() {
+		return fen;
+	}
+
+	/**
+	 * @return whether the search waits for the expected reply, see ponder()
+	 */
+	public boolean isPonder() {
+		return ponder;
+	}
+
+	/**
+	 * @return time the engine may use at most, see TimeControl.getMoveLimitMillis()
+	 */
+	public long getBudgetMillis() {
+		return budgetMillis;
+	}
+
+	/**
+	 * @return empty record for what the engine tells about this search
+	 */
+	public SearchInfo newSearchInfo() {
+		return new SearchInfo(fen, limits, budgetMillis, ponder);
+	}
+
+	public GenericBoard getRoot() {
+		return root;
+	}
+
+	public List<GenericMove> getMoves() {
+		return moves;
+	}
+
+	public EngineStartCalculatingCommand getStartCommand() {
+		return startCommand;
+	}
+}
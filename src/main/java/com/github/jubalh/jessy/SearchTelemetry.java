@@ -0,0 +1,64 @@
+package com.github.jubalh.jessy;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Writes every finished search as one line of JSON.
+ * Lines get appended, so a file can collect the searches of many runs.
+ * @author Michael Vetter
+ *
+ */
+public class SearchTelemetry implements SearchListener, AutoCloseable {
+
+	private final Writer writer;
+	private final String filename;
+	private long searches = 0;
+
+	/**
+	 * Opens a file for appending.
+	 * @param filename file to write to
+	 * @throws IOException if the file can't be opened
+	 */
+	public SearchTelemetry(String filename) throws IOException {
+		this.filename = filename;
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename, true),
+				StandardCharsets.UTF_8));
+	}
+
+	public void searchUpdated(SearchInfo info) {
+		// only whole searches get written
+	}
+
+	public synchronized void searchFinished(SearchInfo info) {
+		try {
+			writer.write(info.toJson());
+			writer.write('\n');
+			// a line per move is little, and nothing gets lost if jessy gets killed
+			writer.flush();
+			searches++;
+		} catch (IOException e) {
+			System.err.println("Can't write telemetry to " + filename + ": " + e.getMessage());
+		}
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return number of searches written
+	 */
+	public synchronized long getSearches() {
+		return searches;
+	}
+
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,245 @@
+package com.github.jubalh.jessy;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.metrics.Counter;
+import com.github.jubalh.jessy.metrics.MetricsRegistry;
+
+/**
+ *
+ * Searches the engine's answers to the replies the user is most likely
+ * to play, while the user still thinks, each on an engine of its own.
+ * The answers are kept by the position they are for, so if the user plays
+ * one of the replies the engine's move is there already or at least
+ * well on its way. Only the answers to the latest position are kept.
+ * @author Michael Vetter
+ *
+ */
+public final class Speculator {
+
+	private static final Counter HITS = MetricsRegistry.getDefault().counter("speculation.hit");
+	private static final Counter MISSES = MetricsRegistry.getDefault().counter("speculation.miss");
+
+	// one core stays for the engine pondering at the same time
+	public static final int MAX_CANDIDATES = Math.max(0, Runtime.getRuntime().availableProcessors() - 1);
+
+	// rough piece values by type, to guess which captures look tempting
+	private static final int[] VALUES = { 1, 3, 3, 5, 9, 0 };
+
+	/**
+	 * The engine's answer to one reply, searched or being searched.
+	 */
+	public static final class Speculation {
+		private final int ply;
+		private final String fen;
+		private final EnginePool enginePool;
+		private final CompletableFuture<GenericMove> result;
+		private volatile SearchInfo info = null;
+
+		Speculation(int ply, String fen, EnginePool enginePool, CompletableFuture<GenericMove> result) {
+			this.ply = ply;
+			this.fen = fen;
+			this.enginePool = enginePool;
+			this.result = result;
+		}
+
+		public CompletableFuture<GenericMove> getResult() {
+			return result;
+		}
+
+		/**
+		 * Makes the engine searching the answer play the best move it found so far.
+		 * @return false if the search is over or still waits for an engine
+		 */
+		public boolean moveNow() {
+			return !result.isDone() && enginePool.moveNow(result);
+		}
+
+		/**
+		 * @return what the engine told about the search, null until it finished
+		 */
+		public SearchInfo getInfo() {
+			return info;
+		}
+	}
+
+	// started with the first search
+	private EnginePool enginePool = null;
+	private final int candidates;
+	private final Map<String, String> options = new LinkedHashMap<String, String>();
+	// by the key of the position after the reply
+	private final Map<Long, Speculation> speculations = new ConcurrentHashMap<Long, Speculation>();
+
+	/**
+	 * Constructor
+	 * @param candidates number of replies to search, one engine each
+	 * @param options engine options every engine gets set to
+	 */
+	public Speculator(int candidates, Map<String, String> options) {
+		this.candidates = candidates;
+		this.options.putAll(options);
+	}
+
+	private EnginePool getEnginePool() {
+		if (enginePool == null) {
+			enginePool = new EnginePool(candidates, options);
+			enginePool.addSearchListener(new SearchListener() {
+				public void searchUpdated(SearchInfo info) {
+				}
+
+				public void searchFinished(SearchInfo info) {
+					for (Speculation speculation : speculations.values()) {
+						if (speculation.fen.equals(info.getFen())) {
+							speculation.info = info;
+						}
+					}
+				}
+			});
+		}
+		return enginePool;
+	}
+
+	/**
+	 * @return number of replies searched
+	 */
+	public int getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Starts searching the engine's answers to the likeliest replies
+	 * in the current position of the game. Ends the searches there were.
+	 * @param game game, with the user to move
+	 * @param expected reply the engine expects, null for none
+	 * @param pondered whether the engine ponders on the expected reply already
+	 */
+	public synchronized void speculate(Game game, GenericMove expected, boolean pondered) {
+		cancel();
+		List<GenericMove> moves = game.getMoves();
+		int ply = moves.size() + 1;
+		int lastMove = moves.isEmpty() ? Move.NONE : Move.valueOf(moves.get(moves.size() - 1));
+		Board after = new Board(game.getBoard());
+		for (int move : rank(after, lastMove, expected)) {
+			if (speculations.size() == candidates) {
+				break;
+			}
+			GenericMove reply = Move.toGenericMove(move);
+			if (pondered && reply.equals(expected)) {
+				continue;
+			}
+			SearchRequest request = SearchRequest.after(game, reply);
+			after.makeMove(move);
+			long key = after.getZobristKey();
+			after.unmakeMove();
+			EnginePool pool = getEnginePool();
+			speculations.put(key, new Speculation(ply, request.getFen(), pool, pool.search(request)));
+		}
+	}
+
+	/**
+	 * Takes the answer for the position the user's reply lead to.
+	 * All other searches end.
+	 * @param key position key after the reply
+	 * @param ply number of moves played, with the reply
+	 * @return answer, null if the reply wasn't one of the candidates
+	 */
+	public synchronized Speculation take(long key, int ply) {
+		if (speculations.isEmpty()) {
+			return null;
+		}
+		Speculation speculation = speculations.remove(key);
+		cancel();
+		if (speculation == null || speculation.ply != ply || speculation.result.isCancelled()) {
+			MISSES.increment();
+			return null;
+		}
+		HITS.increment();
+		return speculation;
+	}
+
+	/**
+	 * Ends all searches.
+	 */
+	public synchronized void cancel() {
+		for (Speculation speculation : speculations.values()) {
+			speculation.result.cancel(false);
+		}
+		speculations.clear();
+	}
+
+	/**
+	 * Sets an engine option on all engines.
+	 * A pool can't change options, so the engines get started again.
+	 * @param name option name
+	 * @param value option value
+	 */
+	public synchronized void setOption(String name, String value) {
+		options.put(name, value);
+		shutdown();
+	}
+
+	/**
+	 * Ends all searches and quits the engines.
+	 */
+	public synchronized void shutdown() {
+		cancel();
+		if (enginePool != null) {
+			enginePool.shutdown();
+			enginePool = null;
+		}
+	}
+
+	/**
+	 * Orders the legal moves by how likely a person plays them:
+	 * the expected reply, then recaptures, captures of valuable pieces,
+	 * promotions and checks.
+	 * @param board position, gets moves made and unmade
+	 * @param lastMove move which lead to the position, or Move.NONE
+	 * @param expected reply the engine expects, null for none
+	 * @return legal moves, likeliest first
+	 */
+	static int[] rank(Board board, int lastMove, GenericMove expected) {
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int size = MoveGenerator.generateLegalMoves(board, legal);
+		int lastTo = lastMove == Move.NONE ? Square.NONE : Move.to(lastMove);
+		int expectedMove = expected == null ? Move.NONE : Move.valueOf(expected);
+		// score in the upper bits, index in the lower ones, so sorting keeps the order of equals
+		long[] scored = new long[size];
+		for (int i = 0; i < size; i++) {
+			int move = legal[i];
+			int to = Move.to(move);
+			int score = 0;
+			if (move == expectedMove) {
+				score += 1000;
+			}
+			int victim = board.getPiece(to);
+			if (victim != Piece.NONE) {
+				score += 10 * VALUES[Piece.type(victim)] - VALUES[Piece.type(board.getPiece(Move.from(move)))];
+				if (to == lastTo) {
+					score += 100;
+				}
+			}
+			if (Move.promotion(move) != 0) {
+				score += 80;
+			}
+			board.makeMove(move);
+			if (board.isCheck()) {
+				score += 5;
+			}
+			board.unmakeMove();
+			scored[i] = ((long) (Integer.MAX_VALUE - score) << 32) | i;
+		}
+		Arrays.sort(scored);
+		int[] ranked = new int[size];
+		for (int i = 0; i < size; i++) {
+			ranked[i] = legal[(int) scored[i]];
+		}
+		return ranked;
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.jubalh.jessy;
+
+import com.fluxchess.jcpi.models.GenericFile;
+import com.fluxchess.jcpi.models.GenericPosition;
+import com.fluxchess.jcpi.models.GenericRank;
+
+/**
+ *
+ * Square indices used by the bitboards.
+ * a1 is 0, h1 is 7 and h8 is 63.
+ * @author Michael Vetter
+ *
+ */
+public final class Square {
+
+	public static final int NONE = -1;
+	public static final int COUNT = 64;
+
+	private static final GenericFile[] FILES = GenericFile.values();
+	private static final GenericRank[] RANKS = GenericRank.values();
+
+	private Square() { }
+
+	/**
+	 * @param file file starting with 0
+	 * @param rank rank starting with 0
+	 * @return square index
+	 */
+	public static int valueOf(int file, int rank) {
+		return (rank << 3) | file;
+	}
+
+	/**
+	 * @param position jcpi position
+	 * @return square index
+	 */
+	public static int valueOf(GenericPosition position) {
+		return valueOf(position.file.ordinal(), position.rank.ordinal());
+	}
+
+	/**
+	 * @param square square index
+	 * @return file starting with 0
+	 */
+	public static int file(int square) {
+		return square & 7;
+	}
+
+	/**
+	 * @param square square index
+	 * @return rank starting with 0
+	 */
+	public static int rank(int square) {
+		return square >>> 3;
+	}
+
+	/**
+	 * @param square square index
+	 * @return jcpi position
+	 */
+	public static GenericPosition toGenericPosition(int square) {
+		return GenericPosition.valueOf(FILES[file(square)], RANKS[rank(square)]);
+	}
+
+	/**
+	 * @param square square index
+	 * @return square in algebraic notation, like "e4"
+	 */
+	public static String toString(int square) {
+		return "" + (char) ('a' + file(square)) + (char) ('1' + rank(square));
+	}
+}
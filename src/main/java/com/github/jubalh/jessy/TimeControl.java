@@ -0,0 +1,257 @@
+package com.github.jubalh.jessy;
+
+import com.fluxchess.jcpi.commands.EngineStartCalculatingCommand;
+import com.fluxchess.jcpi.models.GenericColor;
+
+/**
+ *
+ * Limits how long the engine may think.
+ * Either a fixed time per move, a chess clock with base time, increment
+ * and moves to go, a fixed depth or a fixed number of nodes.
+ * Each of them gives a time after which a search gets stopped,
+ * for depth and nodes a ceiling of its own.
+ * @author Michael Vetter
+ *
+ */
+public final class TimeControl {
+
+	/**
+	 * Kind of limit.
+	 */
+	public enum Type {
+		MOVETIME, CLOCK, DEPTH, NODES
+	}
+
+	// what jessy always did: two seconds per move
+	public static final TimeControl DEFAULT = moveTime(2000L);
+	// ceiling for searches limited by depth or nodes
+	public static final long DEFAULT_MAX_MILLIS = 60000L;
+	// moves the time of a clock gets spread over, without moves to go or if there are more
+	private static final int CLOCK_MOVES = 20;
+
+	private final Type type;
+	private final long baseMillis;
+	private final long incrementMillis;
+	private final int movesToGo;
+	private final int depth;
+	private final long nodes;
+	private final long maxMillis;
+
+	private TimeControl(Type type, long baseMillis, long incrementMillis, int movesToGo, int depth, long nodes, long maxMillis) {
+		this.type = type;
+		this.baseMillis = baseMillis;
+		this.incrementMillis = incrementMillis;
+		this.movesToGo = movesToGo;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * @param millis time per move
+	 * @return fixed time per move
+	 */
+	public static TimeControl moveTime(long millis) {
+		return new TimeControl(Type.MOVETIME, millis, 0, 0, 0, 0, millis);
+	}
+
+	/**
+	 * @param baseMillis time on the clock at the start
+	 * @param incrementMillis time added after each move
+	 * @param movesToGo moves until base time gets added again, 0 for sudden death
+	 * @return chess clock
+	 */
+	public static TimeControl clock(long baseMillis, long incrementMillis, int movesToGo) {
+		return new TimeControl(Type.CLOCK, baseMillis, incrementMillis, movesToGo, 0, 0, baseMillis);
+	}
+
+	/**
+	 * @param depth plies to search
+	 * @return fixed depth
+	 */
+	public static TimeControl depth(int depth) {
+		return depth(depth, DEFAULT_MAX_MILLIS);
+	}
+
+	/**
+	 * @param depth plies to search
+	 * @param maxMillis time after which the search gets stopped anyway
+	 * @return fixed depth
+	 */
+	public static TimeControl depth(int depth, long maxMillis) {
+		return new TimeControl(Type.DEPTH, 0, 0, 0, depth, 0, maxMillis);
+	}
+
+	/**
+	 * @param nodes nodes to search
+	 * @return fixed number of nodes
+	 */
+	public static TimeControl nodes(long nodes) {
+		return nodes(nodes, DEFAULT_MAX_MILLIS);
+	}
+
+	/**
+	 * @param nodes nodes to search
+	 * @param maxMillis time after which the search gets stopped anyway
+	 * @return fixed number of nodes
+	 */
+	public static TimeControl nodes(long nodes, long maxMillis) {
+		return new TimeControl(Type.NODES, 0, 0, 0, 0, nodes, maxMillis);
+	}
+
+	/**
+	 * Parses a time control as typed by the user.
+	 * Formats: "movetime 2000", "depth 8", "nodes 100000",
+	 * "5+2" (minutes + seconds increment) and "40/90+30" (moves/minutes + seconds).
+	 * Depth and nodes take a ceiling in milliseconds, like "depth 8 max 30000".
+	 * All the numbers have to be positive.
+	 * @param text time control
+	 * @return time control
+	 * @throws IllegalArgumentException if text can't be parsed
+	 */
+	public static TimeControl parse(String text) {
+		String[] words = text.trim().split("\\s+");
+		try {
+			if (words.length == 4 && words[2].equals("max")) {
+				long value = Long.parseLong(words[1]);
+				long maxMillis = Long.parseLong(words[3]);
+				if (value > 0 && maxMillis > 0 && words[0].equals("depth")) {
+					return depth(Integer.parseInt(words[1]), maxMillis);
+				} else if (value > 0 && maxMillis > 0 && words[0].equals("nodes")) {
+					return nodes(value, maxMillis);
+				}
+			} else if (words.length == 2) {
+				long value = Long.parseLong(words[1]);
+				if (value > 0 && words[0].equals("movetime")) {
+					return moveTime(value);
+				} else if (value > 0 && words[0].equals("depth")) {
+					return depth(Integer.parseInt(words[1]));
+				} else if (value > 0 && words[0].equals("nodes")) {
+					return nodes(value);
+				}
+			} else if (words.length == 1) {
+				String clock = words[0];
+				int movesToGo = 0;
+				int slash = clock.indexOf('/');
+				if (slash >= 0) {
+					movesToGo = Integer.parseInt(clock.substring(0, slash));
+					clock = clock.substring(slash + 1);
+				}
+				long increment = 0;
+				int plus = clock.indexOf('+');
+				if (plus >= 0) {
+					increment = (long) (Double.parseDouble(clock.substring(plus + 1)) * 1000);
+					clock = clock.substring(0, plus);
+				}
+				long base = (long) (Double.parseDouble(clock) * 60000);
+				if (base > 0 && increment >= 0 && movesToGo >= 0) {
+					return clock(base, increment, movesToGo);
+				}
+			}
+		} catch (NumberFormatException e) {
+			// falls through
+		}
+		throw new IllegalArgumentException("Unknown time control: " + text);
+	}
+
+	/**
+	 * Sets the search limits of a start command.
+	 * @param command command to send to the engine
+	 * @param clock clock of the game, only used for Type.CLOCK
+	 * @param sideToMove color the engine searches for
+	 */
+	public void apply(EngineStartCalculatingCommand command, Clock clock, Color sideToMove) {
+		switch (type) {
+		case CLOCK:
+			command.setClock(GenericColor.WHITE, clock.getRemainingMillis(Color.WHITE));
+			command.setClock(GenericColor.BLACK, clock.getRemainingMillis(Color.BLACK));
+			if (incrementMillis > 0) {
+				command.setClockIncrement(GenericColor.WHITE, incrementMillis);
+				command.setClockIncrement(GenericColor.BLACK, incrementMillis);
+			}
+			if (movesToGo > 0) {
+				command.setMovesToGo(clock.getMovesToGo(sideToMove));
+			}
+			break;
+		case DEPTH:
+			command.setDepth(depth);
+			break;
+		case NODES:
+			command.setNodes(nodes);
+			break;
+		default:
+			command.setMoveTime(baseMillis);
+			break;
+		}
+	}
+
+	/**
+	 * Time after which a search for the side to move gets stopped.
+	 * With a clock it's a share of the remaining time plus the increment,
+	 * never more than the remaining time. The engine manages its own time
+	 * within that, this is only for an engine which doesn't.
+	 * @param clock clock of the game, only used for Type.CLOCK
+	 * @param sideToMove color the engine searches for
+	 * @return milliseconds
+	 */
+	public long getMoveLimitMillis(Clock clock, Color sideToMove) {
+		if (type != Type.CLOCK) {
+			return maxMillis;
+		}
+		long remaining = Math.max(0, clock.getRemainingMillis(sideToMove));
+		int moves = CLOCK_MOVES;
+		if (movesToGo > 0) {
+			moves = Math.max(1, Math.min(CLOCK_MOVES, clock.getMovesToGo(sideToMove)));
+		}
+		return Math.min(remaining, remaining / moves + incrementMillis);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getBaseMillis() {
+		return baseMillis;
+	}
+
+	public long getIncrementMillis() {
+		return incrementMillis;
+	}
+
+	public int getMovesToGo() {
+		return movesToGo;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return time after which a search gets stopped, for Type.CLOCK see getMoveLimitMillis()
+	 */
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	private String formatMax() {
+		return maxMillis == DEFAULT_MAX_MILLIS ? "" : " max " + maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+		case CLOCK:
+			return (movesToGo > 0 ? movesToGo + "/" : "") + (baseMillis / 60000.0) + "+" + (incrementMillis / 1000.0);
+		case DEPTH:
+			return "depth " + depth + formatMax();
+		case NODES:
+			return "nodes " + nodes + formatMax();
+		default:
+			return "movetime " + baseMillis;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.jubalh.jessy;
+
+import java.util.Random;
+
+/**
+ *
+ * Random numbers for Zobrist hashing of positions.
+ * A position key is the xor of the numbers of all its pieces,
+ * castling rights, en passant file and side to move.
+ * @author Michael Vetter
+ *
+ */
+public final class Zobrist {
+
+	// fixed seed, so keys are the same in every run
+	private static final long SEED = 0x6A65737379L;
+
+	private static final long[][] PIECES = new long[Piece.COUNT][Square.COUNT];
+	private static final long[] CASTLING = new long[Board.CASTLING_ALL + 1];
+	private static final long[] EN_PASSANT = new long[8];
+	private static final long BLACK_TO_MOVE;
+
+	static {
+		Random random = new Random(SEED);
+		for (int piece = 0; piece < Piece.COUNT; piece++) {
+			for (int square = 0; square < Square.COUNT; square++) {
+				PIECES[piece][square] = random.nextLong();
+			}
+		}
+		for (int i = 0; i < CASTLING.length; i++) {
+			CASTLING[i] = random.nextLong();
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++) {
+			EN_PASSANT[i] = random.nextLong();
+		}
+		BLACK_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist() { }
+
+	public static long piece(int piece, int square) {
+		return PIECES[piece][square];
+	}
+
+	public static long castling(int castling) {
+		return CASTLING[castling];
+	}
+
+	/**
+	 * @param square en passant square or Square.NONE
+	 * @return key of the en passant file, 0 if none
+	 */
+	public static long enPassant(int square) {
+		if (square == Square.NONE) {
+			return 0L;
+		}
+		return EN_PASSANT[Square.file(square)];
+	}
+
+	public static long blackToMove() {
+		return BLACK_TO_MOVE;
+	}
+}
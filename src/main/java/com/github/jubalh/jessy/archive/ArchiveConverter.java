@@ -0,0 +1,76 @@
+package com.github.jubalh.jessy.archive;
+
+import java.io.IOException;
+
+import com.github.jubalh.jessy.pgn.GameWriter;
+import com.github.jubalh.jessy.pgn.PgnReader;
+import com.github.jubalh.jessy.pgn.PgnValidator;
+import com.github.jubalh.jessy.pgn.PgnWriter;
+
+/**
+ *
+ * Converts between PGN files and game archives.
+ * The direction follows from the file names.
+ * @author Michael Vetter
+ *
+ */
+public final class ArchiveConverter {
+
+	private ArchiveConverter() { }
+
+	/**
+	 * Converts a PGN file into an archive. Games with illegal moves get left out.
+	 * @param pgnFile file to read
+	 * @param archiveFile archive to create
+	 * @return validation result of the PGN file
+	 * @throws IOException if reading or writing fails
+	 */
+	public static PgnValidator.Result toArchive(String pgnFile, String archiveFile) throws IOException {
+		try (PgnReader reader = PgnReader.open(pgnFile);
+				GameWriter writer = new ArchiveWriter(archiveFile)) {
+			return new PgnValidator().validate(reader, writer);
+		}
+	}
+
+	/**
+	 * Converts an archive into a PGN file.
+	 * @param archiveFile archive to read
+	 * @param pgnFile file to create
+	 * @return number of games
+	 * @throws IOException if reading or writing fails
+	 */
+	public static int toPgn(String archiveFile, String pgnFile) throws IOException {
+		try (ArchiveReader reader = new ArchiveReader(archiveFile);
+				GameWriter writer = PgnWriter.open(pgnFile)) {
+			for (int i = 0; i < reader.size(); i++) {
+				writer.write(reader.read(i));
+			}
+			return reader.size();
+		}
+	}
+
+	/**
+	 * Usage: ArchiveConverter games.pgn games.jga or ArchiveConverter games.jga games.pgn
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		if (args.length != 2 || GameArchive.isArchive(args[0]) == GameArchive.isArchive(args[1])) {
+			System.err.println("Usage: ArchiveConverter <in.pgn> <out" + GameArchive.EXTENSION + ">"
+					+ " | <in" + GameArchive.EXTENSION + "> <out.pgn>");
+			System.exit(1);
+		}
+		try {
+			long start = System.nanoTime();
+			if (GameArchive.isArchive(args[1])) {
+				System.out.print(toArchive(args[0], args[1]));
+			} else {
+				int games = toPgn(args[0], args[1]);
+				System.out.println("Games: " + games);
+				System.out.println("Time: " + (System.nanoTime() - start) / 1000000L + " ms");
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
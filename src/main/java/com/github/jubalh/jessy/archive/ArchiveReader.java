@@ -0,0 +1,179 @@
+package com.github.jubalh.jessy.archive;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.pgn.PgnGame;
+
+/**
+ *
+ * Reads an archive through a memory mapping.
+ * Games are found by number through the index, their moves
+ * are read right from the mapping without copying.
+ * Safe to use from several threads.
+ * @author Michael Vetter
+ *
+ */
+public class ArchiveReader implements AutoCloseable {
+
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final int games;
+	private final int indexOffset;
+
+	/**
+	 * Constructor
+	 * @param filename archive to read
+	 * @throws IOException if the file can't be mapped or is no archive
+	 */
+	public ArchiveReader(String filename) throws IOException {
+		file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Archive larger than 2 GB: " + filename);
+			}
+			if (channel.size() < GameArchive.HEADER_SIZE) {
+				throw new IOException("Not a game archive: " + filename);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			byte[] magic = new byte[GameArchive.MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, GameArchive.MAGIC) || buffer.getInt() != GameArchive.VERSION) {
+				throw new IOException("Not a game archive: " + filename);
+			}
+			games = buffer.getInt();
+			long index = buffer.getLong();
+			if (games < 0 || index < GameArchive.HEADER_SIZE || index + 8L * games > channel.size()) {
+				throw new IOException("Broken game archive: " + filename);
+			}
+			indexOffset = (int) index;
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of games
+	 */
+	public int size() {
+		return games;
+	}
+
+	/**
+	 * @param game number of the game, starting at 0
+	 * @return number of plies
+	 */
+	public int getPlies(int game) {
+		return buffer.getShort(offset(game)) & 0xFFFF;
+	}
+
+	/**
+	 * @param game number of the game, starting at 0
+	 * @return result as in PGN
+	 */
+	public String getResult(int game) {
+		return GameArchive.decodeResult(buffer.get(offset(game) + 2));
+	}
+
+	/**
+	 * Reads one move without creating any object,
+	 * for scanning through many games.
+	 * @param game number of the game, starting at 0
+	 * @param ply ply of the move, starting at 0
+	 * @return packed move
+	 */
+	public int getMove(int game, int ply) {
+		return buffer.getShort(movesOffset(game) + 2 * ply) & 0xFFFF;
+	}
+
+	/**
+	 * Returns a view on the moves of a game, no moves get copied.
+	 * @param game number of the game, starting at 0
+	 * @return packed moves, read only
+	 */
+	public ShortBuffer getMoves(int game) {
+		ByteBuffer view = buffer.duplicate();
+		int start = movesOffset(game);
+		view.limit(start + 2 * getPlies(game));
+		view.position(start);
+		return view.slice().asShortBuffer();
+	}
+
+	/**
+	 * @param game number of the game, starting at 0
+	 * @return tags in the order they were written, without the result
+	 */
+	public Map<String, String> getTags(int game) {
+		int position = offset(game);
+		int count = buffer.get(position + 3) & 0xFF;
+		position += GameArchive.GAME_HEADER_SIZE;
+		Map<String, String> tags = new LinkedHashMap<String, String>();
+		for (int i = 0; i < count; i++) {
+			String key = readString(position);
+			position += 2 + (buffer.getShort(position) & 0xFFFF);
+			String value = readString(position);
+			position += 2 + (buffer.getShort(position) & 0xFFFF);
+			tags.put(key, value);
+		}
+		return tags;
+	}
+
+	/**
+	 * Reads a whole game.
+	 * @param game number of the game, starting at 0
+	 * @return game with tags, moves and result
+	 */
+	public PgnGame read(int game) {
+		PgnGame pgnGame = new PgnGame();
+		for (Map.Entry<String, String> tag : getTags(game).entrySet()) {
+			pgnGame.setTag(tag.getKey(), tag.getValue());
+		}
+		pgnGame.setResult(getResult(game));
+		int plies = getPlies(game);
+		int start = movesOffset(game);
+		for (int ply = 0; ply < plies; ply++) {
+			pgnGame.getMoves().add(Move.toGenericMove(buffer.getShort(start + 2 * ply) & 0xFFFF));
+		}
+		return pgnGame;
+	}
+
+	private int offset(int game) {
+		if (game < 0 || game >= games) {
+			throw new IndexOutOfBoundsException("No game " + game + " in archive of " + games);
+		}
+		return (int) buffer.getLong(indexOffset + 8 * game);
+	}
+
+	private int movesOffset(int game) {
+		int offset = offset(game);
+		return offset + GameArchive.GAME_HEADER_SIZE + (buffer.getShort(offset + 4) & 0xFFFF);
+	}
+
+	private String readString(int position) {
+		int length = buffer.getShort(position) & 0xFFFF;
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(position + 2);
+		view.get(bytes);
+		return new String(bytes, GameArchive.CHARSET);
+	}
+
+	/**
+	 * Closes the file. The mapping stays until it gets garbage collected.
+	 * @throws IOException if closing fails
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
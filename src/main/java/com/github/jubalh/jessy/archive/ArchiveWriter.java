@@ -0,0 +1,137 @@
+package com.github.jubalh.jessy.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.pgn.GameWriter;
+import com.github.jubalh.jessy.pgn.PgnGame;
+
+/**
+ *
+ * Writes games into a new archive, one after the other.
+ * The index and the number of games get written on close.
+ * @author Michael Vetter
+ *
+ */
+public class ArchiveWriter implements GameWriter {
+
+	private final FileOutputStream file;
+	private final DataOutputStream out;
+	private long position = 0;
+	private long[] offsets = new long[1024];
+	private int games = 0;
+	// tags of one game get assembled here to know their length
+	private final ByteArrayBuilder tags = new ByteArrayBuilder();
+
+	/**
+	 * Growable byte array which hands out its buffer.
+	 */
+	private static final class ByteArrayBuilder extends ByteArrayOutputStream {
+		byte[] buffer() {
+			return buf;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param filename file to create or overwrite
+	 * @throws IOException if the file can't be created
+	 */
+	public ArchiveWriter(String filename) throws IOException {
+		file = new FileOutputStream(filename);
+		out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+		// gets overwritten on close
+		out.write(new byte[GameArchive.HEADER_SIZE]);
+		position = GameArchive.HEADER_SIZE;
+	}
+
+	/**
+	 * Appends a game.
+	 * @param game game with its moves played
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if the game has too many moves or tags
+	 */
+	public synchronized void write(PgnGame game) throws IOException {
+		int plies = game.getMoves().size();
+		if (plies > GameArchive.MAX_PLIES) {
+			throw new IllegalArgumentException("Game too long for the archive: " + plies + " plies");
+		}
+
+		tags.reset();
+		DataOutputStream tagsOut = new DataOutputStream(tags);
+		int tagCount = 0;
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			// the result has its own field
+			if (tag.getKey().equals("Result")) {
+				continue;
+			}
+			writeString(tagsOut, tag.getKey());
+			writeString(tagsOut, tag.getValue());
+			tagCount++;
+		}
+		if (tagCount > GameArchive.MAX_TAGS || tags.size() > GameArchive.MAX_TAG_BYTES) {
+			throw new IllegalArgumentException("Too many tags for the archive");
+		}
+
+		if (games == offsets.length) {
+			offsets = Arrays.copyOf(offsets, games * 2);
+		}
+		offsets[games++] = position;
+
+		out.writeShort(plies);
+		out.writeByte(GameArchive.encodeResult(game.getResult()));
+		out.writeByte(tagCount);
+		out.writeShort(tags.size());
+		out.write(tags.buffer(), 0, tags.size());
+		for (GenericMove move : game.getMoves()) {
+			out.writeShort(Move.valueOf(move));
+		}
+		position += GameArchive.GAME_HEADER_SIZE + tags.size() + 2L * plies;
+	}
+
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(GameArchive.CHARSET);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * @return number of games written so far
+	 */
+	public synchronized int getGames() {
+		return games;
+	}
+
+	/**
+	 * Writes the index and the header.
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void close() throws IOException {
+		long indexOffset = position;
+		for (int i = 0; i < games; i++) {
+			out.writeLong(offsets[i]);
+		}
+		out.flush();
+
+		ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+		header.put(GameArchive.MAGIC);
+		header.putInt(GameArchive.VERSION);
+		header.putInt(games);
+		header.putLong(indexOffset);
+		header.flip();
+		FileChannel channel = file.getChannel();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		out.close();
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.jubalh.jessy.archive;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.github.jubalh.jessy.pgn.PgnGame;
+
+/**
+ *
+ * Layout of a game archive. All numbers are big endian.
+ *
+ * Header, 32 bytes: magic "JESSYGA1", version (int), number of games (int),
+ * offset of the index (long), 8 reserved bytes.
+ *
+ * Per game: plies (unsigned short), result (byte), number of tags (byte),
+ * length of the tags in bytes (unsigned short), the tags as pairs of
+ * length prefixed UTF-8 strings, then one 16 bit move per ply as packed
+ * by Move (origin, destination and promotion).
+ *
+ * Index: one offset (long) per game, after the last game.
+ * @author Michael Vetter
+ *
+ */
+public final class GameArchive {
+
+	public static final String EXTENSION = ".jga";
+
+	static final byte[] MAGIC = "JESSYGA1".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int GAME_HEADER_SIZE = 6;
+	static final int MAX_PLIES = 0xFFFF;
+	static final int MAX_TAGS = 0xFF;
+	static final int MAX_TAG_BYTES = 0xFFFF;
+	static final Charset CHARSET = StandardCharsets.UTF_8;
+
+	// results in the order of their codes
+	private static final String[] RESULTS = { PgnGame.UNKNOWN, PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW };
+
+	private GameArchive() { }
+
+	static byte encodeResult(String result) {
+		for (int i = 0; i < RESULTS.length; i++) {
+			if (RESULTS[i].equals(result)) {
+				return (byte) i;
+			}
+		}
+		return 0;
+	}
+
+	static String decodeResult(int code) {
+		return code >= 0 && code < RESULTS.length ? RESULTS[code] : PgnGame.UNKNOWN;
+	}
+
+	/**
+	 * @param filename file name
+	 * @return true if the name is the one of an archive
+	 */
+	public static boolean isArchive(String filename) {
+		return filename.endsWith(EXTENSION);
+	}
+}
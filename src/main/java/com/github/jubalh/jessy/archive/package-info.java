@@ -0,0 +1,6 @@
+/**
+ * Binary game archive with 16 bit moves and random access by game number
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.archive;
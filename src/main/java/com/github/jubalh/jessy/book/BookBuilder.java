@@ -0,0 +1,214 @@
+package com.github.jubalh.jessy.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.archive.ArchiveReader;
+import com.github.jubalh.jessy.archive.GameArchive;
+import com.github.jubalh.jessy.pgn.PgnGame;
+import com.github.jubalh.jessy.pgn.PgnReader;
+import com.github.jubalh.jessy.pgn.San;
+
+/**
+ *
+ * Builds an opening book from the first moves of a game collection.
+ * A move weighs two points per won game and one per draw,
+ * seen from the side which played it.
+ * @author Michael Vetter
+ *
+ */
+public class BookBuilder {
+
+	public static final int DEFAULT_PLIES = 20;
+
+	private static final int MAX_WEIGHT = 0xFFFF;
+
+	private final int plies;
+	private final Board board = new Board();
+	private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+	// Polyglot key -> packed move -> weight
+	private final Map<Long, Map<Integer, long[]>> positions = new HashMap<Long, Map<Integer, long[]>>();
+	private long games = 0;
+
+	/**
+	 * Constructor
+	 * @param plies number of plies per game which go into the book
+	 */
+	public BookBuilder(int plies) {
+		this.plies = plies;
+	}
+
+	/**
+	 * Adds the games of a PGN file. Games from set up positions are skipped,
+	 * illegal moves end a game.
+	 * @param reader games to add
+	 * @throws IOException if reading fails
+	 */
+	public void add(PgnReader reader) throws IOException {
+		PgnGame game;
+		while ((game = reader.next()) != null) {
+			if (game.getFen() != null) {
+				continue;
+			}
+			int weightWhite = weightOfWhite(game.getResult());
+			board.reset();
+			board.init();
+			int count = Math.min(plies, game.getSanMoves().size());
+			for (int ply = 0; ply < count; ply++) {
+				int move;
+				try {
+					move = San.parse(board, game.getSanMoves().get(ply), moveBuffer);
+				} catch (IllegalArgumentException e) {
+					break;
+				}
+				add(move, weightWhite);
+			}
+			games++;
+		}
+	}
+
+	/**
+	 * Adds the games of an archive.
+	 * @param archive games to add
+	 */
+	public void add(ArchiveReader archive) {
+		for (int game = 0; game < archive.size(); game++) {
+			if (archive.getTags(game).containsKey("FEN")) {
+				continue;
+			}
+			int weightWhite = weightOfWhite(archive.getResult(game));
+			board.reset();
+			board.init();
+			int count = Math.min(plies, archive.getPlies(game));
+			for (int ply = 0; ply < count; ply++) {
+				add(archive.getMove(game, ply), weightWhite);
+			}
+			games++;
+		}
+	}
+
+	/**
+	 * Counts a move in the current position and plays it.
+	 */
+	private void add(int move, int weightWhite) {
+		int weight = board.getSideToMove() == Color.WHITE ? weightWhite : 2 - weightWhite;
+		long key = PolyglotKey.of(board);
+		Map<Integer, long[]> moves = positions.get(key);
+		if (moves == null) {
+			moves = new HashMap<Integer, long[]>(4);
+			positions.put(key, moves);
+		}
+		int polyglotMove = OpeningBook.toPolyglot(board, move);
+		long[] total = moves.get(polyglotMove);
+		if (total == null) {
+			total = new long[1];
+			moves.put(polyglotMove, total);
+		}
+		total[0] += weight;
+		board.makeMove(move);
+	}
+
+	private static int weightOfWhite(String result) {
+		if (PgnGame.WHITE_WINS.equals(result)) {
+			return 2;
+		}
+		if (PgnGame.BLACK_WINS.equals(result)) {
+			return 0;
+		}
+		return 1;
+	}
+
+	/**
+	 * Writes the book, sorted by key and then by weight.
+	 * Weights get scaled down per position if they don't fit.
+	 * Moves which only lost are left out.
+	 * @param filename file to create or overwrite
+	 * @return number of entries
+	 * @throws IOException if writing fails
+	 */
+	public int write(String filename) throws IOException {
+		List<Long> keys = new ArrayList<Long>(positions.keySet());
+		Collections.sort(keys, (a, b) -> Long.compareUnsigned(a, b));
+		int entries = 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			for (long key : keys) {
+				List<Map.Entry<Integer, long[]>> moves = new ArrayList<Map.Entry<Integer, long[]>>(positions.get(key).entrySet());
+				Collections.sort(moves, (a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+				long max = moves.get(0).getValue()[0];
+				long divisor = max > MAX_WEIGHT ? (max + MAX_WEIGHT - 1) / MAX_WEIGHT : 1;
+				for (Map.Entry<Integer, long[]> move : moves) {
+					long weight = move.getValue()[0] / divisor;
+					if (weight == 0) {
+						continue;
+					}
+					out.writeLong(key);
+					out.writeShort(move.getKey());
+					out.writeShort((int) weight);
+					out.writeInt(0);
+					entries++;
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return number of games added
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * @return number of positions seen
+	 */
+	public int getPositions() {
+		return positions.size();
+	}
+
+	/**
+	 * Usage: BookBuilder games.pgn|games.jga book.bin [plies]
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: BookBuilder <games.pgn|games" + GameArchive.EXTENSION + "> <book.bin> [plies]");
+			System.exit(1);
+		}
+		try {
+			long start = System.nanoTime();
+			BookBuilder builder = new BookBuilder(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES);
+			if (GameArchive.isArchive(args[0])) {
+				try (ArchiveReader archive = new ArchiveReader(args[0])) {
+					builder.add(archive);
+				}
+			} else {
+				try (PgnReader reader = PgnReader.open(args[0])) {
+					builder.add(reader);
+				}
+			}
+			int entries = builder.write(args[1]);
+			System.out.println("Games: " + builder.getGames());
+			System.out.println("Positions: " + builder.getPositions());
+			System.out.println("Entries: " + entries);
+			System.out.println("Time: " + (System.nanoTime() - start) / 1000000L + " ms");
+		} catch (NumberFormatException e) {
+			System.err.println("Plies is not a number: " + args[2]);
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package com.github.jubalh.jessy.book;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Piece;
+
+/**
+ *
+ * Opening book, memory mapped and searched by position key.
+ * Entries have the Polyglot layout: key (long), move (short), weight (short)
+ * and learn (int), big endian and sorted by key. Keys are the ones of
+ * PolyglotKey, so Polyglot books of other programs work as well.
+ * Safe to use from several threads.
+ * @author Michael Vetter
+ *
+ */
+public class OpeningBook implements AutoCloseable {
+
+	static final int ENTRY_SIZE = 16;
+
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final int entries;
+
+	/**
+	 * Constructor
+	 * @param filename book to read
+	 * @throws IOException if the file can't be mapped or has the wrong size
+	 */
+	public OpeningBook(String filename) throws IOException {
+		file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE || size % ENTRY_SIZE != 0) {
+				throw new IOException("Not an opening book: " + filename);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			entries = (int) (size / ENTRY_SIZE);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return entries;
+	}
+
+	/**
+	 * Picks a book move, the more weight the more likely.
+	 * @param board position
+	 * @return legal packed move or Move.NONE if out of book
+	 */
+	public int probe(Board board) {
+		return probe(board, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Picks a book move, the more weight the more likely.
+	 * @param board position
+	 * @param random source of the choice
+	 * @return legal packed move or Move.NONE if out of book
+	 */
+	public int probe(Board board, Random random) {
+		long key = PolyglotKey.of(board);
+		int first = find(key);
+		long total = 0;
+		int last = first;
+		while (last < entries && getKey(last) == key) {
+			total += getWeight(last);
+			last++;
+		}
+		if (total == 0) {
+			return Move.NONE;
+		}
+
+		long pick = (long) (random.nextDouble() * total);
+		for (int i = first; i < last; i++) {
+			pick -= getWeight(i);
+			if (pick < 0) {
+				int move = fromPolyglot(board, buffer.getShort(i * ENTRY_SIZE + 8) & 0xFFFF);
+				// another position with the same key
+				return isLegal(board, move) ? move : Move.NONE;
+			}
+		}
+		return Move.NONE;
+	}
+
+	private static boolean isLegal(Board board, int move) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return index of the first entry with a key not below key
+	 */
+	private int find(long key) {
+		int low = 0;
+		int high = entries;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(getKey(middle), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long getKey(int entry) {
+		return buffer.getLong(entry * ENTRY_SIZE);
+	}
+
+	private int getWeight(int entry) {
+		return buffer.getShort(entry * ENTRY_SIZE + 10) & 0xFFFF;
+	}
+
+	/**
+	 * Polyglot has the destination in the low bits
+	 * and castles as king takes own rook.
+	 * @param board position before the move
+	 * @param move packed move
+	 * @return move in Polyglot encoding
+	 */
+	static int toPolyglot(Board board, int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		if (Piece.type(board.getPiece(from)) == Piece.KING && Math.abs(to - from) == 2) {
+			to = to > from ? from + 3 : from - 4;
+		}
+		return (Move.promotion(move) << 12) | (from << 6) | to;
+	}
+
+	/**
+	 * @param board position before the move
+	 * @param move move in Polyglot encoding
+	 * @return packed move
+	 */
+	static int fromPolyglot(Board board, int move) {
+		int from = (move >>> 6) & 0x3F;
+		int to = move & 0x3F;
+		int promotion = (move >>> 12) & 0x7;
+		int piece = board.getPiece(from);
+		if (Piece.type(piece) == Piece.KING && board.getPiece(to) == Piece.valueOf(Piece.color(piece), Piece.ROOK)) {
+			to = to > from ? from + 2 : from - 2;
+		}
+		return Move.valueOf(from, to, promotion);
+	}
+
+	/**
+	 * Closes the file. The mapping stays until it gets garbage collected.
+	 * @throws IOException if closing fails
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
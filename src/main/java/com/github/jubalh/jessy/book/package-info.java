@@ -0,0 +1,6 @@
+/**
+ * Opening book in the Polyglot file layout
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.book;
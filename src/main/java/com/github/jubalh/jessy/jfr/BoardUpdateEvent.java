@@ -0,0 +1,21 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * Playing a move on the board, castling, en passant and promotion included.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.BoardUpdate")
+@Label("Board Update")
+@Description("Playing a move on the board, castling, en passant and promotion included")
+public final class BoardUpdateEvent extends MoveEvent {
+
+	@Label("Special")
+	@Description("Castling, en passant or promotion, empty for other moves")
+	public String special;
+}
@@ -0,0 +1,21 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * From asking for the computer's move until it got played.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.Engine")
+@Label("Engine Request")
+@Description("From asking for the computer's move until it got played")
+public final class EngineEvent extends MoveEvent {
+
+	@Label("Source")
+	@Description("Where the move came from: book, tablebase, known (searched before), speculation or engine")
+	public String source;
+}
@@ -0,0 +1,37 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+import com.fluxchess.jcpi.models.GenericMove;
+
+/**
+ *
+ * Stage of playing a move, with the move and the ply it was played at.
+ * Create one, begin() it, and only fill and commit() it if
+ * shouldCommit() says so, then recording costs next to nothing while
+ * no recording runs.
+ * @author Michael Vetter
+ *
+ */
+@Category({ "jessy", "Move" })
+@StackTrace(false)
+public abstract class MoveEvent extends Event {
+
+	@Label("Move")
+	protected String move;
+
+	@Label("Ply")
+	protected int ply;
+
+	/**
+	 * @param move move, may be null
+	 * @param ply number of moves played before it
+	 */
+	public void setMove(GenericMove move, int ply) {
+		this.move = move == null ? null : move.toString();
+		this.ply = ply;
+	}
+}
@@ -0,0 +1,20 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * Reading a move the user typed.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.Parse")
+@Label("Parse")
+@Description("Reading a move the user typed")
+public final class ParseEvent extends MoveEvent {
+
+	@Label("Input")
+	public String input;
+}
@@ -0,0 +1,17 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * A move of the user, from validation to the reply being asked for.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.Process")
+@Label("Process")
+@Description("A move of the user, from validation to the reply being asked for")
+public final class ProcessEvent extends MoveEvent {
+}
@@ -0,0 +1,22 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * Drawing the board.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.Redraw")
+@Label("Redraw")
+@Description("Drawing the board")
+public final class RedrawEvent extends MoveEvent {
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+}
@@ -0,0 +1,20 @@
+package com.github.jubalh.jessy.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *
+ * Checking whether a move is legal.
+ * @author Michael Vetter
+ *
+ */
+@Name("jessy.Validation")
+@Label("Validation")
+@Description("Checking whether a move is legal")
+public final class ValidationEvent extends MoveEvent {
+
+	@Label("Valid")
+	public boolean valid;
+}
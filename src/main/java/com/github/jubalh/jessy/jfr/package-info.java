@@ -0,0 +1,6 @@
+/**
+ * Java Flight Recorder events for each stage of playing a move
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.jfr;
@@ -0,0 +1,35 @@
+package com.github.jubalh.jessy.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Counts events, from any number of threads without contention.
+ * @author Michael Vetter
+ *
+ */
+public final class Counter implements CounterMBean {
+
+	private final LongAdder count = new LongAdder();
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long n) {
+		count.add(n);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public void reset() {
+		count.reset();
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(getCount());
+	}
+}
@@ -0,0 +1,12 @@
+package com.github.jubalh.jessy.metrics;
+
+/**
+ * JMX view of a Counter.
+ * @author Michael Vetter
+ */
+public interface CounterMBean {
+
+	long getCount();
+
+	void reset();
+}
@@ -0,0 +1,32 @@
+package com.github.jubalh.jessy.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * A value going up and down, like the length of a queue.
+ * Several queues can share one gauge to show their total.
+ * @author Michael Vetter
+ *
+ */
+public final class Gauge implements GaugeMBean {
+
+	private final LongAdder value = new LongAdder();
+
+	public void increment() {
+		value.increment();
+	}
+
+	public void decrement() {
+		value.decrement();
+	}
+
+	public long getValue() {
+		return value.sum();
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(getValue());
+	}
+}
@@ -0,0 +1,10 @@
+package com.github.jubalh.jessy.metrics;
+
+/**
+ * JMX view of a Gauge.
+ * @author Michael Vetter
+ */
+public interface GaugeMBean {
+
+	long getValue();
+}
@@ -0,0 +1,175 @@
+package com.github.jubalh.jessy.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Distribution of values with a relative error below 1 percent,
+ * like HdrHistogram: values below 256 get a bucket each, above that
+ * every power of two is split into 128 buckets, so a bucket is at most
+ * 1/128 of its values wide. Recording finds the bucket with a few shifts
+ * and increments it without locking. Only the LongAdders of count and sum
+ * allocate, once, when threads first contend on them.
+ * Timings get recorded in nanoseconds and reported in microseconds.
+ * @author Michael Vetter
+ *
+ */
+public final class Histogram implements HistogramMBean {
+
+	// significant bits of a value which get their own buckets
+	private static final int SUB_BUCKET_BITS = 8;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	// enough for every positive long
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(0);
+	// recorded values per reported unit
+	private final long divisor;
+	private final String unit;
+
+	private Histogram(long divisor, String unit) {
+		this.divisor = divisor;
+		this.unit = unit;
+	}
+
+	/**
+	 * @return histogram for durations recorded in nanoseconds
+	 */
+	public static Histogram timer() {
+		return new Histogram(1000, "us");
+	}
+
+	/**
+	 * @return histogram for values like sizes, reported as recorded
+	 */
+	public static Histogram values() {
+		return new Histogram(1, "");
+	}
+
+	/**
+	 * Adds a value, negative ones count as 0.
+	 * @param value value
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+			// retry
+		}
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Records the time since start.
+	 * @param startNanos System.nanoTime() at the start
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	static int index(long value) {
+		int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+	}
+
+	/**
+	 * @return largest value which falls into the bucket
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long subBucket = index - shift * HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n / divisor;
+	}
+
+	public long getMin() {
+		return count.sum() == 0 ? 0 : min.get() / divisor;
+	}
+
+	public long getMax() {
+		return max.get() / divisor;
+	}
+
+	/**
+	 * Value which the given share of all values is at or below.
+	 * @param percentile between 0 and 100
+	 * @return value, in reported units
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long n = count.sum();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max.get()) / divisor;
+			}
+		}
+		return max.get() / divisor;
+	}
+
+	public long getP50() {
+		return getValueAtPercentile(50);
+	}
+
+	public long getP90() {
+		return getValueAtPercentile(90);
+	}
+
+	public long getP99() {
+		return getValueAtPercentile(99);
+	}
+
+	public long getP999() {
+		return getValueAtPercentile(99.9);
+	}
+
+	/**
+	 * Forgets all values.
+	 * Values recorded at the same time may get lost or counted half.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "n=%d mean=%.1f%s p50=%d p90=%d p99=%d p99.9=%d max=%d%s",
+				getCount(), getMean(), unit, getP50(), getP90(), getP99(), getP999(), getMax(), unit);
+	}
+}
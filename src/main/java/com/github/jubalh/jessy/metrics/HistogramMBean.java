@@ -0,0 +1,26 @@
+package com.github.jubalh.jessy.metrics;
+
+/**
+ * JMX view of a Histogram, values in microseconds for timings.
+ * @author Michael Vetter
+ */
+public interface HistogramMBean {
+
+	long getCount();
+
+	double getMean();
+
+	long getMin();
+
+	long getMax();
+
+	long getP50();
+
+	long getP90();
+
+	long getP99();
+
+	long getP999();
+
+	void reset();
+}
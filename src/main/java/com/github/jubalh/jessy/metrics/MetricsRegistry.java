@@ -0,0 +1,136 @@
+package com.github.jubalh.jessy.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * All metrics of jessy by name, like "game.process".
+ * Metrics get looked up once and kept in a static field by the code
+ * measuring, so recording doesn't go through the registry.
+ * Once JMX is on, every metric shows up as an MBean under
+ * com.github.jubalh.jessy.metrics.
+ * @author Michael Vetter
+ *
+ */
+public final class MetricsRegistry {
+
+	private static final String DOMAIN = "com.github.jubalh.jessy.metrics";
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+	private volatile MBeanServer server = null;
+
+	/**
+	 * @return registry all of jessy uses
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @param name name
+	 * @return counter of this name, created if there is none
+	 */
+	public Counter counter(String name) {
+		return get(name, Counter.class, new Counter());
+	}
+
+	/**
+	 * @param name name
+	 * @return gauge of this name, created if there is none
+	 */
+	public Gauge gauge(String name) {
+		return get(name, Gauge.class, new Gauge());
+	}
+
+	/**
+	 * @param name name
+	 * @return histogram for durations in nanoseconds of this name, created if there is none
+	 */
+	public Histogram timer(String name) {
+		return get(name, Histogram.class, Histogram.timer());
+	}
+
+	/**
+	 * @param name name
+	 * @return histogram for plain values of this name, created if there is none
+	 */
+	public Histogram histogram(String name) {
+		return get(name, Histogram.class, Histogram.values());
+	}
+
+	private <T> T get(String name, Class<T> type, T created) {
+		Object existing = metrics.putIfAbsent(name, created);
+		if (existing == null) {
+			register(name, created);
+			return created;
+		}
+		if (!type.isInstance(existing)) {
+			throw new IllegalArgumentException(name + " is not a " + type.getSimpleName());
+		}
+		return type.cast(existing);
+	}
+
+	/**
+	 * Makes all metrics, the ones there are and the ones still to come,
+	 * available through the platform MBean server.
+	 */
+	public synchronized void enableJmx() {
+		if (server != null) {
+			return;
+		}
+		server = ManagementFactory.getPlatformMBeanServer();
+		for (Map.Entry<String, Object> metric : metrics.entrySet()) {
+			register(metric.getKey(), metric.getValue());
+		}
+	}
+
+	private void register(String name, Object metric) {
+		MBeanServer mBeanServer = server;
+		if (mBeanServer == null) {
+			return;
+		}
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + metric.getClass().getSimpleName()
+					+ ",name=" + ObjectName.quote(name));
+			mBeanServer.registerMBean(metric, objectName);
+		} catch (InstanceAlreadyExistsException e) {
+			// registered by enableJmx and by get at the same time
+		} catch (JMException e) {
+			System.err.println("Can't register " + name + " with JMX: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Empties all histograms and counters, gauges keep their value.
+	 */
+	public void reset() {
+		for (Object metric : metrics.values()) {
+			if (metric instanceof Histogram) {
+				((Histogram) metric).reset();
+			} else if (metric instanceof Counter) {
+				((Counter) metric).reset();
+			}
+		}
+	}
+
+	/**
+	 * @return one line per metric, sorted by name
+	 */
+	public String format() {
+		StringBuilder s = new StringBuilder();
+		for (Map.Entry<String, Object> metric : new TreeMap<String, Object>(metrics).entrySet()) {
+			s.append(metric.getKey()).append(": ").append(metric.getValue()).append('\n');
+		}
+		return s.toString();
+	}
+}
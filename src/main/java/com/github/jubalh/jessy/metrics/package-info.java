@@ -0,0 +1,6 @@
+/**
+ * Counters, gauges and latency histograms, also available through JMX
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.metrics;
@@ -0,0 +1,21 @@
+package com.github.jubalh.jessy.pgn;
+
+import java.io.IOException;
+
+/**
+ *
+ * Anything games can be stored into, one after the other.
+ * @author Michael Vetter
+ *
+ */
+public interface GameWriter extends AutoCloseable {
+
+	/**
+	 * Stores one game.
+	 * @param game game with its moves played
+	 * @throws IOException if writing fails
+	 */
+	void write(PgnGame game) throws IOException;
+
+	void close() throws IOException;
+}
@@ -0,0 +1,131 @@
+package com.github.jubalh.jessy.pgn;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.Game;
+
+/**
+ *
+ * A game as stored in PGN: tag pairs, moves and result.
+ * Games coming from a PgnReader only have their moves in SAN
+ * until something plays them on a board.
+ * @author Michael Vetter
+ *
+ */
+public class PgnGame {
+
+	public static final String WHITE_WINS = "1-0";
+	public static final String BLACK_WINS = "0-1";
+	public static final String DRAW = "1/2-1/2";
+	public static final String UNKNOWN = "*";
+
+	// the seven tag roster comes first, in this order
+	private static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+
+	private final Map<String, String> tags = new LinkedHashMap<String, String>();
+	private final List<GenericMove> moves = new ArrayList<GenericMove>();
+	private final List<String> sanMoves = new ArrayList<String>();
+
+	/**
+	 * Constructor setting the seven tag roster to unknown values.
+	 */
+	public PgnGame() {
+		for (String tag : SEVEN_TAG_ROSTER) {
+			tags.put(tag, "?");
+		}
+		tags.put("Result", UNKNOWN);
+	}
+
+	/**
+	 * Creates a PGN game of the moves played so far.
+	 * @param game game
+	 * @return PGN game with result, if the game is over
+	 */
+	public static PgnGame of(Game game) {
+		PgnGame pgnGame = new PgnGame();
+		pgnGame.setTag("Event", "jessy");
+		pgnGame.setTag("Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date()));
+		pgnGame.setTag("White", "Player");
+		pgnGame.setTag("Black", game.isComputerGame() ? "Flux" : "Player");
+		pgnGame.setFen(game.getStartFen());
+		pgnGame.getMoves().addAll(game.getMoves());
+
+		switch (game.getStatus()) {
+		case CHECKMATE:
+			pgnGame.setResult(game.getBoard().getSideToMove() == Color.WHITE ? BLACK_WINS : WHITE_WINS);
+			break;
+		case STALEMATE:
+			pgnGame.setResult(DRAW);
+			break;
+		default:
+			break;
+		}
+		return pgnGame;
+	}
+
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	public void setTag(String name, String value) {
+		tags.put(name, value);
+	}
+
+	/**
+	 * @return tags in the order they get written
+	 */
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	/**
+	 * @return moves from the start position
+	 */
+	public List<GenericMove> getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return moves in SAN as read, empty for games not read from PGN
+	 */
+	public List<String> getSanMoves() {
+		return sanMoves;
+	}
+
+	/**
+	 * @return position the game starts from, null for the standard one
+	 */
+	public String getFen() {
+		return tags.get("FEN");
+	}
+
+	/**
+	 * Sets the position the game starts from.
+	 * @param fen position, null or the standard one for none
+	 */
+	public void setFen(String fen) {
+		if (fen == null || fen.equals(Board.STANDARD_FEN)) {
+			tags.remove("SetUp");
+			tags.remove("FEN");
+		} else {
+			tags.put("SetUp", "1");
+			tags.put("FEN", fen);
+		}
+	}
+
+	public String getResult() {
+		return tags.get("Result");
+	}
+
+	public void setResult(String result) {
+		tags.put("Result", result);
+	}
+}
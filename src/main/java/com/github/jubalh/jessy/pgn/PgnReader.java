@@ -0,0 +1,265 @@
+package com.github.jubalh.jessy.pgn;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Reads PGN files one game at a time.
+ * Only the current game is kept in memory, so files of any size can be read.
+ * Comments, variations and numeric annotation glyphs are skipped,
+ * moves are kept in SAN for PgnGame.getSanMoves().
+ * @author Michael Vetter
+ *
+ */
+public class PgnReader implements AutoCloseable {
+
+	/**
+	 * Character set of PGN files as of the standard.
+	 */
+	public static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int EOF = -1;
+
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	// one character can be put back
+	private int pushedBack = EOF - 1;
+	// whether the last character read was the first of its line
+	private boolean lineStart = true;
+	private boolean afterNewline = true;
+	private final StringBuilder token = new StringBuilder();
+	private long gamesRead = 0;
+
+	/**
+	 * Opens a file for reading, in the character set PGN files use.
+	 * @param filename file to read
+	 * @return reader
+	 * @throws IOException if the file can't be opened
+	 */
+	public static PgnReader open(String filename) throws IOException {
+		return new PgnReader(new InputStreamReader(new FileInputStream(filename), CHARSET));
+	}
+
+	/**
+	 * Constructor
+	 * @param reader where to read from, buffering happens here
+	 */
+	public PgnReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next game.
+	 * A game ends with its result, or where the next tags start.
+	 * @return game or null at the end of the input
+	 * @throws IOException if reading fails
+	 */
+	public PgnGame next() throws IOException {
+		PgnGame game = null;
+		int variationDepth = 0;
+		boolean inMoves = false;
+
+		int c;
+		while ((c = read()) != EOF) {
+			if (c == '%' && lineStart) {
+				// escaped line
+				skipLine();
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			if (game == null) {
+				game = new PgnGame();
+			}
+			switch (c) {
+			case '[':
+				if (inMoves) {
+					// tags of the next game, this one has no result
+					unread(c);
+					gamesRead++;
+					return game;
+				}
+				readTag(game);
+				break;
+			case '{':
+				skipUntil('}');
+				break;
+			case ';':
+				skipLine();
+				break;
+			case '(':
+				inMoves = true;
+				variationDepth++;
+				break;
+			case ')':
+				variationDepth = Math.max(0, variationDepth - 1);
+				break;
+			case '$':
+				readToken(c);
+				break;
+			default:
+				inMoves = true;
+				readToken(c);
+				if (variationDepth > 0) {
+					break;
+				}
+				String text = token.toString();
+				if (isResult(text)) {
+					game.setResult(text);
+					gamesRead++;
+					return game;
+				}
+				String move = stripMoveNumber(text);
+				if (!move.isEmpty()) {
+					game.getSanMoves().add(move);
+				}
+				break;
+			}
+		}
+		if (game != null) {
+			gamesRead++;
+		}
+		return game;
+	}
+
+	/**
+	 * @return number of games read so far
+	 */
+	public long getGamesRead() {
+		return gamesRead;
+	}
+
+	/**
+	 * Reads a tag pair after its '['.
+	 * Broken tags get skipped up to the end of the line.
+	 */
+	private void readTag(PgnGame game) throws IOException {
+		token.setLength(0);
+		int c = read();
+		while (c != EOF && !Character.isWhitespace(c) && c != '"' && c != ']') {
+			token.append((char) c);
+			c = read();
+		}
+		String name = token.toString();
+		while (c != EOF && c != '"' && c != ']' && c != '\n') {
+			c = read();
+		}
+		if (c != '"') {
+			if (c == '\n') {
+				unread(c);
+			}
+			return;
+		}
+
+		token.setLength(0);
+		while ((c = read()) != EOF && c != '"' && c != '\n') {
+			if (c == '\\') {
+				c = read();
+				if (c == EOF) {
+					break;
+				}
+			}
+			token.append((char) c);
+		}
+		if (!name.isEmpty()) {
+			game.setTag(name, token.toString());
+		}
+		while (c != EOF && c != ']' && c != '\n') {
+			c = read();
+		}
+	}
+
+	/**
+	 * Reads up to the next delimiter into token.
+	 */
+	private void readToken(int first) throws IOException {
+		token.setLength(0);
+		token.append((char) first);
+		int c;
+		while ((c = read()) != EOF) {
+			if (Character.isWhitespace(c) || "{}()[];$".indexOf(c) >= 0) {
+				unread(c);
+				break;
+			}
+			token.append((char) c);
+		}
+	}
+
+	private static boolean isResult(String text) {
+		return text.equals(PgnGame.WHITE_WINS) || text.equals(PgnGame.BLACK_WINS)
+				|| text.equals(PgnGame.DRAW) || text.equals(PgnGame.UNKNOWN);
+	}
+
+	/**
+	 * Takes "12.", "12...", "..." and "12.e4" apart from the move,
+	 * as well as annotations like "!?".
+	 * @return move, empty for a move number only
+	 */
+	private static String stripMoveNumber(String text) {
+		int end = text.length();
+		while (end > 0 && (text.charAt(end - 1) == '!' || text.charAt(end - 1) == '?')) {
+			end--;
+		}
+		text = text.substring(0, end);
+		int i = 0;
+		while (i < text.length() && Character.isDigit(text.charAt(i))) {
+			i++;
+		}
+		// castling written with zeros
+		if (i > 0 && text.charAt(0) == '0' && i < text.length() && text.charAt(i) == '-') {
+			return text;
+		}
+		while (i < text.length() && text.charAt(i) == '.') {
+			i++;
+		}
+		return text.substring(i);
+	}
+
+	private void skipUntil(int end) throws IOException {
+		int c;
+		while ((c = read()) != EOF && c != end) {
+			// skip
+		}
+	}
+
+	private void skipLine() throws IOException {
+		skipUntil('\n');
+	}
+
+	private void unread(int c) {
+		pushedBack = c;
+	}
+
+	private int read() throws IOException {
+		if (pushedBack >= EOF) {
+			int c = pushedBack;
+			pushedBack = EOF - 1;
+			return c;
+		}
+		if (position == limit) {
+			limit = reader.read(buffer, 0, BUFFER_SIZE);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return EOF;
+			}
+		}
+		char c = buffer[position++];
+		lineStart = afterNewline;
+		afterNewline = c == '\n';
+		return c;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
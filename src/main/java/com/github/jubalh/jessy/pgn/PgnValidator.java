@@ -0,0 +1,252 @@
+package com.github.jubalh.jessy.pgn;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.EnginePool;
+import com.github.jubalh.jessy.Game;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+
+/**
+ *
+ * Plays the games of a PGN file through Game, on all cores.
+ * The reader stays on the calling thread, the games get validated
+ * by a pool of workers with one Game each. Only a fixed number of games
+ * is in flight at a time and they leave in the order they came in.
+ * @author Michael Vetter
+ *
+ */
+public class PgnValidator {
+
+	// games per worker waiting to be validated or written
+	private static final int GAMES_IN_FLIGHT_PER_THREAD = 64;
+	// errors worth printing, the count goes on
+	private static final int MAX_ERRORS = 20;
+
+	/**
+	 * Outcome of validating a whole file.
+	 */
+	public static final class Result {
+		private long games = 0;
+		private long invalid = 0;
+		private long moves = 0;
+		private long nanos = 0;
+		private final List<String> errors = new ArrayList<String>();
+
+		public long getGames() {
+			return games;
+		}
+
+		public long getInvalid() {
+			return invalid;
+		}
+
+		public long getMoves() {
+			return moves;
+		}
+
+		/**
+		 * @return first errors with the number of their game
+		 */
+		public List<String> getErrors() {
+			return errors;
+		}
+
+		public long getGamesPerMinute() {
+			return nanos == 0 ? 0 : games * 60000000000L / nanos;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			for (String error : errors) {
+				s.append(error).append('\n');
+			}
+			s.append("Games: ").append(games).append('\n');
+			s.append("Invalid: ").append(invalid).append('\n');
+			s.append("Moves: ").append(moves).append('\n');
+			s.append("Time: ").append(nanos / 1000000L).append(" ms\n");
+			s.append(String.format(Locale.ROOT, "Games/minute: %d%n", getGamesPerMinute()));
+			return s.toString();
+		}
+	}
+
+	private final int threads;
+	private final ThreadLocal<Game> games = new ThreadLocal<Game>() {
+		@Override
+		protected Game initialValue() {
+			// no engine needed for replaying
+			return new Game(new Board(), (EnginePool) null);
+		}
+	};
+	private final ThreadLocal<int[]> moveBuffers = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[MoveGenerator.MAX_MOVES];
+		}
+	};
+
+	/**
+	 * Constructor using one thread per core.
+	 */
+	public PgnValidator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor
+	 * @param threads number of worker threads
+	 */
+	public PgnValidator(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Validator needs at least one thread");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Validates all games of a reader.
+	 * @param reader games to validate
+	 * @param writer gets the valid games, null for none
+	 * @return result
+	 * @throws IOException if reading or writing fails
+	 */
+	public Result validate(PgnReader reader, GameWriter writer) throws IOException {
+		Result result = new Result();
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<String>> inFlight = new ArrayDeque<Future<String>>();
+		ArrayDeque<PgnGame> inFlightGames = new ArrayDeque<PgnGame>();
+		int window = threads * GAMES_IN_FLIGHT_PER_THREAD;
+
+		try {
+			PgnGame game;
+			while ((game = reader.next()) != null) {
+				final PgnGame toValidate = game;
+				inFlight.add(executor.submit(() -> validate(toValidate)));
+				inFlightGames.add(game);
+				if (inFlight.size() >= window) {
+					collect(inFlight.poll(), inFlightGames.poll(), result, writer);
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				collect(inFlight.poll(), inFlightGames.poll(), result, writer);
+			}
+		} finally {
+			executor.shutdownNow();
+			result.nanos = System.nanoTime() - start;
+		}
+		return result;
+	}
+
+	private static void collect(Future<String> future, PgnGame game, Result result, GameWriter writer)
+			throws IOException {
+		String error;
+		try {
+			error = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted");
+		} catch (ExecutionException e) {
+			error = String.valueOf(e.getCause());
+		}
+		result.games++;
+		if (error == null) {
+			result.moves += game.getMoves().size();
+			if (writer != null) {
+				writer.write(game);
+			}
+		} else {
+			result.invalid++;
+			if (result.errors.size() < MAX_ERRORS) {
+				result.errors.add("Game " + result.games + ": " + error);
+			}
+		}
+	}
+
+	/**
+	 * Plays the SAN moves of a game and stores them as moves.
+	 * @param pgnGame game as read
+	 * @return error or null if all moves are legal
+	 */
+	public String validate(PgnGame pgnGame) {
+		return play(pgnGame, games.get(), moveBuffers.get());
+	}
+
+	/**
+	 * Starts a game at the position of a PGN game and plays its SAN moves.
+	 * The moves get stored in the PGN game as well.
+	 * Games without SAN moves get their moves played instead.
+	 * @param pgnGame game as read
+	 * @param game game to play on, gets initialized
+	 * @param moves buffer for legal moves
+	 * @return error or null if all moves are legal
+	 */
+	public static String play(PgnGame pgnGame, Game game, int[] moves) {
+		try {
+			if (pgnGame.getFen() == null) {
+				game.init();
+			} else {
+				game.init(pgnGame.getFen());
+			}
+		} catch (IllegalNotationException e) {
+			return "Illegal FEN: " + pgnGame.getFen();
+		}
+
+		Board board = game.getBoard();
+		if (pgnGame.getSanMoves().isEmpty()) {
+			for (GenericMove move : pgnGame.getMoves()) {
+				if (!game.isValidMove(move)) {
+					return "Move " + board.getFullMoveNumber() + ": Illegal move: " + move;
+				}
+				game.makeMove(move);
+				game.nextPlayer();
+			}
+			return null;
+		}
+		pgnGame.getMoves().clear();
+		for (String san : pgnGame.getSanMoves()) {
+			GenericMove move;
+			try {
+				move = Move.toGenericMove(San.parse(board, san, moves));
+				game.makeMove(move);
+			} catch (IllegalArgumentException e) {
+				pgnGame.getMoves().clear();
+				return "Move " + board.getFullMoveNumber() + ": " + e.getMessage();
+			}
+			game.nextPlayer();
+			pgnGame.getMoves().add(move);
+		}
+		return null;
+	}
+
+	/**
+	 * Validates a PGN file without the command line interface.
+	 * Usage: PgnValidator file.pgn [out.pgn]
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: PgnValidator <file.pgn> [out.pgn]");
+			System.exit(1);
+		}
+		try (PgnReader reader = PgnReader.open(args[0]);
+				GameWriter writer = args.length > 1 ? PgnWriter.open(args[1]) : null) {
+			System.out.print(new PgnValidator().validate(reader, writer));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
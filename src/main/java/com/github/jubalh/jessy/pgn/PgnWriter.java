@@ -0,0 +1,125 @@
+package com.github.jubalh.jessy.pgn;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.Move;
+
+/**
+ *
+ * Writes games in PGN export format.
+ * Moves are converted to SAN on the way.
+ * @author Michael Vetter
+ *
+ */
+public class PgnWriter implements GameWriter {
+
+	private static final int LINE_LENGTH = 79;
+
+	private final BufferedWriter writer;
+	private final Board board = new Board();
+
+	/**
+	 * Opens a file for writing, in the character set PGN files use.
+	 * @param filename file to create or overwrite
+	 * @return writer
+	 * @throws IOException if the file can't be created
+	 */
+	public static PgnWriter open(String filename) throws IOException {
+		return new PgnWriter(new OutputStreamWriter(new FileOutputStream(filename), PgnReader.CHARSET));
+	}
+
+	/**
+	 * Constructor
+	 * @param writer where to write to
+	 */
+	public PgnWriter(Writer writer) {
+		this.writer = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+	}
+
+	/**
+	 * Writes one game.
+	 * Games which were never played on a board get their SAN moves written as read.
+	 * @param game game
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if a move is not legal or the FEN can't be read
+	 */
+	public synchronized void write(PgnGame game) throws IOException {
+		for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			writer.write("[" + tag.getKey() + " \"" + escape(tag.getValue()) + "\"]");
+			writer.newLine();
+		}
+		writer.newLine();
+
+		if (game.getFen() == null) {
+			board.reset();
+			board.init();
+		} else {
+			try {
+				board.setFen(game.getFen());
+			} catch (IllegalNotationException e) {
+				throw new IllegalArgumentException("Illegal FEN: " + game.getFen());
+			}
+		}
+		StringBuilder line = new StringBuilder();
+		int moveNumber = board.getFullMoveNumber();
+		boolean white = board.getSideToMove() == Color.WHITE;
+		if (!white) {
+			append(line, moveNumber + "...");
+		}
+		boolean played = !game.getMoves().isEmpty() || game.getSanMoves().isEmpty();
+		int count = played ? game.getMoves().size() : game.getSanMoves().size();
+		for (int i = 0; i < count; i++) {
+			String token;
+			if (played) {
+				int move = Move.valueOf(game.getMoves().get(i));
+				token = San.toSan(board, move);
+				board.makeMove(move);
+			} else {
+				token = game.getSanMoves().get(i);
+			}
+			if (white) {
+				token = moveNumber + ". " + token;
+			} else {
+				moveNumber++;
+			}
+			white = !white;
+			append(line, token);
+		}
+		append(line, game.getResult());
+		writer.write(line.toString());
+		writer.newLine();
+		writer.newLine();
+	}
+
+	private void append(StringBuilder line, String token) throws IOException {
+		if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+			writer.write(line.toString());
+			writer.newLine();
+			line.setLength(0);
+		}
+		if (line.length() > 0) {
+			line.append(' ');
+		}
+		line.append(token);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	public synchronized void flush() throws IOException {
+		writer.flush();
+	}
+
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,183 @@
+package com.github.jubalh.jessy.pgn;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.Piece;
+import com.github.jubalh.jessy.Square;
+
+/**
+ *
+ * Standard Algebraic Notation, like "Nbd7", "exd5", "O-O" or "e8=Q+".
+ * @author Michael Vetter
+ *
+ */
+public final class San {
+
+	// piece letters in the order of the piece types, pawns have none
+	private static final String PIECE_LETTERS = " NBRQK";
+
+	private San() { }
+
+	/**
+	 * Writes a move in SAN.
+	 * @param board position before the move, gets restored afterwards
+	 * @param move legal packed move
+	 * @return move in SAN
+	 */
+	public static String toSan(Board board, int move) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int type = Piece.type(board.getPiece(from));
+		boolean capture = board.getPiece(to) != Piece.NONE
+				|| (type == Piece.PAWN && Square.file(from) != Square.file(to));
+		StringBuilder san = new StringBuilder(8);
+
+		if (type == Piece.KING && Math.abs(to - from) == 2) {
+			san.append(to > from ? "O-O" : "O-O-O");
+		} else {
+			if (type == Piece.PAWN) {
+				if (capture) {
+					san.append((char) ('a' + Square.file(from)));
+				}
+			} else {
+				san.append(PIECE_LETTERS.charAt(type));
+				appendDisambiguation(board, move, type, san);
+			}
+			if (capture) {
+				san.append('x');
+			}
+			san.append(Square.toString(to));
+			if (Move.promotion(move) != 0) {
+				san.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+			}
+		}
+
+		board.makeMove(move);
+		if (board.isCheck()) {
+			san.append(MoveGenerator.hasLegalMove(board, new int[MoveGenerator.MAX_MOVES]) ? '+' : '#');
+		}
+		board.unmakeMove();
+		return san.toString();
+	}
+
+	/**
+	 * Reads a move in SAN. Check marks and annotations like "!?" are ignored,
+	 * "0-0" and promotions without '=' are accepted as well.
+	 * @param board position the move is played in
+	 * @param san move in SAN
+	 * @param moves buffer for the legal moves of the position
+	 * @return legal packed move
+	 * @throws IllegalArgumentException if no legal move or more than one matches
+	 */
+	public static int parse(Board board, String san, int[] moves) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+
+		if (san.startsWith("O-O") || san.startsWith("0-0")) {
+			boolean queenside = end >= 5;
+			for (int i = 0; i < size; i++) {
+				int from = Move.from(moves[i]);
+				int to = Move.to(moves[i]);
+				if (Piece.type(board.getPiece(from)) == Piece.KING && to - from == (queenside ? -2 : 2)) {
+					return moves[i];
+				}
+			}
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+
+		int promotion = 0;
+		if (end > 0 && PIECE_LETTERS.indexOf(san.charAt(end - 1)) > 0) {
+			promotion = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+			end--;
+			if (end > 0 && san.charAt(end - 1) == '=') {
+				end--;
+			}
+		}
+		if (end < 2) {
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		int to = square(san.charAt(end - 2), san.charAt(end - 1));
+
+		int start = 0;
+		int type = Piece.PAWN;
+		if (PIECE_LETTERS.indexOf(san.charAt(0)) > 0) {
+			type = PIECE_LETTERS.indexOf(san.charAt(0));
+			start = 1;
+		}
+		// whatever is left of the origin, without the capture mark
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = san.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			} else if (c >= '1' && c <= '8') {
+				fromRank = c - '1';
+			} else if (c != 'x' && c != ':' && c != '-') {
+				throw new IllegalArgumentException("Illegal move: " + san);
+			}
+		}
+
+		int found = Move.NONE;
+		for (int i = 0; i < size; i++) {
+			int move = moves[i];
+			int from = Move.from(move);
+			if (Move.to(move) == to && Move.promotion(move) == promotion
+					&& Piece.type(board.getPiece(from)) == type
+					&& (fromFile < 0 || Square.file(from) == fromFile)
+					&& (fromRank < 0 || Square.rank(from) == fromRank)) {
+				if (found != Move.NONE) {
+					throw new IllegalArgumentException("Ambiguous move: " + san);
+				}
+				found = move;
+			}
+		}
+		if (found == Move.NONE) {
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		return found;
+	}
+
+	private static int square(char file, char rank) {
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+			return Square.NONE;
+		}
+		return Square.valueOf(file - 'a', rank - '1');
+	}
+
+	/**
+	 * Adds file, rank or both of the origin if another piece of the
+	 * same kind could move to the same square.
+	 */
+	private static void appendDisambiguation(Board board, int move, int type, StringBuilder san) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+		boolean ambiguous = false;
+		boolean sameFile = false;
+		boolean sameRank = false;
+		for (int i = 0; i < size; i++) {
+			int other = Move.from(moves[i]);
+			if (other != from && Move.to(moves[i]) == to && Piece.type(board.getPiece(other)) == type) {
+				ambiguous = true;
+				sameFile |= Square.file(other) == Square.file(from);
+				sameRank |= Square.rank(other) == Square.rank(from);
+			}
+		}
+		if (!ambiguous) {
+			return;
+		}
+		if (!sameFile) {
+			san.append((char) ('a' + Square.file(from)));
+		} else if (!sameRank) {
+			san.append((char) ('1' + Square.rank(from)));
+		} else {
+			san.append(Square.toString(from));
+		}
+	}
+}
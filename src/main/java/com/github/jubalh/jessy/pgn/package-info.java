@@ -0,0 +1,6 @@
+/**
+ * Reading and writing games in Portable Game Notation
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.pgn;
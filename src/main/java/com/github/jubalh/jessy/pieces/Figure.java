@@ -8,26 +8,19 @@ public abstract class Figure {
 	// white chess unicode characters to black ones
 	protected final int BLACK_SUMMAND = 6;
 
-	private Color color;
+	private final Color color;
 
 	/**
 	 * Creates a white figure by default.
 	 */
 	public Figure() {
-		setColor(Color.WHITE);
+		this.color = Color.WHITE;
 	}
 
 	/**
 	 * @param color color of figure
 	 */
 	public Figure(Color color) {
-		setColor(color);
-	}
-
-	/**
-	 * @param color color to be set
-	 */
-	public void setColor(Color color) {
 		this.color = color;
 	}
 
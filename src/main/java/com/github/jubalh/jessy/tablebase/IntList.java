@@ -0,0 +1,35 @@
+package com.github.jubalh.jessy.tablebase;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints without boxing.
+ */
+final class IntList {
+
+	private int[] values = new int[256];
+	private int size = 0;
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	int get(int i) {
+		return values[i];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+}
@@ -0,0 +1,215 @@
+package com.github.jubalh.jessy.tablebase;
+
+import java.util.Arrays;
+
+import com.github.jubalh.jessy.Piece;
+
+/**
+ *
+ * The pieces of an ending, like "KQvK" or "KPvKP".
+ * Pieces are ordered white before black and by type from king to pawn;
+ * this order gives the slots of a tablebase index.
+ * @author Michael Vetter
+ *
+ */
+public final class Material {
+
+	public static final int MAX_PIECES = 4;
+
+	// letters in slot order
+	private static final String LETTERS = "KQRBNP";
+	private static final int[] TYPES = { Piece.KING, Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN };
+	private static final int BITS_PER_PIECE = 3;
+	private static final int COLOR_BITS = BITS_PER_PIECE * Piece.TYPE_COUNT;
+	private static final long COLOR_MASK = (1L << COLOR_BITS) - 1;
+
+	private final int[] pieces;
+	private final String name;
+	private final long key;
+
+	private Material(int[] pieces) {
+		this.pieces = new int[pieces.length];
+		StringBuilder name = new StringBuilder();
+		long key = 0;
+		int slot = 0;
+		for (int color = 0; color < 2; color++) {
+			if (color == 1) {
+				name.append('v');
+			}
+			for (int letter = 0; letter < TYPES.length; letter++) {
+				int wanted = Piece.valueOf(color, TYPES[letter]);
+				for (int piece : pieces) {
+					if (piece == wanted) {
+						this.pieces[slot++] = piece;
+						name.append(LETTERS.charAt(letter));
+						key += key(piece);
+					}
+				}
+			}
+		}
+		this.name = name.toString();
+		this.key = key;
+	}
+
+	/**
+	 * Reads a material like "KRvK".
+	 * @param name white pieces, 'v' and black pieces
+	 * @return material
+	 * @throws IllegalArgumentException if the name can't be read or kings are missing
+	 */
+	public static Material parse(String name) {
+		int v = name.indexOf('v');
+		if (v < 0) {
+			throw new IllegalArgumentException("Material needs a 'v' between the sides: " + name);
+		}
+		String upper = name.toUpperCase();
+		int[] pieces = new int[name.length() - 1];
+		int n = 0;
+		for (int i = 0; i < upper.length(); i++) {
+			if (i == v) {
+				continue;
+			}
+			int letter = LETTERS.indexOf(upper.charAt(i));
+			if (letter < 0) {
+				throw new IllegalArgumentException("Unknown piece in " + name);
+			}
+			pieces[n++] = Piece.valueOf(i < v ? 0 : 1, TYPES[letter]);
+		}
+		return of(pieces, n);
+	}
+
+	/**
+	 * @param pieces pieces in any order
+	 * @param n number of pieces
+	 * @return material
+	 * @throws IllegalArgumentException if there isn't exactly one king per side
+	 */
+	public static Material of(int[] pieces, int n) {
+		int[] copy = Arrays.copyOf(pieces, n);
+		int whiteKings = 0;
+		int blackKings = 0;
+		for (int piece : copy) {
+			whiteKings += piece == Piece.WHITE_KING ? 1 : 0;
+			blackKings += piece == Piece.BLACK_KING ? 1 : 0;
+		}
+		if (whiteKings != 1 || blackKings != 1 || n > MAX_PIECES) {
+			throw new IllegalArgumentException("Need one king per side and at most " + MAX_PIECES + " pieces");
+		}
+		return new Material(copy);
+	}
+
+	/**
+	 * @param piece piece
+	 * @return summand of the key of a material
+	 */
+	static long key(int piece) {
+		return 1L << (BITS_PER_PIECE * piece);
+	}
+
+	/**
+	 * @param key key of a material
+	 * @return key with white and black swapped
+	 */
+	static long flipKey(long key) {
+		return (key >>> COLOR_BITS) | ((key & COLOR_MASK) << COLOR_BITS);
+	}
+
+	/**
+	 * @return same pieces with white and black swapped
+	 */
+	public Material flip() {
+		int[] flipped = new int[pieces.length];
+		for (int i = 0; i < pieces.length; i++) {
+			flipped[i] = Piece.valueOf(1 - Piece.color(pieces[i]), Piece.type(pieces[i]));
+		}
+		return new Material(flipped);
+	}
+
+	/**
+	 * The canonical side is the one where white has more or stronger pieces.
+	 * Only canonical materials get tables.
+	 * @return this or the flipped material
+	 */
+	public Material canonical() {
+		String white = name.substring(0, name.indexOf('v'));
+		String black = name.substring(name.indexOf('v') + 1);
+		if (white.length() != black.length()) {
+			return white.length() > black.length() ? this : flip();
+		}
+		for (int i = 0; i < white.length(); i++) {
+			int w = LETTERS.indexOf(white.charAt(i));
+			int b = LETTERS.indexOf(black.charAt(i));
+			if (w != b) {
+				return w < b ? this : flip();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param slot slot of the captured piece
+	 * @return material after the capture
+	 */
+	Material without(int slot) {
+		int[] rest = new int[pieces.length - 1];
+		for (int i = 0, j = 0; i < pieces.length; i++) {
+			if (i != slot) {
+				rest[j++] = pieces[i];
+			}
+		}
+		return new Material(rest);
+	}
+
+	/**
+	 * @param slot slot of the pawn
+	 * @param type type it promotes to
+	 * @return material after the promotion
+	 */
+	Material promote(int slot, int type) {
+		int[] promoted = pieces.clone();
+		promoted[slot] = Piece.valueOf(Piece.color(pieces[slot]), type);
+		return new Material(promoted);
+	}
+
+	public int size() {
+		return pieces.length;
+	}
+
+	/**
+	 * @param slot slot
+	 * @return piece in slot
+	 */
+	public int piece(int slot) {
+		return pieces[slot];
+	}
+
+	/**
+	 * @return number of entries of a table, both sides to move
+	 */
+	public int getIndexCount() {
+		return 2 << (6 * pieces.length);
+	}
+
+	long getKey() {
+		return key;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Material && ((Material) other).key == key;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(key);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
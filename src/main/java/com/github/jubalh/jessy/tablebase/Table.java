@@ -0,0 +1,112 @@
+package com.github.jubalh.jessy.tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *
+ * Values of all positions of one material, one byte each, see Tablebases.
+ * Files have a 16 byte header: magic "JESSYTB1", the pieces in slot order
+ * (one byte each, unused ones 0xFF) and 4 reserved bytes. The values follow,
+ * indexed by side to move (bit 0) and six bits per slot for its square.
+ * @author Michael Vetter
+ *
+ */
+public final class Table {
+
+	public static final String EXTENSION = ".jtb";
+
+	private static final byte[] MAGIC = "JESSYTB1".getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER_SIZE = 16;
+
+	private final Material material;
+	private final ByteBuffer values;
+
+	/**
+	 * Constructor
+	 * @param material material
+	 * @param values one value per index
+	 */
+	Table(Material material, ByteBuffer values) {
+		this.material = material;
+		this.values = values;
+	}
+
+	/**
+	 * Maps a table file.
+	 * @param filename file to map
+	 * @return table
+	 * @throws IOException if the file can't be read or is no table
+	 */
+	public static Table load(String filename) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			byte[] magic = new byte[MAGIC.length];
+			file.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException("Not a tablebase: " + filename);
+			}
+			int[] pieces = new int[Material.MAX_PIECES];
+			int n = 0;
+			for (int i = 0; i < Material.MAX_PIECES; i++) {
+				int piece = file.readUnsignedByte();
+				if (piece != 0xFF) {
+					pieces[n++] = piece;
+				}
+			}
+			Material material;
+			try {
+				material = Material.of(pieces, n);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Broken tablebase: " + filename);
+			}
+			FileChannel channel = file.getChannel();
+			if (channel.size() != HEADER_SIZE + (long) material.getIndexCount()) {
+				throw new IOException("Broken tablebase: " + filename);
+			}
+			// the mapping stays valid after the file got closed
+			return new Table(material, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, material.getIndexCount()));
+		}
+	}
+
+	/**
+	 * @param directory directory to write to
+	 * @throws IOException if writing fails
+	 */
+	void write(String directory) throws IOException {
+		String filename = directory + "/" + material.getName() + EXTENSION;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.write(MAGIC);
+			for (int i = 0; i < Material.MAX_PIECES; i++) {
+				out.writeByte(i < material.size() ? material.piece(i) : 0xFF);
+			}
+			out.writeInt(0);
+			ByteBuffer all = values.duplicate();
+			all.clear();
+			byte[] chunk = new byte[1 << 16];
+			while (all.hasRemaining()) {
+				int length = Math.min(chunk.length, all.remaining());
+				all.get(chunk, 0, length);
+				out.write(chunk, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * @param index index of a position
+	 * @return value, see Tablebases
+	 */
+	int get(int index) {
+		return values.get(index) & 0xFF;
+	}
+
+	public Material getMaterial() {
+		return material;
+	}
+}
@@ -0,0 +1,600 @@
+package com.github.jubalh.jessy.tablebase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.jubalh.jessy.Bitboards;
+import com.github.jubalh.jessy.Piece;
+import com.github.jubalh.jessy.Square;
+
+/**
+ *
+ * Generates tables by retrograde analysis.
+ * First every position gets checked for legality, mate, and the outcome of
+ * captures and promotions, which lead into smaller tables. Then, one ply at
+ * a time, positions which can move into a lost position are won, and
+ * positions whose every move leads into a won position are lost. Only the
+ * predecessors of the positions decided in the last ply get looked at.
+ * Each step is split across a thread pool.
+ * @author Michael Vetter
+ *
+ */
+public final class TablebaseGenerator {
+
+	public static final String DEFAULT_DIRECTORY = "tablebases";
+
+	private static final String EXTRA_PIECES = "QRBNP";
+	// work units per thread and step, so threads finish at about the same time
+	private static final int CHUNKS_PER_THREAD = 8;
+
+	private final Tablebases tablebases;
+	private final String directory;
+	private final int threads;
+
+	/**
+	 * Counts what a position's moves lead to.
+	 */
+	private static final class Moves {
+		int legal;
+		// some move keeps the draw or wins, by capturing or promoting
+		boolean exitNotWinForOpponent;
+		int minExitLoss;
+		int maxExitWin;
+		boolean allInTableWin;
+	}
+
+	/**
+	 * Move generation on a list of at most four pieces.
+	 * One per task, it keeps scratch arrays.
+	 */
+	private final class Worker {
+		private final Material material;
+		private final byte[] values;
+		private final int n;
+		private final int[] pieces;
+		private final int[] squares;
+		private final int[] childPieces;
+		private final int[] childSquares;
+		private final Moves moves = new Moves();
+		private int sideToMove;
+
+		Worker(Material material, byte[] values) {
+			this.material = material;
+			this.values = values;
+			this.n = material.size();
+			this.pieces = new int[n];
+			this.squares = new int[n];
+			this.childPieces = new int[n];
+			this.childSquares = new int[n];
+			for (int i = 0; i < n; i++) {
+				pieces[i] = material.piece(i);
+			}
+		}
+
+		void decode(int index) {
+			sideToMove = index & 1;
+			for (int i = 0; i < n; i++) {
+				squares[i] = (index >>> (1 + 6 * i)) & 63;
+			}
+		}
+
+		/**
+		 * @return value of the position if it is illegal or mate, or DRAW
+		 */
+		int classify(int index) {
+			decode(index);
+			long occupied = 0;
+			for (int i = 0; i < n; i++) {
+				long bit = 1L << squares[i];
+				if ((occupied & bit) != 0) {
+					return Tablebases.ILLEGAL;
+				}
+				occupied |= bit;
+				if (Piece.type(pieces[i]) == Piece.PAWN && (bit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+					return Tablebases.ILLEGAL;
+				}
+			}
+			if (isAttacked(king(1 - sideToMove, pieces, squares, n), sideToMove, pieces, squares, n)) {
+				return Tablebases.ILLEGAL;
+			}
+			return Tablebases.DRAW;
+		}
+
+		/**
+		 * Plays all legal moves of the decoded position.
+		 */
+		Moves generate(int index) {
+			moves.legal = 0;
+			moves.exitNotWinForOpponent = false;
+			moves.minExitLoss = Integer.MAX_VALUE;
+			moves.maxExitWin = -1;
+			moves.allInTableWin = true;
+
+			long occupied = 0;
+			long own = 0;
+			for (int i = 0; i < n; i++) {
+				occupied |= 1L << squares[i];
+				if (Piece.color(pieces[i]) == sideToMove) {
+					own |= 1L << squares[i];
+				}
+			}
+			long enemy = occupied & ~own;
+
+			for (int i = 0; i < n; i++) {
+				if (Piece.color(pieces[i]) != sideToMove) {
+					continue;
+				}
+				int from = squares[i];
+				int type = Piece.type(pieces[i]);
+				if (type == Piece.PAWN) {
+					int forward = sideToMove == 0 ? 8 : -8;
+					int one = from + forward;
+					boolean promotes = Square.rank(one) == 0 || Square.rank(one) == 7;
+					if ((occupied & (1L << one)) == 0) {
+						if (promotes) {
+							promotions(i, one, -1);
+						} else {
+							move(index, i, one);
+							int startRank = sideToMove == 0 ? 1 : 6;
+							int two = one + forward;
+							if (Square.rank(from) == startRank && (occupied & (1L << two)) == 0) {
+								move(index, i, two);
+							}
+						}
+					}
+					long captures = Bitboards.pawnAttacks(sideToMove, from) & enemy;
+					while (captures != 0) {
+						int to = Long.numberOfTrailingZeros(captures);
+						captures &= captures - 1;
+						if (promotes) {
+							promotions(i, to, slotAt(to));
+						} else {
+							exit(i, to, slotAt(to), type);
+						}
+					}
+				} else {
+					long targets = attacks(type, from, occupied) & ~own;
+					while (targets != 0) {
+						int to = Long.numberOfTrailingZeros(targets);
+						targets &= targets - 1;
+						if ((enemy & (1L << to)) != 0) {
+							exit(i, to, slotAt(to), type);
+						} else {
+							move(index, i, to);
+						}
+					}
+				}
+			}
+			return moves;
+		}
+
+		private int slotAt(int square) {
+			for (int i = 0; i < n; i++) {
+				if (squares[i] == square) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * A move which stays in this table.
+		 */
+		private void move(int index, int slot, int to) {
+			int from = squares[slot];
+			squares[slot] = to;
+			boolean legal = !isAttacked(king(sideToMove, pieces, squares, n), 1 - sideToMove, pieces, squares, n);
+			int child = Tablebases.index(squares, n, 1 - sideToMove);
+			squares[slot] = from;
+			if (!legal) {
+				return;
+			}
+			moves.legal++;
+			if (!Tablebases.isWin(values[child] & 0xFF)) {
+				moves.allInTableWin = false;
+			}
+		}
+
+		private void promotions(int slot, int to, int captured) {
+			exit(slot, to, captured, Piece.QUEEN);
+			exit(slot, to, captured, Piece.ROOK);
+			exit(slot, to, captured, Piece.BISHOP);
+			exit(slot, to, captured, Piece.KNIGHT);
+		}
+
+		/**
+		 * A capture or promotion, which leads into another table.
+		 */
+		private void exit(int slot, int to, int captured, int type) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (i == captured) {
+					continue;
+				}
+				childPieces[m] = i == slot ? Piece.valueOf(sideToMove, type) : pieces[i];
+				childSquares[m] = i == slot ? to : squares[i];
+				m++;
+			}
+			if (isAttacked(king(sideToMove, childPieces, childSquares, m), 1 - sideToMove, childPieces, childSquares, m)) {
+				return;
+			}
+			moves.legal++;
+			int value = tablebases.probe(childPieces, childSquares, m, 1 - sideToMove);
+			if (value == Tablebases.UNKNOWN) {
+				throw new IllegalStateException("Missing table for a conversion of " + material);
+			}
+			if (Tablebases.isLoss(value)) {
+				moves.minExitLoss = Math.min(moves.minExitLoss, Tablebases.getPlies(value));
+				moves.exitNotWinForOpponent = true;
+			} else if (Tablebases.isWin(value)) {
+				moves.maxExitWin = Math.max(moves.maxExitWin, Tablebases.getPlies(value));
+			} else {
+				moves.exitNotWinForOpponent = true;
+			}
+		}
+
+		/**
+		 * Calls back for each position the side not to move could have come from.
+		 */
+		void predecessors(int index, IntList into) {
+			decode(index);
+			int mover = 1 - sideToMove;
+			long occupied = 0;
+			for (int i = 0; i < n; i++) {
+				occupied |= 1L << squares[i];
+			}
+			for (int i = 0; i < n; i++) {
+				if (Piece.color(pieces[i]) != mover) {
+					continue;
+				}
+				int to = squares[i];
+				int type = Piece.type(pieces[i]);
+				long origins;
+				if (type == Piece.PAWN) {
+					origins = 0;
+					int back = mover == 0 ? -8 : 8;
+					int rank = Square.rank(to);
+					int one = to + back;
+					boolean canComeBack = mover == 0 ? rank >= 2 : rank <= 5;
+					if (canComeBack && (occupied & (1L << one)) == 0) {
+						origins |= 1L << one;
+						int doubleRank = mover == 0 ? 3 : 4;
+						if (rank == doubleRank && (occupied & (1L << (one + back))) == 0) {
+							origins |= 1L << (one + back);
+						}
+					}
+				} else {
+					origins = attacks(type, to, occupied) & ~occupied;
+				}
+				while (origins != 0) {
+					squares[i] = Long.numberOfTrailingZeros(origins);
+					origins &= origins - 1;
+					into.add(Tablebases.index(squares, n, mover));
+				}
+				squares[i] = to;
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param tablebases tables there are already, new ones get added
+	 * @param directory where new tables get written to
+	 * @param threads number of threads
+	 */
+	public TablebaseGenerator(Tablebases tablebases, String directory, int threads) {
+		this.tablebases = tablebases;
+		this.directory = directory;
+		this.threads = threads;
+	}
+
+	/**
+	 * Generates the table of a material and of everything it converts into,
+	 * unless they are there already.
+	 * @param material material
+	 * @return summary of each table generated, in the order they got generated
+	 * @throws IOException if writing fails
+	 */
+	public List<String> generate(Material material) throws IOException {
+		List<String> summaries = new ArrayList<String>();
+		generate(material, summaries);
+		return summaries;
+	}
+
+	private void generate(Material material, List<String> summaries) throws IOException {
+		material = material.canonical();
+		if (tablebases.contains(material)) {
+			return;
+		}
+		for (int slot = 0; slot < material.size(); slot++) {
+			int type = Piece.type(material.piece(slot));
+			if (type != Piece.KING) {
+				generate(material.without(slot), summaries);
+			}
+			if (type == Piece.PAWN) {
+				generate(material.promote(slot, Piece.QUEEN), summaries);
+				generate(material.promote(slot, Piece.ROOK), summaries);
+				generate(material.promote(slot, Piece.BISHOP), summaries);
+				generate(material.promote(slot, Piece.KNIGHT), summaries);
+			}
+		}
+
+		long start = System.nanoTime();
+		byte[] values = build(material);
+		Table table = new Table(material, ByteBuffer.wrap(values));
+		table.write(directory);
+		tablebases.add(table);
+		summaries.add(summary(material, values) + ", " + (System.nanoTime() - start) / 1000000L + " ms");
+	}
+
+	private byte[] build(final Material material) {
+		final int count = material.getIndexCount();
+		final byte[] values = new byte[count];
+		// ply at which a capture or promotion decides a position, 0 for none
+		final byte[] seeds = new byte[count];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final int chunks = threads * CHUNKS_PER_THREAD;
+			final int chunkSize = (count + chunks - 1) / chunks;
+
+			// legality, mates and conversions
+			List<Callable<IntList>> tasks = new ArrayList<Callable<IntList>>();
+			for (int c = 0; c < chunks; c++) {
+				final int from = c * chunkSize;
+				final int to = Math.min(count, from + chunkSize);
+				tasks.add(() -> {
+					Worker worker = new Worker(material, values);
+					IntList mates = new IntList();
+					for (int index = from; index < to; index++) {
+						int value = worker.classify(index);
+						if (value == Tablebases.ILLEGAL) {
+							values[index] = (byte) value;
+							continue;
+						}
+						Moves moves = worker.generate(index);
+						if (moves.legal == 0) {
+							boolean check = isAttacked(king(worker.sideToMove, worker.pieces, worker.squares, worker.n),
+									1 - worker.sideToMove, worker.pieces, worker.squares, worker.n);
+							if (check) {
+								values[index] = (byte) Tablebases.valueOf(0);
+								mates.add(index);
+							}
+						} else if (moves.minExitLoss != Integer.MAX_VALUE) {
+							seeds[index] = (byte) (moves.minExitLoss + 1);
+						} else if (!moves.exitNotWinForOpponent && moves.maxExitWin >= 0) {
+							seeds[index] = (byte) (moves.maxExitWin + 1);
+						}
+					}
+					return mates;
+				});
+			}
+			List<IntList> frontier = run(executor, tasks);
+			int maxSeed = 0;
+			for (byte seed : seeds) {
+				maxSeed = Math.max(maxSeed, seed & 0xFF);
+			}
+
+			for (int plies = 1; plies <= Tablebases.MAX_PLIES; plies++) {
+				if (isEmpty(frontier) && plies > maxSeed) {
+					break;
+				}
+				final boolean wins = (plies & 1) == 1;
+				final byte value = (byte) Tablebases.valueOf(plies);
+				final int ply = plies;
+				tasks.clear();
+				// predecessors of the positions decided in the last ply
+				for (final IntList part : frontier) {
+					final int parts = Math.max(1, Math.min(chunks, part.size() / 1024));
+					for (int c = 0; c < parts; c++) {
+						final int from = (int) ((long) part.size() * c / parts);
+						final int to = (int) ((long) part.size() * (c + 1) / parts);
+						tasks.add(() -> {
+							Worker worker = new Worker(material, values);
+							IntList decided = new IntList();
+							IntList candidates = new IntList();
+							for (int i = from; i < to; i++) {
+								candidates.clear();
+								worker.predecessors(part.get(i), candidates);
+								for (int j = 0; j < candidates.size(); j++) {
+									decide(worker, candidates.get(j), wins, value, ply, decided);
+								}
+							}
+							return decided;
+						});
+					}
+				}
+				// positions a capture or promotion decides in this ply
+				if (plies <= maxSeed) {
+					for (int c = 0; c < chunks; c++) {
+						final int from = c * chunkSize;
+						final int to = Math.min(count, from + chunkSize);
+						tasks.add(() -> {
+							Worker worker = new Worker(material, values);
+							IntList decided = new IntList();
+							for (int index = from; index < to; index++) {
+								if ((seeds[index] & 0xFF) == ply) {
+									decide(worker, index, wins, value, ply, decided);
+								}
+							}
+							return decided;
+						});
+					}
+				}
+				frontier = run(executor, tasks);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return values;
+	}
+
+	/**
+	 * Marks a position as won or lost in plies if it is.
+	 */
+	private static void decide(Worker worker, int index, boolean wins, byte value, int plies, IntList decided) {
+		byte[] values = worker.values;
+		if (values[index] != Tablebases.DRAW) {
+			return;
+		}
+		if (!wins) {
+			// lost only if every move leads into a position won by the opponent
+			worker.decode(index);
+			Moves moves = worker.generate(index);
+			if (moves.legal == 0 || !moves.allInTableWin || moves.exitNotWinForOpponent || moves.maxExitWin >= plies) {
+				return;
+			}
+		}
+		values[index] = value;
+		decided.add(index);
+	}
+
+	private static List<IntList> run(ExecutorService executor, List<Callable<IntList>> tasks) {
+		List<IntList> results = new ArrayList<IntList>();
+		try {
+			for (Future<IntList> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return results;
+	}
+
+	private static boolean isEmpty(List<IntList> lists) {
+		for (IntList list : lists) {
+			if (!list.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long attacks(int type, int square, long occupied) {
+		switch (type) {
+		case Piece.KNIGHT:
+			return Bitboards.knightAttacks(square);
+		case Piece.BISHOP:
+			return Bitboards.bishopAttacks(square, occupied);
+		case Piece.ROOK:
+			return Bitboards.rookAttacks(square, occupied);
+		case Piece.QUEEN:
+			return Bitboards.queenAttacks(square, occupied);
+		default:
+			return Bitboards.kingAttacks(square);
+		}
+	}
+
+	private static int king(int color, int[] pieces, int[] squares, int n) {
+		int king = Piece.valueOf(color, Piece.KING);
+		for (int i = 0; i < n; i++) {
+			if (pieces[i] == king) {
+				return squares[i];
+			}
+		}
+		return Square.NONE;
+	}
+
+	private static boolean isAttacked(int square, int color, int[] pieces, int[] squares, int n) {
+		long occupied = 0;
+		for (int i = 0; i < n; i++) {
+			occupied |= 1L << squares[i];
+		}
+		long bit = 1L << square;
+		for (int i = 0; i < n; i++) {
+			if (Piece.color(pieces[i]) != color || squares[i] == square) {
+				continue;
+			}
+			int type = Piece.type(pieces[i]);
+			long attacked = type == Piece.PAWN ? Bitboards.pawnAttacks(color, squares[i]) : attacks(type, squares[i], occupied);
+			if ((attacked & bit) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String summary(Material material, byte[] values) {
+		long wins = 0;
+		long losses = 0;
+		long draws = 0;
+		int longest = 0;
+		for (byte b : values) {
+			int value = b & 0xFF;
+			if (Tablebases.isWin(value)) {
+				wins++;
+				longest = Math.max(longest, Tablebases.getPlies(value));
+			} else if (Tablebases.isLoss(value)) {
+				losses++;
+			} else if (value == Tablebases.DRAW) {
+				draws++;
+			}
+		}
+		return material + ": " + wins + " won, " + losses + " lost, " + draws + " drawn, longest mate "
+				+ longest + " plies";
+	}
+
+	/**
+	 * @return all materials of three and four pieces
+	 */
+	static Set<Material> allMaterials() {
+		Set<Material> materials = new LinkedHashSet<Material>();
+		for (int i = 0; i < EXTRA_PIECES.length(); i++) {
+			String a = EXTRA_PIECES.substring(i, i + 1);
+			materials.add(Material.parse("K" + a + "vK").canonical());
+			for (int j = i; j < EXTRA_PIECES.length(); j++) {
+				String b = EXTRA_PIECES.substring(j, j + 1);
+				materials.add(Material.parse("K" + a + b + "vK").canonical());
+				materials.add(Material.parse("K" + a + "vK" + b).canonical());
+			}
+		}
+		return materials;
+	}
+
+	/**
+	 * Usage: TablebaseGenerator [directory] [material]...
+	 * Without materials all three and four piece tables get generated.
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		String directory = args.length > 0 ? args[0] : DEFAULT_DIRECTORY;
+		try {
+			new File(directory).mkdirs();
+			Tablebases tablebases = Tablebases.load(directory);
+			TablebaseGenerator generator = new TablebaseGenerator(tablebases, directory,
+					Runtime.getRuntime().availableProcessors());
+			List<Material> materials = new ArrayList<Material>();
+			if (args.length > 1) {
+				for (int i = 1; i < args.length; i++) {
+					materials.add(Material.parse(args[i]));
+				}
+			} else {
+				materials.addAll(allMaterials());
+			}
+			for (Material material : materials) {
+				for (String summary : generator.generate(material)) {
+					System.out.println(summary);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: TablebaseGenerator [directory] [material like KQvK]...");
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
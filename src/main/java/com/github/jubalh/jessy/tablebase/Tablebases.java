@@ -0,0 +1,216 @@
+package com.github.jubalh.jessy.tablebase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Piece;
+
+/**
+ *
+ * All tables which are there, probed by position.
+ * A value is the number of plies to mate plus one: odd for positions
+ * the side to move loses, even for positions it wins.
+ * The 50 move rule, castling and en passant are not taken into account.
+ * @author Michael Vetter
+ *
+ */
+public class Tablebases {
+
+	/**
+	 * No table for the position.
+	 */
+	public static final int UNKNOWN = -1;
+	public static final int DRAW = 0;
+	/**
+	 * Position which can't come up in a game.
+	 */
+	public static final int ILLEGAL = 255;
+	public static final int MAX_PLIES = 253;
+
+	private final Map<Long, Table> tables = new ConcurrentHashMap<Long, Table>();
+
+	/**
+	 * Maps all tables of a directory.
+	 * @param directory directory with table files
+	 * @return tablebases, empty if the directory has none
+	 * @throws IOException if a table can't be read
+	 */
+	public static Tablebases load(String directory) throws IOException {
+		Tablebases tablebases = new Tablebases();
+		File[] files = new File(directory).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(Table.EXTENSION)) {
+					tablebases.add(Table.load(file.getPath()));
+				}
+			}
+		}
+		return tablebases;
+	}
+
+	public void add(Table table) {
+		tables.put(table.getMaterial().getKey(), table);
+	}
+
+	/**
+	 * @param material material
+	 * @return true if there is a table for the material or its flipped one
+	 */
+	public boolean contains(Material material) {
+		return material.size() == 2 || tables.containsKey(material.getKey())
+				|| tables.containsKey(Material.flipKey(material.getKey()));
+	}
+
+	/**
+	 * @return number of tables
+	 */
+	public int size() {
+		return tables.size();
+	}
+
+	public static boolean isWin(int value) {
+		return value > 0 && value < ILLEGAL && (value & 1) == 0;
+	}
+
+	public static boolean isLoss(int value) {
+		return value > 0 && value < ILLEGAL && (value & 1) == 1;
+	}
+
+	/**
+	 * @param value win or loss
+	 * @return plies to mate
+	 */
+	public static int getPlies(int value) {
+		return value - 1;
+	}
+
+	static int valueOf(int plies) {
+		return plies + 1;
+	}
+
+	/**
+	 * @param squares square per slot
+	 * @param n number of slots
+	 * @param sideToMove color ordinal
+	 * @return index into the table
+	 */
+	static int index(int[] squares, int n, int sideToMove) {
+		int index = sideToMove;
+		for (int i = 0; i < n; i++) {
+			index |= squares[i] << (1 + 6 * i);
+		}
+		return index;
+	}
+
+	/**
+	 * Looks up a position given as a list of pieces.
+	 * @param pieces pieces in any order
+	 * @param squares square of each piece
+	 * @param n number of pieces
+	 * @param sideToMove color ordinal
+	 * @return value or UNKNOWN
+	 */
+	int probe(int[] pieces, int[] squares, int n, int sideToMove) {
+		if (n == 2) {
+			return DRAW;
+		}
+		long key = 0;
+		for (int i = 0; i < n; i++) {
+			key += Material.key(pieces[i]);
+		}
+		boolean flip = false;
+		Table table = tables.get(key);
+		if (table == null) {
+			table = tables.get(Material.flipKey(key));
+			flip = true;
+			if (table == null) {
+				return UNKNOWN;
+			}
+		}
+
+		Material material = table.getMaterial();
+		int index = flip ? 1 - sideToMove : sideToMove;
+		int used = 0;
+		for (int slot = 0; slot < n; slot++) {
+			int wanted = material.piece(slot);
+			for (int i = 0; i < n; i++) {
+				int piece = flip ? Piece.valueOf(1 - Piece.color(pieces[i]), Piece.type(pieces[i])) : pieces[i];
+				if ((used & (1 << i)) == 0 && piece == wanted) {
+					used |= 1 << i;
+					index |= (flip ? squares[i] ^ 56 : squares[i]) << (1 + 6 * slot);
+					break;
+				}
+			}
+		}
+		return table.get(index);
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param board position
+	 * @return value or UNKNOWN if there's no table or castling is still possible
+	 */
+	public int probe(Board board) {
+		long occupied = board.getOccupied();
+		if (Long.bitCount(occupied) > Material.MAX_PIECES || board.getCastling() != 0) {
+			return UNKNOWN;
+		}
+		int[] pieces = new int[Material.MAX_PIECES];
+		int[] squares = new int[Material.MAX_PIECES];
+		int n = 0;
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			pieces[n] = board.getPiece(square);
+			squares[n++] = square;
+			occupied &= occupied - 1;
+		}
+		return probe(pieces, squares, n, board.getSideToMove() == Color.WHITE ? 0 : 1);
+	}
+
+	/**
+	 * Finds the move which mates fastest, or holds out longest,
+	 * or keeps the draw.
+	 * @param board position, gets restored afterwards
+	 * @return packed move or Move.NONE if the position isn't in the tables
+	 */
+	public int bestMove(Board board) {
+		int value = probe(board);
+		if (value == UNKNOWN || value == ILLEGAL) {
+			return Move.NONE;
+		}
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+		int best = Move.NONE;
+		int bestPlies = 0;
+		for (int i = 0; i < size; i++) {
+			board.makeMove(moves[i]);
+			int reply = probe(board);
+			board.unmakeMove();
+			if (reply == UNKNOWN) {
+				return Move.NONE;
+			}
+			if (isWin(value)) {
+				// quickest mate
+				if (isLoss(reply) && (best == Move.NONE || getPlies(reply) < bestPlies)) {
+					best = moves[i];
+					bestPlies = getPlies(reply);
+				}
+			} else if (isLoss(value)) {
+				// slowest mate
+				if (best == Move.NONE || getPlies(reply) > bestPlies) {
+					best = moves[i];
+					bestPlies = getPlies(reply);
+				}
+			} else if (reply == DRAW) {
+				return moves[i];
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * Distance to mate tablebases for endings with few pieces
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.tablebase;
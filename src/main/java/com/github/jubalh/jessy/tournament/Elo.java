@@ -0,0 +1,28 @@
+package com.github.jubalh.jessy.tournament;
+
+/**
+ *
+ * Conversion between scores and Elo differences.
+ * @author Michael Vetter
+ *
+ */
+public final class Elo {
+
+	private Elo() { }
+
+	/**
+	 * @param score expected score between 0 and 1
+	 * @return Elo difference, infinite for 0 and 1
+	 */
+	public static double difference(double score) {
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * @param difference Elo difference
+	 * @return expected score of the stronger player
+	 */
+	public static double score(double difference) {
+		return 1 / (1 + Math.pow(10, -difference / 400));
+	}
+}
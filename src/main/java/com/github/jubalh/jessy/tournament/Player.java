@@ -0,0 +1,64 @@
+package com.github.jubalh.jessy.tournament;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.jubalh.jessy.TimeControl;
+
+/**
+ *
+ * One side of a tournament: a name, search limits and engine options.
+ * @author Michael Vetter
+ *
+ */
+public class Player {
+
+	private final String name;
+	private TimeControl timeControl = TimeControl.DEFAULT;
+	private final Map<String, String> options = new LinkedHashMap<String, String>();
+
+	/**
+	 * Constructor
+	 * @param name name used in the PGN
+	 */
+	public Player(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public TimeControl getTimeControl() {
+		return timeControl;
+	}
+
+	public void setTimeControl(TimeControl timeControl) {
+		this.timeControl = timeControl;
+	}
+
+	/**
+	 * @return engine options the engines of this player get set to
+	 */
+	public Map<String, String> getOptions() {
+		return options;
+	}
+
+	/**
+	 * Sets an engine option.
+	 * @param option option as "name=value"
+	 * @throws IllegalArgumentException if there is no '='
+	 */
+	public void setOption(String option) {
+		int equals = option.indexOf('=');
+		if (equals <= 0) {
+			throw new IllegalArgumentException("Option has to be name=value: " + option);
+		}
+		options.put(option.substring(0, equals).trim(), option.substring(equals + 1).trim());
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + timeControl + (options.isEmpty() ? "" : ", " + options) + ")";
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.jubalh.jessy.tournament;
+
+import java.io.IOException;
+
+import com.github.jubalh.jessy.SearchTelemetry;
+import com.github.jubalh.jessy.TimeControl;
+import com.github.jubalh.jessy.pgn.PgnWriter;
+
+/**
+ *
+ * Runs a tournament of the engine against itself without the command line interface.
+ * Usage: SelfPlay [-games n] [-concurrency n] [-tc tc] [-tcA tc] [-tcB tc]
+ * [-optionA name=value]... [-optionB name=value]... [-openingplies n]
+ * [-maxplies n] [-seed n] [-sprt elo0 elo1] [-pgn file] [-telemetry file]
+ * @author Michael Vetter
+ *
+ */
+public final class SelfPlay {
+
+	private static final String USAGE = "Usage: SelfPlay [-games n] [-concurrency n] [-tc tc] [-tcA tc] [-tcB tc]\n"
+			+ "  [-optionA name=value]... [-optionB name=value]... [-openingplies n]\n"
+			+ "  [-maxplies n] [-seed n] [-sprt elo0 elo1] [-pgn file] [-telemetry file]\n"
+			+ "Time controls: \"movetime 100\", \"depth 6\", \"nodes 20000\", \"1+0.1\"";
+
+	private SelfPlay() { }
+
+	/**
+	 * Time controls like "depth 6" may come as one argument or as two.
+	 * @return time control starting at args[i]
+	 */
+	private static String timeControl(String[] args, int i) {
+		return args[i] + (skip(args, i) == 1 ? " " + args[i + 1] : "");
+	}
+
+	/**
+	 * @return 1 if the time control at args[i] continues in the next argument
+	 */
+	private static int skip(String[] args, int i) {
+		boolean limitOnly = args[i].equals("movetime") || args[i].equals("depth") || args[i].equals("nodes");
+		return limitOnly && i + 1 < args.length ? 1 : 0;
+	}
+
+	/**
+	 * @param args cmdline params
+	 */
+	public static void main(final String[] args) {
+		Player playerA = new Player("jessy A");
+		Player playerB = new Player("jessy B");
+		playerA.setTimeControl(TimeControl.moveTime(100));
+		playerB.setTimeControl(TimeControl.moveTime(100));
+		Integer games = null;
+		Integer concurrency = null;
+		Integer openingPlies = null;
+		Integer maxPlies = null;
+		Long seed = null;
+		Sprt sprt = null;
+		String pgnFile = null;
+		String telemetryFile = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals("-games")) {
+					games = Integer.valueOf(args[++i]);
+				} else if (arg.equals("-concurrency")) {
+					concurrency = Integer.valueOf(args[++i]);
+				} else if (arg.equals("-tc")) {
+					TimeControl tc = TimeControl.parse(timeControl(args, ++i));
+					i += skip(args, i);
+					playerA.setTimeControl(tc);
+					playerB.setTimeControl(tc);
+				} else if (arg.equals("-tcA")) {
+					playerA.setTimeControl(TimeControl.parse(timeControl(args, ++i)));
+					i += skip(args, i);
+				} else if (arg.equals("-tcB")) {
+					playerB.setTimeControl(TimeControl.parse(timeControl(args, ++i)));
+					i += skip(args, i);
+				} else if (arg.equals("-optionA")) {
+					playerA.setOption(args[++i]);
+				} else if (arg.equals("-optionB")) {
+					playerB.setOption(args[++i]);
+				} else if (arg.equals("-openingplies")) {
+					openingPlies = Integer.valueOf(args[++i]);
+				} else if (arg.equals("-maxplies")) {
+					maxPlies = Integer.valueOf(args[++i]);
+				} else if (arg.equals("-seed")) {
+					seed = Long.valueOf(args[++i]);
+				} else if (arg.equals("-sprt")) {
+					double elo0 = Double.parseDouble(args[++i]);
+					double elo1 = Double.parseDouble(args[++i]);
+					sprt = new Sprt(elo0, elo1, 0.05, 0.05);
+				} else if (arg.equals("-pgn")) {
+					pgnFile = args[++i];
+				} else if (arg.equals("-telemetry")) {
+					telemetryFile = args[++i];
+				} else {
+					throw new IllegalArgumentException("Unknown argument: " + arg);
+				}
+			}
+
+			Tournament tournament = new Tournament(playerA, playerB);
+			if (games != null) {
+				tournament.setGames(games);
+			}
+			if (concurrency != null) {
+				tournament.setConcurrency(concurrency);
+			}
+			if (openingPlies != null) {
+				tournament.setOpeningPlies(openingPlies);
+			}
+			if (maxPlies != null) {
+				tournament.setMaxPlies(maxPlies);
+			}
+			if (seed != null) {
+				tournament.setSeed(seed);
+			}
+			tournament.setSprt(sprt);
+
+			System.out.println(playerA + " vs " + playerB);
+			SearchTelemetry telemetry = telemetryFile == null ? null : new SearchTelemetry(telemetryFile);
+			tournament.setSearchListener(telemetry);
+			PgnWriter pgn = pgnFile == null ? null : PgnWriter.open(pgnFile);
+			try {
+				System.out.print(tournament.run(pgn));
+			} finally {
+				if (pgn != null) {
+					pgn.close();
+				}
+				if (telemetry != null) {
+					telemetry.close();
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			System.err.println(USAGE);
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			// NumberFormatException included
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("Can't write: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.jubalh.jessy.tournament;
+
+/**
+ *
+ * Sequential probability ratio test on the Elo difference.
+ * H0 is that the difference is elo0, H1 that it is elo1.
+ * Uses the normal approximation of the log likelihood ratio,
+ * so it can be checked after every game.
+ * @author Michael Vetter
+ *
+ */
+public final class Sprt {
+
+	/**
+	 * Outcome of the test so far.
+	 */
+	public enum Verdict {
+		H0_ACCEPTED, H1_ACCEPTED, CONTINUE
+	}
+
+	private final double elo0;
+	private final double elo1;
+	private final double lowerBound;
+	private final double upperBound;
+
+	/**
+	 * Constructor
+	 * @param elo0 Elo difference of H0
+	 * @param elo1 Elo difference of H1, greater than elo0
+	 * @param alpha probability of accepting H1 although H0 is true
+	 * @param beta probability of accepting H0 although H1 is true
+	 */
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (elo1 <= elo0) {
+			throw new IllegalArgumentException("elo1 has to be greater than elo0");
+		}
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.lowerBound = Math.log(beta / (1 - alpha));
+		this.upperBound = Math.log((1 - beta) / alpha);
+	}
+
+	/**
+	 * Computes the log likelihood ratio of H1 against H0.
+	 * @param wins games won by the first player
+	 * @param draws games drawn
+	 * @param losses games lost by the first player
+	 * @return log likelihood ratio, 0 as long as it can't be told
+	 */
+	public double llr(int wins, int draws, int losses) {
+		int games = wins + draws + losses;
+		if (games == 0) {
+			return 0;
+		}
+		double score = (wins + 0.5 * draws) / games;
+		double variance = (wins * square(1 - score) + draws * square(0.5 - score) + losses * square(score)) / games;
+		if (variance == 0) {
+			// all games ended the same, nothing to tell from that yet
+			return 0;
+		}
+		double score0 = Elo.score(elo0);
+		double score1 = Elo.score(elo1);
+		return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+	}
+
+	/**
+	 * @param wins games won by the first player
+	 * @param draws games drawn
+	 * @param losses games lost by the first player
+	 * @return verdict
+	 */
+	public Verdict verdict(int wins, int draws, int losses) {
+		double llr = llr(wins, draws, losses);
+		if (llr >= upperBound) {
+			return Verdict.H1_ACCEPTED;
+		}
+		if (llr <= lowerBound) {
+			return Verdict.H0_ACCEPTED;
+		}
+		return Verdict.CONTINUE;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	@Override
+	public String toString() {
+		return "SPRT(" + elo0 + ", " + elo1 + ")";
+	}
+
+	private static double square(double x) {
+		return x * x;
+	}
+}
@@ -0,0 +1,358 @@
+package com.github.jubalh.jessy.tournament;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fluxchess.jcpi.models.GenericMove;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.EnginePool;
+import com.github.jubalh.jessy.Game;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.Piece;
+import com.github.jubalh.jessy.PositionCache;
+import com.github.jubalh.jessy.SearchListener;
+import com.github.jubalh.jessy.SearchRequest;
+import com.github.jubalh.jessy.TimeControl;
+import com.github.jubalh.jessy.pgn.PgnGame;
+import com.github.jubalh.jessy.pgn.PgnWriter;
+
+/**
+ *
+ * Plays games of player A against player B on all cores.
+ * Every opening is a few random moves and gets played twice,
+ * once with each player as white. Each player has its own pool
+ * of engines, so both can use different engine options.
+ * @author Michael Vetter
+ *
+ */
+public class Tournament {
+
+	private final Player playerA;
+	private final Player playerB;
+	private int games = 100;
+	private int concurrency = Runtime.getRuntime().availableProcessors();
+	private int openingPlies = 8;
+	private int maxPlies = 400;
+	private long seed = System.nanoTime();
+	private Sprt sprt = null;
+	private SearchListener searchListener = null;
+
+	private volatile boolean stopped = false;
+
+	/**
+	 * Constructor
+	 * @param playerA player the result is given for
+	 * @param playerB opponent
+	 * @throws IllegalArgumentException if both use a clock, but not the same
+	 */
+	public Tournament(Player playerA, Player playerB) {
+		TimeControl a = playerA.getTimeControl();
+		TimeControl b = playerB.getTimeControl();
+		// both clocks run on the one game clock
+		if ((a.getType() == TimeControl.Type.CLOCK || b.getType() == TimeControl.Type.CLOCK)
+				&& !a.toString().equals(b.toString())) {
+			throw new IllegalArgumentException("Clock time controls have to be the same for both players");
+		}
+		this.playerA = playerA;
+		this.playerB = playerB;
+	}
+
+	/**
+	 * Plays all games, or until the SPRT has a verdict.
+	 * @param pgn where to write the games to, null for nowhere
+	 * @return result of player A
+	 * @throws IOException if writing the PGN fails
+	 */
+	public TournamentResult run(final PgnWriter pgn) throws IOException {
+		final TournamentResult result = new TournamentResult(sprt);
+		final EnginePool poolA = new EnginePool(concurrency, playerA.getOptions());
+		final EnginePool poolB = new EnginePool(concurrency, playerB.getOptions());
+		if (searchListener != null) {
+			poolA.addSearchListener(searchListener);
+			poolB.addSearchListener(searchListener);
+		}
+		final String date = new SimpleDateFormat("yyyy.MM.dd").format(new Date());
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		int[] opening = null;
+		for (int i = 0; i < games; i++) {
+			if (i % 2 == 0) {
+				opening = randomOpening(new Random(seed + i));
+			}
+			final int round = i + 1;
+			final int[] line = opening;
+			final boolean aIsWhite = i % 2 == 0;
+			futures.add(executor.submit(() -> {
+				if (stopped) {
+					return null;
+				}
+				PgnGame game = aIsWhite ? play(line, playerA, poolA, playerB, poolB)
+						: play(line, playerB, poolB, playerA, poolA);
+				if (game == null) {
+					return null;
+				}
+				game.setTag("Date", date);
+				game.setTag("Round", Integer.toString(round));
+
+				double score = scoreOfWhite(game.getResult());
+				result.add(aIsWhite ? score : 1 - score, game.getMoves().size());
+				if (pgn != null) {
+					pgn.write(game);
+				}
+				if (result.getVerdict() != Sprt.Verdict.CONTINUE) {
+					stopped = true;
+				}
+				return null;
+			}));
+		}
+
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			stopped = true;
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			stopped = true;
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			poolA.shutdown();
+			poolB.shutdown();
+			result.finish();
+			if (pgn != null) {
+				pgn.flush();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Plays one game from an opening to the end.
+	 * @return game, null if the tournament got stopped meanwhile
+	 */
+	private PgnGame play(int[] opening, Player white, EnginePool whitePool, Player black, EnginePool blackPool)
+			throws InterruptedException, ExecutionException {
+		// searches go to the pools of the players, the game only keeps track
+		Game game = new Game(new Board(), whitePool);
+		game.setTimeControl(white.getTimeControl());
+		game.init();
+		game.setRunning(true);
+
+		PgnGame pgnGame = new PgnGame();
+		pgnGame.setTag("Event", "jessy self-play");
+		pgnGame.setTag("White", white.getName());
+		pgnGame.setTag("Black", black.getName());
+
+		List<Long> keys = new ArrayList<Long>();
+		keys.add(game.getPositionKey());
+		for (int move : opening) {
+			GenericMove genericMove = Move.toGenericMove(move);
+			game.makeMove(genericMove);
+			game.nextPlayer();
+			keys.add(game.getPositionKey());
+		}
+
+		String result = null;
+		String termination = "normal";
+		while (result == null) {
+			result = adjudicate(game, keys);
+			if (result != null) {
+				break;
+			}
+			if (game.getMoves().size() >= maxPlies) {
+				result = PgnGame.DRAW;
+				termination = "adjudication";
+				break;
+			}
+
+			Color side = game.getCurrentPlayer();
+			boolean whiteToMove = side == Color.WHITE;
+			Player player = whiteToMove ? white : black;
+			EnginePool pool = whiteToMove ? whitePool : blackPool;
+			GenericMove move;
+			boolean failed = false;
+			try {
+				move = pool.search(SearchRequest.of(game, player.getTimeControl())).get();
+			} catch (ExecutionException e) {
+				// an engine which hangs or dies loses the game, the run goes on
+				move = null;
+				failed = true;
+			}
+			if (stopped) {
+				game.setRunning(false);
+				return null;
+			}
+
+			if (game.getClock().isExpired(side)) {
+				result = whiteToMove ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+				termination = "time forfeit";
+			} else if (failed) {
+				result = whiteToMove ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+				termination = "engine failure";
+			} else if (move == null || !game.isValidMove(move)) {
+				result = whiteToMove ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+				termination = "rules infraction";
+			} else {
+				game.makeMove(move);
+				game.nextPlayer();
+				keys.add(game.getPositionKey());
+			}
+		}
+		game.setRunning(false);
+
+		pgnGame.getMoves().addAll(game.getMoves());
+		pgnGame.setResult(result);
+		pgnGame.setTag("Termination", termination);
+		pgnGame.setTag("PlyCount", Integer.toString(game.getMoves().size()));
+		return pgnGame;
+	}
+
+	/**
+	 * Ends the game if the rules say so.
+	 * @param keys position keys of all positions so far
+	 * @return result or null if the game goes on
+	 */
+	private static String adjudicate(Game game, List<Long> keys) {
+		PositionCache.Status status = game.getStatus();
+		if (status == PositionCache.Status.CHECKMATE) {
+			return game.getCurrentPlayer() == Color.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+		}
+		if (status == PositionCache.Status.STALEMATE) {
+			return PgnGame.DRAW;
+		}
+		Board board = game.getBoard();
+		if (board.getHalfMoveClock() >= 100 || isThreefoldRepetition(keys, board.getHalfMoveClock())
+				|| isInsufficientMaterial(board)) {
+			return PgnGame.DRAW;
+		}
+		return null;
+	}
+
+	/**
+	 * Only positions since the last capture or pawn move can repeat.
+	 */
+	private static boolean isThreefoldRepetition(List<Long> keys, int halfMoveClock) {
+		int last = keys.size() - 1;
+		long key = keys.get(last);
+		int count = 1;
+		for (int i = last - 2; i >= Math.max(0, last - halfMoveClock); i -= 2) {
+			if (keys.get(i) == key && ++count == 3) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * King against king with at most one minor piece.
+	 */
+	private static boolean isInsufficientMaterial(Board board) {
+		long heavy = board.getPieces(Piece.WHITE_PAWN) | board.getPieces(Piece.BLACK_PAWN)
+				| board.getPieces(Piece.WHITE_ROOK) | board.getPieces(Piece.BLACK_ROOK)
+				| board.getPieces(Piece.WHITE_QUEEN) | board.getPieces(Piece.BLACK_QUEEN);
+		return heavy == 0 && Long.bitCount(board.getOccupied()) <= 3;
+	}
+
+	private static double scoreOfWhite(String result) {
+		if (PgnGame.WHITE_WINS.equals(result)) {
+			return 1;
+		}
+		if (PgnGame.BLACK_WINS.equals(result)) {
+			return 0;
+		}
+		return 0.5;
+	}
+
+	/**
+	 * Plays random legal moves, without running into mate or stalemate.
+	 * The line ends early if every move does.
+	 */
+	private int[] randomOpening(Random random) {
+		Board board = new Board();
+		board.init();
+		int[] buffer = new int[MoveGenerator.MAX_MOVES];
+		int[] scratch = new int[MoveGenerator.MAX_MOVES];
+		int[] line = new int[openingPlies];
+		int ply = 0;
+		int attempts = 0;
+		while (ply < openingPlies) {
+			int size = MoveGenerator.generateLegalMoves(board, buffer);
+			if (++attempts > 4 * size) {
+				return Arrays.copyOf(line, ply);
+			}
+			int move = buffer[random.nextInt(size)];
+			board.makeMove(move);
+			if (MoveGenerator.hasLegalMove(board, scratch)) {
+				line[ply++] = move;
+				attempts = 0;
+			} else {
+				board.unmakeMove();
+			}
+		}
+		return line;
+	}
+
+	/**
+	 * Stops the tournament, games which run right now don't count.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	public void setGames(int games) {
+		this.games = games;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public void setOpeningPlies(int openingPlies) {
+		this.openingPlies = openingPlies;
+	}
+
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = maxPlies;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param sprt test which stops the tournament once it has a verdict, null for none
+	 */
+	public void setSprt(Sprt sprt) {
+		this.sprt = sprt;
+	}
+
+	/**
+	 * @param searchListener gets told about the searches of both players, null for none
+	 */
+	public void setSearchListener(SearchListener searchListener) {
+		this.searchListener = searchListener;
+	}
+}
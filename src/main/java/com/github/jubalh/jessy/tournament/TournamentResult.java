@@ -0,0 +1,136 @@
+package com.github.jubalh.jessy.tournament;
+
+import java.util.Locale;
+
+/**
+ *
+ * Score of player A against player B.
+ * Games get added from several threads while the tournament runs.
+ * @author Michael Vetter
+ *
+ */
+public class TournamentResult {
+
+	// two-sided 95%
+	private static final double Z_95 = 1.959964;
+
+	private final Sprt sprt;
+	private final long start = System.nanoTime();
+	private long end = 0;
+	private int wins = 0;
+	private int draws = 0;
+	private int losses = 0;
+	private long plies = 0;
+
+	/**
+	 * Constructor
+	 * @param sprt test to run, null for none
+	 */
+	public TournamentResult(Sprt sprt) {
+		this.sprt = sprt;
+	}
+
+	/**
+	 * Adds a finished game.
+	 * @param score score of player A, 1, 0.5 or 0
+	 * @param gamePlies number of plies played
+	 */
+	public synchronized void add(double score, int gamePlies) {
+		if (score > 0.5) {
+			wins++;
+		} else if (score < 0.5) {
+			losses++;
+		} else {
+			draws++;
+		}
+		plies += gamePlies;
+	}
+
+	/**
+	 * Stops the time for games per second.
+	 */
+	public synchronized void finish() {
+		end = System.nanoTime();
+	}
+
+	public synchronized int getGames() {
+		return wins + draws + losses;
+	}
+
+	public synchronized int getWins() {
+		return wins;
+	}
+
+	public synchronized int getDraws() {
+		return draws;
+	}
+
+	public synchronized int getLosses() {
+		return losses;
+	}
+
+	/**
+	 * @return score of player A between 0 and 1
+	 */
+	public synchronized double getScore() {
+		int games = getGames();
+		return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+	}
+
+	/**
+	 * @return Elo difference of A against B
+	 */
+	public synchronized double getEloDifference() {
+		return Elo.difference(getScore());
+	}
+
+	/**
+	 * Half the width of the 95% confidence interval of the Elo difference.
+	 * @return error margin in Elo
+	 */
+	public synchronized double getEloErrorMargin() {
+		int games = getGames();
+		if (games == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double score = getScore();
+		double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+				+ losses * Math.pow(score, 2)) / games;
+		double deviation = Math.sqrt(variance / games);
+		double high = Elo.difference(Math.min(score + Z_95 * deviation, 1));
+		double low = Elo.difference(Math.max(score - Z_95 * deviation, 0));
+		return (high - low) / 2;
+	}
+
+	/**
+	 * @return verdict of the SPRT, CONTINUE if none runs
+	 */
+	public synchronized Sprt.Verdict getVerdict() {
+		return sprt == null ? Sprt.Verdict.CONTINUE : sprt.verdict(wins, draws, losses);
+	}
+
+	public synchronized double getGamesPerSecond() {
+		long nanos = (end == 0 ? System.nanoTime() : end) - start;
+		return nanos == 0 ? 0 : getGames() * 1e9 / nanos;
+	}
+
+	public synchronized double getPliesPerSecond() {
+		long nanos = (end == 0 ? System.nanoTime() : end) - start;
+		return nanos == 0 ? 0 : plies * 1e9 / nanos;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format(Locale.ROOT, "Games: %d (+%d =%d -%d)%n", getGames(), wins, draws, losses));
+		s.append(String.format(Locale.ROOT, "Score: %.1f%%%n", getScore() * 100));
+		s.append(String.format(Locale.ROOT, "Elo difference: %.1f +/- %.1f%n", getEloDifference(), getEloErrorMargin()));
+		if (sprt != null) {
+			s.append(String.format(Locale.ROOT, "%s: LLR %.2f (%.2f, %.2f) %s%n", sprt,
+					sprt.llr(wins, draws, losses), sprt.getLowerBound(), sprt.getUpperBound(), getVerdict()));
+		}
+		s.append(String.format(Locale.ROOT, "Games/second: %.2f%n", getGamesPerSecond()));
+		s.append(String.format(Locale.ROOT, "Moves/second: %.1f%n", getPliesPerSecond()));
+		return s.toString();
+	}
+}
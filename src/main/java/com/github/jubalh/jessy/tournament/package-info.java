@@ -0,0 +1,6 @@
+/**
+ * Engine against engine games without the command line interface
+ * @author Michael Vetter
+ *
+ */
+package com.github.jubalh.jessy.tournament;
@@ -0,0 +1,181 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.archive.ArchiveConverter;
+import com.github.jubalh.jessy.archive.ArchiveReader;
+import com.github.jubalh.jessy.archive.ArchiveWriter;
+import com.github.jubalh.jessy.pgn.PgnGame;
+import com.github.jubalh.jessy.pgn.PgnReader;
+import com.github.jubalh.jessy.pgn.San;
+
+/**
+ * Games written to an archive and read back, as games and as PGN.
+ * @author Michael Vetter
+ */
+public class ArchiveTest {
+
+	private static final String ENDGAME = "4k3/8/8/8/8/8/4P3/4K3 w - - 0 40";
+
+	private File archive;
+	private File pgn;
+
+	@Before
+	public void createFiles() throws IOException {
+		archive = File.createTempFile("jessy", ".jga");
+		pgn = File.createTempFile("jessy", ".pgn");
+	}
+
+	@After
+	public void deleteFiles() {
+		archive.delete();
+		pgn.delete();
+	}
+
+	/**
+	 * Plays moves in SAN into a new game.
+	 */
+	private static PgnGame game(String fen, String result, String... sanMoves) throws IllegalNotationException {
+		PgnGame game = new PgnGame();
+		game.setFen(fen);
+		game.setResult(result);
+		Board board = new Board();
+		if (fen == null) {
+			board.init();
+		} else {
+			board.setFen(fen);
+		}
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (String san : sanMoves) {
+			int move = San.parse(board, san, moves);
+			game.getMoves().add(Move.toGenericMove(move));
+			board.makeMove(move);
+		}
+		return game;
+	}
+
+	private PgnGame[] writeGames() throws IOException, IllegalNotationException {
+		PgnGame ruyLopez = game(null, PgnGame.WHITE_WINS, "e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O");
+		ruyLopez.setTag("Event", "Test");
+		ruyLopez.setTag("White", "Jessy");
+		PgnGame endgame = game(ENDGAME, PgnGame.DRAW, "e4", "Kd7", "e5", "Ke6");
+		PgnGame empty = game(null, PgnGame.UNKNOWN);
+		PgnGame[] games = { ruyLopez, endgame, empty };
+
+		ArchiveWriter writer = new ArchiveWriter(archive.getPath());
+		for (PgnGame game : games) {
+			writer.write(game);
+		}
+		assertEquals(games.length, writer.getGames());
+		writer.close();
+		return games;
+	}
+
+	@Test
+	public void roundTrip() throws IOException, IllegalNotationException {
+		PgnGame[] games = writeGames();
+		ArchiveReader reader = new ArchiveReader(archive.getPath());
+		try {
+			assertEquals(games.length, reader.size());
+			for (int i = 0; i < games.length; i++) {
+				PgnGame game = reader.read(i);
+				assertEquals(games[i].getTags(), game.getTags());
+				assertEquals(games[i].getMoves(), game.getMoves());
+				assertEquals(games[i].getResult(), reader.getResult(i));
+				assertEquals(games[i].getMoves().size(), reader.getPlies(i));
+			}
+			assertEquals(ENDGAME, reader.read(1).getFen());
+			assertNull(reader.read(0).getFen());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void tagsWithoutResult() throws IOException, IllegalNotationException {
+		writeGames();
+		ArchiveReader reader = new ArchiveReader(archive.getPath());
+		try {
+			Map<String, String> tags = reader.getTags(1);
+			Map<String, String> expected = new LinkedHashMap<String, String>();
+			for (String name : new String[] { "Event", "Site", "Date", "Round", "White", "Black" }) {
+				expected.put(name, "?");
+			}
+			expected.put("SetUp", "1");
+			expected.put("FEN", ENDGAME);
+			assertEquals(expected, tags);
+			assertEquals("Jessy", reader.getTags(0).get("White"));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void movesView() throws IOException, IllegalNotationException {
+		PgnGame[] games = writeGames();
+		ArchiveReader reader = new ArchiveReader(archive.getPath());
+		try {
+			ShortBuffer moves = reader.getMoves(0);
+			assertTrue(moves.isReadOnly());
+			assertEquals(games[0].getMoves().size(), moves.remaining());
+			for (int ply = 0; ply < moves.remaining(); ply++) {
+				int move = Move.valueOf(games[0].getMoves().get(ply));
+				assertEquals(move, moves.get(ply) & 0xFFFF);
+				assertEquals(move, reader.getMove(0, ply));
+			}
+			assertEquals(0, reader.getMoves(2).remaining());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void noSuchGame() throws IOException, IllegalNotationException {
+		writeGames();
+		ArchiveReader reader = new ArchiveReader(archive.getPath());
+		try {
+			reader.read(3);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void toPgn() throws IOException, IllegalNotationException {
+		PgnGame[] games = writeGames();
+		assertEquals(games.length, ArchiveConverter.toPgn(archive.getPath(), pgn.getPath()));
+
+		PgnReader reader = PgnReader.open(pgn.getPath());
+		try {
+			PgnGame game = reader.next();
+			assertEquals(games[0].getTags(), game.getTags());
+			assertEquals(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O"), game.getSanMoves());
+			game = reader.next();
+			assertEquals(games[1].getTags(), game.getTags());
+			assertEquals(Arrays.asList("e4", "Kd7", "e5", "Ke6"), game.getSanMoves());
+			game = reader.next();
+			assertEquals(PgnGame.UNKNOWN, game.getResult());
+			assertTrue(game.getSanMoves().isEmpty());
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -1,41 +1,221 @@
-/*
 package com.jubalh.jessy;
 
-import static org.junit.Assert.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import com.fluxchess.jcpi.models.IllegalNotationException;
 import com.github.jubalh.jessy.Board;
-import com.github.jubalh.jessy.Coord;
-import com.github.jubalh.jessy.pieces.Figure;
-import com.github.jubalh.jessy.pieces.King;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Piece;
+import com.github.jubalh.jessy.Square;
 
+/**
+ * FEN notation of the board and moves being made and unmade on it.
+ * @author Michael Vetter
+ */
 public class BoardTest {
 
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	private static final String EN_PASSANT = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+	private static final String PROMOTION = "r3k3/1P6/8/8/8/8/6p1/4K2R w Kq - 5 40";
+
+	private static Board board(String fen) throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(fen);
+		return board;
+	}
+
+	private static Board startPosition() {
+		Board board = new Board();
+		board.init();
+		return board;
+	}
+
+	@Test
+	public void fenRoundTrip() throws IllegalNotationException {
+		for (String fen : new String[] { Board.STANDARD_FEN, KIWIPETE, EN_PASSANT, PROMOTION,
+				"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1" }) {
+			assertEquals(fen, board(fen).toFen());
+		}
+	}
+
 	@Test
-	public void test() {
-		Board b = new Board();
-		Figure[][] matrix;
+	public void initIsStandardPosition() throws IllegalNotationException {
+		Board board = new Board();
+		board.init();
+		assertEquals(Board.STANDARD_FEN, board.toFen());
+		assertEquals(board(Board.STANDARD_FEN).getZobristKey(), board.getZobristKey());
+	}
 
-		matrix = b.getMatrix();
+	@Test
+	public void fenFields() throws IllegalNotationException {
+		Board board = board(EN_PASSANT);
+		assertEquals(Board.CASTLING_ALL, board.getCastling());
+		assertEquals(Square.valueOf(5, 5), board.getEnPassant());
+		assertEquals(0, board.getHalfMoveClock());
+		assertEquals(3, board.getFullMoveNumber());
 
-		// test checkboard field size
-		assertEquals(matrix.length, 8);
-		int col;
-		for(Figure[] figures : matrix) {
-			col = 0;
-			for(Figure figure : figures) {
-				assertEquals(figure, null);
-				col++;
+		board = board(PROMOTION);
+		assertEquals(Board.CASTLING_WHITE_KINGSIDE | Board.CASTLING_BLACK_QUEENSIDE, board.getCastling());
+		assertEquals(Square.NONE, board.getEnPassant());
+		assertEquals(5, board.getHalfMoveClock());
+		assertEquals(40, board.getFullMoveNumber());
+	}
+
+	@Test
+	public void unmakeRestoresState() throws IllegalNotationException {
+		// castling, en passant, promotions and captures among the moves
+		for (String fen : new String[] { Board.STANDARD_FEN, KIWIPETE, EN_PASSANT, PROMOTION }) {
+			Board board = board(fen);
+			long key = board.getZobristKey();
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int size = MoveGenerator.generateLegalMoves(board, moves);
+			for (int i = 0; i < size; i++) {
+				board.makeMove(moves[i]);
+				// the key kept along with the moves is the one of the position
+				assertEquals(Move.toString(moves[i]), board(board.toFen()).getZobristKey(), board.getZobristKey());
+				board.unmakeMove();
+				assertEquals(fen, board.toFen());
+				assertEquals(key, board.getZobristKey());
 			}
-			assertEquals(col, 8);
 		}
+	}
 
-		// check setting of figure
-		b.setFigure(new Coord(1,5), new King());
-		matrix = b.getMatrix();
-		//assertEquals(matrix[0][4].getClass(), new King().getClass());
+	@Test
+	public void enPassantCapture() throws IllegalNotationException {
+		Board board = board(EN_PASSANT);
+		board.makeMove(Move.valueOf(Square.valueOf(4, 4), Square.valueOf(5, 5)));
+		assertEquals("rnbqkbnr/ppp1p1pp/5P2/3p4/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 3", board.toFen());
+		board.unmakeMove();
+		assertEquals(EN_PASSANT, board.toFen());
+		assertEquals(Square.valueOf(5, 5), board.getEnPassant());
 	}
 
+	@Test
+	public void castlingAndPromotion() throws IllegalNotationException {
+		Board board = board(KIWIPETE);
+		board.makeMove(Move.valueOf(Square.valueOf(4, 0), Square.valueOf(6, 0)));
+		assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R4RK1 b kq - 1 1", board.toFen());
+		board.unmakeMove();
+		assertEquals(KIWIPETE, board.toFen());
+
+		board = board(PROMOTION);
+		board.makeMove(Move.valueOf(Square.valueOf(1, 6), Square.valueOf(0, 7), Piece.QUEEN));
+		assertEquals("Q3k3/8/8/8/8/8/6p1/4K2R b K - 0 40", board.toFen());
+		board.unmakeMove();
+		assertEquals(PROMOTION, board.toFen());
+	}
+
+	@Test
+	public void repetition() {
+		Board board = startPosition();
+		int[] knights = { Move.valueOf(Square.valueOf(6, 0), Square.valueOf(5, 2)),
+				Move.valueOf(Square.valueOf(6, 7), Square.valueOf(5, 5)),
+				Move.valueOf(Square.valueOf(5, 2), Square.valueOf(6, 0)),
+				Move.valueOf(Square.valueOf(5, 5), Square.valueOf(6, 7)) };
+		for (int move : knights) {
+			assertFalse(board.isRepetition());
+			board.makeMove(move);
+		}
+		assertTrue(board.isRepetition());
+		board.unmakeMove();
+		assertFalse(board.isRepetition());
+
+		// only the positions since the last pawn move count
+		board = startPosition();
+		board.makeMove(Move.valueOf(Square.valueOf(4, 1), Square.valueOf(4, 2)));
+		board.makeMove(Move.valueOf(Square.valueOf(4, 6), Square.valueOf(4, 5)));
+		for (int move : knights) {
+			assertFalse(board.isRepetition());
+			board.makeMove(move);
+		}
+		assertTrue(board.isRepetition());
+	}
+
+	@Test
+	public void castlingNeedsKingAndRookAtHome() throws IllegalNotationException {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		// no rooks
+		Board board = board("4k3/8/8/8/8/8/8/4K3 w KQ - 0 1");
+		assertEquals(0, board.getCastling());
+		assertEquals(5, MoveGenerator.generateLegalMoves(board, moves));
+		// rook on a1 only
+		board = board("4k3/8/8/8/8/8/8/R3K3 w K - 0 1");
+		assertEquals(0, board.getCastling());
+		assertEquals("4k3/8/8/8/8/8/8/R3K3 w - - 0 1", board.toFen());
+		int size = MoveGenerator.generateLegalMoves(board, moves);
+		for (int i = 0; i < size; i++) {
+			board.makeMove(moves[i]);
+			board.unmakeMove();
+		}
+		// king moved away, so no right is left on either side
+		assertEquals(0, board("r3k2r/8/8/8/8/8/8/R4K1R w KQkq - 0 1").getCastling() & Board.CASTLING_WHITE_KINGSIDE);
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsMissingFields() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsMissingRank() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsExtraRank() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsShortRank() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsLongRank() throws IllegalNotationException {
+		board("rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsUnknownPiece() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsMissingKing() throws IllegalNotationException {
+		board("rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsTwoKings() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBKKBNR w kq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsSideToMove() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1");
+	}
+
+	@Test(expected = IllegalNotationException.class)
+	public void rejectsMoveNumber() throws IllegalNotationException {
+		board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 one");
+	}
+
+	@Test
+	public void failedFenLeavesEmptyBoard() {
+		Board board = new Board();
+		board.init();
+		try {
+			board.setFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1");
+		} catch (IllegalNotationException e) {
+			assertEquals(0L, board.getOccupied());
+			return;
+		}
+		throw new AssertionError("FEN got accepted");
+	}
 }
-*/
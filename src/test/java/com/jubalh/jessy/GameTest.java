@@ -0,0 +1,45 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.Game;
+import com.github.jubalh.jessy.TimeControl;
+
+/**
+ * Settings of a game which apply from the next game on.
+ * @author Michael Vetter
+ */
+public class GameTest {
+
+	private final Game game = new Game(new Board());
+
+	@After
+	public void shutdown() {
+		game.shutdown();
+	}
+
+	@Test
+	public void timeControlChangesWithTheNextGame() {
+		game.setTimeControl(TimeControl.moveTime(2000));
+		game.init();
+		assertEquals(TimeControl.Type.MOVETIME, game.getTimeControl().getType());
+
+		// changed mid-game, the engine and the clock go on with the old one
+		TimeControl clock = TimeControl.parse("5+2");
+		game.setTimeControl(clock);
+		assertSame(clock, game.getNextTimeControl());
+		assertEquals(TimeControl.Type.MOVETIME, game.getTimeControl().getType());
+		assertSame(game.getTimeControl(), game.getClock().getTimeControl());
+
+		game.init();
+		assertSame(clock, game.getTimeControl());
+		assertSame(clock, game.getClock().getTimeControl());
+		assertEquals(300000, game.getClock().getRemainingMillis(Color.BLACK));
+	}
+}
@@ -0,0 +1,90 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.jubalh.jessy.metrics.Histogram;
+
+/**
+ * Buckets and percentiles of the metrics histogram.
+ * @author Michael Vetter
+ */
+public class HistogramTest {
+
+	private final Histogram histogram = Histogram.values();
+
+	/**
+	 * @return largest value of the bucket value falls into
+	 */
+	private long highestValue(long value) {
+		histogram.reset();
+		histogram.record(value);
+		// the median of the two is reported as the top of the first one's bucket
+		histogram.record(Long.MAX_VALUE);
+		return histogram.getP50();
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		for (long value = 0; value < 256; value++) {
+			assertEquals(value, highestValue(value));
+		}
+	}
+
+	@Test
+	public void relativeErrorBelowOnePercent() {
+		for (long value = 256; value > 0 && value < Long.MAX_VALUE / 2; value += Math.max(1, value / 300)) {
+			long highest = highestValue(value);
+			assertTrue(value + " in bucket up to " + highest, highest >= value && highest - value <= value / 128);
+		}
+		for (int bits = 8; bits < 62; bits++) {
+			for (long value : new long[] { (1L << bits) - 1, 1L << bits, (1L << bits) + 1 }) {
+				long highest = highestValue(value);
+				assertTrue(value + " in bucket up to " + highest, highest >= value && highest - value <= value / 128);
+			}
+		}
+	}
+
+	@Test
+	public void bucketsFollowEachOther() {
+		for (long value = 200; value > 0 && value < Long.MAX_VALUE / 2; value += Math.max(1, value / 50)) {
+			long highest = highestValue(value);
+			assertEquals(highest, highestValue(highest));
+			// the next value starts the next bucket
+			assertTrue(highestValue(highest + 1) > highest);
+		}
+	}
+
+	@Test
+	public void statistics() {
+		for (int value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50.5, histogram.getMean(), 1e-9);
+		assertEquals(1, histogram.getMin());
+		assertEquals(100, histogram.getMax());
+		assertEquals(50, histogram.getP50());
+		assertEquals(90, histogram.getP90());
+		assertEquals(99, histogram.getP99());
+		assertEquals(100, histogram.getValueAtPercentile(100));
+
+		histogram.record(-5);
+		assertEquals(0, histogram.getMin());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getP99());
+	}
+
+	@Test
+	public void timerReportsMicroseconds() {
+		Histogram timer = Histogram.timer();
+		timer.record(1500000);
+		assertEquals(1500, timer.getMax());
+		assertEquals(1500, timer.getP50());
+	}
+}
@@ -0,0 +1,88 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Perft;
+
+/**
+ * Leaf node counts of the move generator against the published ones
+ * from the chessprogramming wiki, at depths which run in a few seconds.
+ * @author Michael Vetter
+ */
+public class PerftTest {
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+	private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+	private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+	private static long perft(String fen, int depth) throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(fen);
+		long nodes = Perft.perft(board, depth, new int[depth + 1][MoveGenerator.MAX_MOVES]);
+		// the position has to be restored
+		assertEquals(fen, board.toFen());
+		return nodes;
+	}
+
+	@Test
+	public void startPosition() throws IllegalNotationException {
+		assertEquals(20, perft(Board.STANDARD_FEN, 1));
+		assertEquals(400, perft(Board.STANDARD_FEN, 2));
+		assertEquals(8902, perft(Board.STANDARD_FEN, 3));
+		assertEquals(197281, perft(Board.STANDARD_FEN, 4));
+	}
+
+	@Test
+	public void kiwipete() throws IllegalNotationException {
+		assertEquals(48, perft(KIWIPETE, 1));
+		assertEquals(2039, perft(KIWIPETE, 2));
+		assertEquals(97862, perft(KIWIPETE, 3));
+	}
+
+	@Test
+	public void position3() throws IllegalNotationException {
+		assertEquals(14, perft(POSITION_3, 1));
+		assertEquals(191, perft(POSITION_3, 2));
+		assertEquals(2812, perft(POSITION_3, 3));
+		assertEquals(43238, perft(POSITION_3, 4));
+	}
+
+	@Test
+	public void position4() throws IllegalNotationException {
+		assertEquals(6, perft(POSITION_4, 1));
+		assertEquals(264, perft(POSITION_4, 2));
+		assertEquals(9467, perft(POSITION_4, 3));
+	}
+
+	@Test
+	public void position5() throws IllegalNotationException {
+		assertEquals(44, perft(POSITION_5, 1));
+		assertEquals(1486, perft(POSITION_5, 2));
+		assertEquals(62379, perft(POSITION_5, 3));
+	}
+
+	@Test
+	public void divideAddsUp() throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(KIWIPETE);
+		Perft perft = new Perft();
+		try {
+			Perft.Result result = perft.divide(board, 3);
+			assertEquals(97862, result.getNodes());
+			assertEquals(48, result.getMoves().size());
+			long sum = 0;
+			for (long count : result.getCounts()) {
+				sum += count;
+			}
+			assertEquals(97862, sum);
+		} finally {
+			perft.shutdown();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.pgn.PgnGame;
+import com.github.jubalh.jessy.pgn.PgnReader;
+import com.github.jubalh.jessy.pgn.PgnWriter;
+import com.github.jubalh.jessy.pgn.San;
+
+/**
+ * Games read from and written to PGN.
+ * @author Michael Vetter
+ */
+public class PgnTest {
+
+	private static final String ANNOTATED = "% escaped line [Event \"None\"] 1. d4\n"
+			+ "[Event \"Quoted \\\"test\\\"\"]\n"
+			+ "[Site \"?\"]\n"
+			+ "[Result \"1-0\"]\n"
+			+ "\n"
+			+ "1. e4 {best by test} e5 $1 2.Nf3 (2. f4 exf4 (2... d5 3. exd5) 3. Nf3) Nc6 ; to the end of the line 3. d4\n"
+			+ "3. Bb5 a6!? 4.Ba4 $2 4... Nf6\n"
+			+ "% 5. d4 is escaped\n"
+			+ "5. O-O 1-0\n";
+
+	private static PgnGame read(String pgn) throws IOException {
+		PgnReader reader = new PgnReader(new StringReader(pgn));
+		try {
+			return reader.next();
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void skipsAnnotations() throws IOException {
+		PgnGame game = read(ANNOTATED);
+		assertEquals("Quoted \"test\"", game.getTag("Event"));
+		assertEquals(PgnGame.WHITE_WINS, game.getResult());
+		assertEquals(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O"), game.getSanMoves());
+	}
+
+	@Test
+	public void gameWithoutResult() throws IOException {
+		PgnReader reader = new PgnReader(new StringReader("[Event \"First\"]\n\n1. d4 d5\n\n"
+				+ "[Event \"Second\"]\n\n1. c4 *\n"));
+		PgnGame first = reader.next();
+		assertEquals("First", first.getTag("Event"));
+		assertEquals(Arrays.asList("d4", "d5"), first.getSanMoves());
+		assertEquals(PgnGame.UNKNOWN, first.getResult());
+
+		PgnGame second = reader.next();
+		assertEquals("Second", second.getTag("Event"));
+		assertEquals(Arrays.asList("c4"), second.getSanMoves());
+		assertNull(reader.next());
+		assertEquals(2, reader.getGamesRead());
+		reader.close();
+	}
+
+	@Test
+	public void writtenGamesReadBack() throws IOException {
+		PgnGame game = read(ANNOTATED);
+		// moves get written from the board, in SAN again
+		Board board = new Board();
+		board.init();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		for (String san : game.getSanMoves()) {
+			int move = San.parse(board, san, moves);
+			game.getMoves().add(Move.toGenericMove(move));
+			board.makeMove(move);
+		}
+
+		StringWriter out = new StringWriter();
+		PgnWriter writer = new PgnWriter(out);
+		writer.write(game);
+		writer.close();
+		String pgn = out.toString();
+		assertTrue(pgn, pgn.startsWith("[Event \"Quoted \\\"test\\\"\"]"));
+		assertTrue(pgn, pgn.contains("1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O 1-0"));
+
+		PgnGame again = read(pgn);
+		assertEquals(game.getTags(), again.getTags());
+		assertEquals(game.getSanMoves(), again.getSanMoves());
+	}
+}
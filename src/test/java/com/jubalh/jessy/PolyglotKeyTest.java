@@ -0,0 +1,45 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.book.PolyglotKey;
+
+/**
+ * Keys against the examples of the Polyglot book format.
+ * @author Michael Vetter
+ */
+public class PolyglotKeyTest {
+
+	private static long key(String fen) throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(fen);
+		return PolyglotKey.of(board);
+	}
+
+	@Test
+	public void startPosition() throws IllegalNotationException {
+		assertEquals(0x463B96181691FC9CL, key(Board.STANDARD_FEN));
+	}
+
+	@Test
+	public void enPassantOnlyIfCapturable() throws IllegalNotationException {
+		// e4, nothing can take on e3
+		assertEquals(0x823C9B50FD114196L, key("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+		assertEquals(0x0756B94461C50FB0L, key("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2"));
+		assertEquals(0x662FAFB965DB29D4L, key("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2"));
+		// e5 can take on f6
+		assertEquals(0x22A48B5A8E47FF78L, key("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3"));
+		assertEquals(0x3C8123EA7B067637L, key("rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3"));
+	}
+
+	@Test
+	public void castlingRights() throws IllegalNotationException {
+		assertEquals(0x652A607CA3F242C1L, key("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3"));
+		assertEquals(0x00FDD303C946BDD9L, key("rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4"));
+		assertEquals(0x5C3F9B829B279560L, key("rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4"));
+	}
+}
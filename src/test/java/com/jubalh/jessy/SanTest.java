@@ -0,0 +1,103 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.Piece;
+import com.github.jubalh.jessy.Square;
+import com.github.jubalh.jessy.pgn.San;
+
+/**
+ * Moves written in SAN and read back.
+ * @author Michael Vetter
+ */
+public class SanTest {
+
+	private static final String CASTLING = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+	// after 1. f3 e5 2. g4
+	private static final String FOOLS_MATE = "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2";
+
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+	private static Board board(String fen) throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(fen);
+		return board;
+	}
+
+	private static int square(String name) {
+		return Square.valueOf(name.charAt(0) - 'a', name.charAt(1) - '1');
+	}
+
+	private static int move(String from, String to) {
+		return Move.valueOf(square(from), square(to));
+	}
+
+	private void assertSan(String fen, int move, String san) throws IllegalNotationException {
+		Board board = board(fen);
+		assertEquals(san, San.toSan(board, move));
+		// the position has to be restored
+		assertEquals(fen, board.toFen());
+		assertEquals(move, San.parse(board, san, moves));
+	}
+
+	@Test
+	public void pawnAndPieceMoves() throws IllegalNotationException {
+		assertSan(Board.STANDARD_FEN, move("e2", "e4"), "e4");
+		assertSan(Board.STANDARD_FEN, move("g1", "f3"), "Nf3");
+		assertSan("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", move("e4", "d5"), "exd5");
+	}
+
+	@Test
+	public void disambiguation() throws IllegalNotationException {
+		// knights on b1 and f1 both reach d2
+		String files = "4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1";
+		assertSan(files, move("b1", "d2"), "Nbd2");
+		assertSan(files, move("f1", "d2"), "Nfd2");
+		// rooks on a1 and a5 both reach a3
+		String ranks = "4k3/8/8/R7/8/8/8/R3K3 w - - 0 1";
+		assertSan(ranks, move("a1", "a3"), "R1a3");
+		assertSan(ranks, move("a5", "a3"), "R5a3");
+		// queens on a1, c1 and a3 all reach b2
+		String both = "4k3/8/8/8/8/Q7/8/Q1Q1K3 w - - 0 1";
+		assertSan(both, move("a1", "b2"), "Qa1b2");
+		assertSan(both, move("c1", "b2"), "Qcb2");
+		assertSan(both, move("a3", "b2"), "Q3b2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void ambiguousMove() throws IllegalNotationException {
+		San.parse(board("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1"), "Nd2", moves);
+	}
+
+	@Test
+	public void castling() throws IllegalNotationException {
+		assertSan(CASTLING, move("e1", "g1"), "O-O");
+		assertSan(CASTLING, move("e1", "c1"), "O-O-O");
+		assertEquals(move("e1", "g1"), San.parse(board(CASTLING), "0-0", moves));
+		assertEquals(move("e1", "c1"), San.parse(board(CASTLING), "0-0-0", moves));
+	}
+
+	@Test
+	public void promotion() throws IllegalNotationException {
+		String fen = "8/4P1k1/8/8/8/8/8/4K3 w - - 0 1";
+		int queen = Move.valueOf(square("e7"), square("e8"), Piece.QUEEN);
+		assertSan(fen, queen, "e8=Q");
+		assertEquals(queen, San.parse(board(fen), "e8Q", moves));
+		assertSan(fen, Move.valueOf(square("e7"), square("e8"), Piece.KNIGHT), "e8=N+");
+	}
+
+	@Test
+	public void checkAndMate() throws IllegalNotationException {
+		assertSan("4k3/8/8/8/8/8/8/R3K3 w - - 0 1", move("a1", "a8"), "Ra8+");
+		assertSan(FOOLS_MATE, move("d8", "h4"), "Qh4#");
+		// marks and annotations are optional when reading
+		assertEquals(move("d8", "h4"), San.parse(board(FOOLS_MATE), "Qh4", moves));
+		assertEquals(move("d8", "h4"), San.parse(board(FOOLS_MATE), "Qh4#!!", moves));
+	}
+}
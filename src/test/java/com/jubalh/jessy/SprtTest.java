@@ -0,0 +1,70 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.jubalh.jessy.tournament.Elo;
+import com.github.jubalh.jessy.tournament.Sprt;
+
+/**
+ * Elo differences and the SPRT of tournaments.
+ * @author Michael Vetter
+ */
+public class SprtTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void eloDifference() {
+		assertEquals(0, Elo.difference(0.5), DELTA);
+		assertEquals(400 * Math.log10(3), Elo.difference(0.75), DELTA);
+		assertEquals(-400 * Math.log10(3), Elo.difference(0.25), DELTA);
+		assertEquals(Double.POSITIVE_INFINITY, Elo.difference(1), 0);
+		assertEquals(Double.NEGATIVE_INFINITY, Elo.difference(0), 0);
+	}
+
+	@Test
+	public void eloScore() {
+		assertEquals(0.5, Elo.score(0), DELTA);
+		assertEquals(0.75, Elo.score(400 * Math.log10(3)), DELTA);
+		for (double difference = -600; difference <= 600; difference += 50) {
+			assertEquals(difference, Elo.difference(Elo.score(difference)), 1e-6);
+		}
+	}
+
+	@Test
+	public void bounds() {
+		Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+		assertEquals(Math.log(0.05 / 0.95), sprt.getLowerBound(), DELTA);
+		assertEquals(Math.log(0.95 / 0.05), sprt.getUpperBound(), DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void elo1AboveElo0() {
+		new Sprt(10, 10, 0.05, 0.05);
+	}
+
+	@Test
+	public void llr() {
+		Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+		// worked out by hand from the normal approximation
+		assertEquals(0.46112064941312575, sprt.llr(30, 40, 20), 1e-12);
+		assertEquals(-0.5982992755376888, sprt.llr(20, 40, 30), 1e-12);
+		// nothing to tell without games or if they all ended the same
+		assertEquals(0, sprt.llr(0, 0, 0), 0);
+		assertEquals(0, sprt.llr(0, 25, 0), 0);
+		assertEquals(0, sprt.llr(25, 0, 0), 0);
+		// more wins make it likelier that the first player is stronger
+		assertTrue(sprt.llr(31, 40, 19) > sprt.llr(30, 40, 20));
+	}
+
+	@Test
+	public void verdict() {
+		Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+		assertEquals(Sprt.Verdict.CONTINUE, sprt.verdict(30, 40, 20));
+		assertEquals(Sprt.Verdict.H1_ACCEPTED, sprt.verdict(3000, 4000, 2000));
+		assertEquals(Sprt.Verdict.H0_ACCEPTED, sprt.verdict(2000, 4000, 3000));
+	}
+}
@@ -0,0 +1,127 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fluxchess.jcpi.models.IllegalNotationException;
+import com.github.jubalh.jessy.Board;
+import com.github.jubalh.jessy.Move;
+import com.github.jubalh.jessy.MoveGenerator;
+import com.github.jubalh.jessy.tablebase.Material;
+import com.github.jubalh.jessy.tablebase.TablebaseGenerator;
+import com.github.jubalh.jessy.tablebase.Tablebases;
+
+/**
+ * Tables generated for KQvK and KRvK, probed and played out.
+ * @author Michael Vetter
+ */
+public class TablebaseTest {
+
+	private static final String KQVK_WHITE = "4k3/8/8/8/8/8/8/4K2Q w - - 0 1";
+	// the same with colors and ranks swapped
+	private static final String KQVK_BLACK = "4k2q/8/8/8/8/8/8/4K3 b - - 0 1";
+	private static final String KRVK_WHITE = "8/8/8/3k4/8/8/8/R3K3 w - - 0 1";
+	private static final String KRVK_BLACK = "r3k3/8/8/8/3K4/8/8/8 b - - 0 1";
+
+	private static File directory;
+	private static Tablebases tablebases;
+	private static List<String> queenSummaries;
+	private static List<String> rookSummaries;
+
+	@BeforeClass
+	public static void generate() throws IOException {
+		directory = Files.createTempDirectory("jessy").toFile();
+		tablebases = new Tablebases();
+		TablebaseGenerator generator = new TablebaseGenerator(tablebases, directory.getPath(), 2);
+		queenSummaries = generator.generate(Material.parse("KQvK"));
+		rookSummaries = generator.generate(Material.parse("KRvK"));
+	}
+
+	@AfterClass
+	public static void delete() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static Board board(String fen) throws IllegalNotationException {
+		Board board = new Board();
+		board.setFen(fen);
+		return board;
+	}
+
+	@Test
+	public void longestMates() {
+		assertEquals(1, queenSummaries.size());
+		assertTrue(queenSummaries.get(0), queenSummaries.get(0).contains("longest mate 19 plies"));
+		assertEquals(1, rookSummaries.size());
+		assertTrue(rookSummaries.get(0), rookSummaries.get(0).contains("longest mate 31 plies"));
+	}
+
+	@Test
+	public void loadedTablesProbeTheSame() throws IOException, IllegalNotationException {
+		Tablebases loaded = Tablebases.load(directory.getPath());
+		assertEquals(2, loaded.size());
+		for (String fen : new String[] { KQVK_WHITE, KQVK_BLACK, KRVK_WHITE, KRVK_BLACK }) {
+			assertEquals(fen, tablebases.probe(board(fen)), loaded.probe(board(fen)));
+		}
+	}
+
+	@Test
+	public void flippedColors() throws IllegalNotationException {
+		int value = tablebases.probe(board(KQVK_WHITE));
+		assertTrue(Tablebases.isWin(value));
+		assertEquals(value, tablebases.probe(board(KQVK_BLACK)));
+
+		value = tablebases.probe(board(KRVK_WHITE));
+		assertTrue(Tablebases.isWin(value));
+		assertEquals(value, tablebases.probe(board(KRVK_BLACK)));
+
+		// the lone king to move
+		value = tablebases.probe(board(KQVK_WHITE.replace(" w ", " b ")));
+		assertTrue(Tablebases.isLoss(value));
+		assertEquals(value, tablebases.probe(board(KQVK_BLACK.replace(" b ", " w "))));
+	}
+
+	@Test
+	public void bestMoveShortensMate() throws IllegalNotationException {
+		for (String fen : new String[] { KQVK_WHITE, KQVK_BLACK, KRVK_WHITE, KRVK_BLACK }) {
+			Board board = board(fen);
+			int value = tablebases.probe(board);
+			// both sides play best, the winner mates fastest, the loser holds out longest
+			while (Tablebases.getPlies(value) > 0) {
+				int move = tablebases.bestMove(board);
+				assertTrue(fen, move != Move.NONE);
+				board.makeMove(move);
+				int reply = tablebases.probe(board);
+				assertEquals(fen, Tablebases.getPlies(value) - 1, Tablebases.getPlies(reply));
+				assertEquals(fen, Tablebases.isWin(value), Tablebases.isLoss(reply));
+				value = reply;
+			}
+			assertTrue(fen, Tablebases.isLoss(value));
+			assertTrue(fen, board.isCheck());
+			assertFalse(fen, MoveGenerator.hasLegalMove(board, new int[MoveGenerator.MAX_MOVES]));
+		}
+	}
+
+	@Test
+	public void noTableNoMove() throws IllegalNotationException {
+		Board board = board(Board.STANDARD_FEN);
+		assertEquals(Tablebases.UNKNOWN, tablebases.probe(board));
+		assertEquals(Move.NONE, tablebases.bestMove(board));
+	}
+}
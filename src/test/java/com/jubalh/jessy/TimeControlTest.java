@@ -0,0 +1,105 @@
+package com.jubalh.jessy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.github.jubalh.jessy.Clock;
+import com.github.jubalh.jessy.Color;
+import com.github.jubalh.jessy.TimeControl;
+
+/**
+ * Time controls as typed by the user.
+ * @author Michael Vetter
+ */
+public class TimeControlTest {
+
+	@Test
+	public void suddenDeathWithIncrement() {
+		TimeControl timeControl = TimeControl.parse("5+2");
+		assertEquals(TimeControl.Type.CLOCK, timeControl.getType());
+		assertEquals(300000, timeControl.getBaseMillis());
+		assertEquals(2000, timeControl.getIncrementMillis());
+		assertEquals(0, timeControl.getMovesToGo());
+		// a share of the remaining time plus the increment
+		assertEquals(300000 / 20 + 2000, timeControl.getMoveLimitMillis(new Clock(timeControl), Color.WHITE));
+
+		timeControl = TimeControl.parse("0.5");
+		assertEquals(30000, timeControl.getBaseMillis());
+		assertEquals(0, timeControl.getIncrementMillis());
+	}
+
+	@Test
+	public void movesToGo() {
+		TimeControl timeControl = TimeControl.parse("40/90+30");
+		assertEquals(TimeControl.Type.CLOCK, timeControl.getType());
+		assertEquals(40, timeControl.getMovesToGo());
+		assertEquals(90 * 60000, timeControl.getBaseMillis());
+		assertEquals(30000, timeControl.getIncrementMillis());
+	}
+
+	@Test
+	public void depthAndNodes() {
+		TimeControl timeControl = TimeControl.parse("depth 8 max 30000");
+		assertEquals(TimeControl.Type.DEPTH, timeControl.getType());
+		assertEquals(8, timeControl.getDepth());
+		assertEquals(30000, timeControl.getMaxMillis());
+
+		timeControl = TimeControl.parse("depth 8");
+		assertEquals(8, timeControl.getDepth());
+		assertEquals(TimeControl.DEFAULT_MAX_MILLIS, timeControl.getMaxMillis());
+
+		timeControl = TimeControl.parse(" nodes  100000 ");
+		assertEquals(TimeControl.Type.NODES, timeControl.getType());
+		assertEquals(100000, timeControl.getNodes());
+		assertEquals(TimeControl.DEFAULT_MAX_MILLIS, timeControl.getMaxMillis());
+
+		timeControl = TimeControl.parse("nodes 100000 max 500");
+		assertEquals(500, timeControl.getMaxMillis());
+	}
+
+	@Test
+	public void moveTime() {
+		TimeControl timeControl = TimeControl.parse("movetime 2000");
+		assertEquals(TimeControl.Type.MOVETIME, timeControl.getType());
+		assertEquals(2000, timeControl.getBaseMillis());
+		assertEquals(2000, timeControl.getMaxMillis());
+	}
+
+	@Test
+	public void readsWhatItWrites() {
+		for (String text : new String[] { "5+2", "40/90+30", "depth 8 max 30000", "depth 8", "nodes 100000",
+				"movetime 2000" }) {
+			TimeControl timeControl = TimeControl.parse(text);
+			assertEquals(text, timeControl.toString(), TimeControl.parse(timeControl.toString()).toString());
+		}
+	}
+
+	@Test
+	public void rejectsZeroAndNegativeValues() {
+		for (String text : new String[] { "0+2", "-5+2", "5+-1", "-40/90+30", "40/0+30", "movetime 0",
+				"movetime -100", "depth 0", "depth -3", "nodes 0", "depth 8 max 0", "depth 0 max 30000",
+				"nodes 100 max -1" }) {
+			try {
+				TimeControl.parse(text);
+				fail("Accepted " + text);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void rejectsUnknownFormats() {
+		for (String text : new String[] { "", "fast", "5+", "depth", "depth eight", "depth 8 min 30000",
+				"movetime 2000 max 3000", "blitz 5" }) {
+			try {
+				TimeControl.parse(text);
+				fail("Accepted " + text);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}